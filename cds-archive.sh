@@ -0,0 +1,27 @@
+#!/usr/bin/env bash
+# Records a class data sharing archive of the fat jar for fast cold starts (JDK 13 or newer) and compares the time to
+# the first request with and without it. The training run starts the application , answers one request of every kind
+# and exits , the JVM then writes every class it loaded to the archive.
+#
+#   ./cds-archive.sh                  build the jar , record target/app-cds.jsa and compare
+#   ./cds-archive.sh -DHTTP_PORT=9090 same with extra JVM options for all runs
+#
+# Run the application with the archive:
+#   java -XX:SharedArchiveFile=target/app-cds.jsa -jar target/VertxStatistics-*-fat.jar
+# The archive only matches the JDK and the jar it was recorded with , record it again when either changes.
+
+set -e
+ARCHIVE=target/app-cds.jsa
+
+mvn -q -B package -DskipTests
+JAR=$(ls target/*-fat.jar)
+
+first_request() {
+  java "$@" -DSTATS_TRAINING_RUN=true -jar "$JAR" 2>&1 | grep -o "First request answered [0-9]* ms" || true
+}
+
+rm -f "$ARCHIVE"
+java -XX:ArchiveClassesAtExit="$ARCHIVE" "$@" -DSTATS_TRAINING_RUN=true -jar "$JAR" > target/app-cds.log 2>&1
+echo "Recorded $ARCHIVE ($(du -h "$ARCHIVE" | cut -f1))"
+echo "Without archive : $(first_request -Xshare:auto "$@")"
+echo "With archive    : $(first_request -XX:SharedArchiveFile="$ARCHIVE" "$@")"
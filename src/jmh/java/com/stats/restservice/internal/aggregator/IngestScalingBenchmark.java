@@ -0,0 +1,49 @@
+package com.stats.restservice.internal.aggregator;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the ingest path of the aggregators , the shared ring against the striped one with a stripe per
+ * core. Every benchmark thread stands in for the event loop of one RestAPIVerticle instance , run with -t to
+ * measure other writer counts
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(Threads.MAX)
+public class IngestScalingBenchmark {
+
+	@Param({ "shared", "striped" })
+	public String aggregator;
+
+	private IWindowAggregator mAggregator;
+
+	@Setup
+	public void setUp() {
+		mAggregator = "shared".equals(aggregator) ? new SlidingWindowAggregator()
+				: new StripedWindowAggregator(Runtime.getRuntime().availableProcessors());
+	}
+
+	@Benchmark
+	public boolean add() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		return mAggregator.add(System.currentTimeMillis() - random.nextInt(1000), random.nextInt(100000) * 0.01);
+	}
+}
@@ -0,0 +1,85 @@
+package com.stats.restservice.internal.journal;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of IngestLog.append , uncontended and with as many appending threads as cores , with the group commit
+ * of the background thread running as in production
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IngestLogBenchmark {
+
+	private static final String[] KEYS = new String[16];
+
+	static {
+		for (int i = 0; i < KEYS.length; i++) {
+			KEYS[i] = "merchant-" + i;
+		}
+	}
+
+	@Param({ "false", "true" })
+	public boolean keyed;
+
+	private File mDirectory;
+	private IngestLog mLog;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		mDirectory = Files.createTempDirectory("ingest-log-benchmark").toFile();
+		mLog = new IngestLog(mDirectory, 60000, IngestLog.DEFAULT_SEGMENT_BYTES, IngestLog.DEFAULT_FLUSH_MILLIS,
+				System::currentTimeMillis);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		mLog.close();
+		File[] segments = mDirectory.listFiles();
+		if (segments != null) {
+			for (File segment : segments) {
+				segment.delete();
+			}
+		}
+		mDirectory.delete();
+	}
+
+	@Benchmark
+	public boolean append() {
+		return appendRecord();
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public boolean appendContended() {
+		return appendRecord();
+	}
+
+	private boolean appendRecord() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		return mLog.append(System.currentTimeMillis(), random.nextInt(100000) * 0.01,
+				keyed ? KEYS[random.nextInt(KEYS.length)] : null);
+	}
+}
@@ -0,0 +1,67 @@
+package com.stats.restservice.internal.services;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the ingest path , uncontended and with as many writer threads as cores , with and without stripes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComputeTransactionBenchmark {
+
+	private static final String[] KEYS = new String[16];
+
+	static {
+		for (int i = 0; i < KEYS.length; i++) {
+			KEYS[i] = "merchant-" + i;
+		}
+	}
+
+	@Param({ "1", "8" })
+	public int ingestStripes;
+
+	@Param({ "false", "true" })
+	public boolean keyed;
+
+	private StatisticsServiceImpl mService;
+
+	@Setup
+	public void setUp() {
+		mService = new StatisticsServiceImpl(new StatisticsOptions().setIngestStripes(ingestStripes));
+	}
+
+	@Benchmark
+	public void computeTransaction() {
+		compute();
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public void computeTransactionContended() {
+		compute();
+	}
+
+	private void compute() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		mService.computeTransaction(random.nextInt(100000) * 0.01, System.currentTimeMillis() - random.nextInt(1000),
+				keyed ? KEYS[random.nextInt(KEYS.length)] : null);
+	}
+}
@@ -0,0 +1,58 @@
+package com.stats.restservice.internal.services;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of reading the statistics depending on the number of transactions inside the window.
+ * The window is filled with timestamps of the last few seconds , so it stays full for the whole measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatisticsServiceBenchmark {
+
+	/**
+	 * Spread of the timestamps of the filled transactions
+	 */
+	private static final int FILL_SPREAD_MILLIS = 5000;
+
+	@Param({ "1000", "100000", "10000000" })
+	public int transactionsInWindow;
+
+	private StatisticsServiceImpl mService;
+
+	@Setup
+	public void setUp() {
+		mService = new StatisticsServiceImpl();
+		long now = System.currentTimeMillis();
+		for (int i = 0; i < transactionsInWindow; i++) {
+			mService.computeTransaction(i % 1000 * 0.25, now - i % FILL_SPREAD_MILLIS);
+		}
+	}
+
+	@Benchmark
+	public Map<String, Number> getStatistics() {
+		return mService.getStatistics();
+	}
+
+	@Benchmark
+	public void removeStaleTransactions() {
+		mService.removeStaleTransactions();
+	}
+}
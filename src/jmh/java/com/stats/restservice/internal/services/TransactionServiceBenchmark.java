@@ -0,0 +1,59 @@
+package com.stats.restservice.internal.services;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Benchmark of parsing a posted transaction , including handing it to the statistics service. The escaped body
+ * takes the fallback through the json parser.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionServiceBenchmark {
+
+	@Param({ "plain", "keyed", "escaped" })
+	public String body;
+
+	private TransactionServiceImpl mService;
+	private Buffer mBody;
+
+	@Setup
+	public void setUp() {
+		mService = new TransactionServiceImpl(new StatisticsServiceImpl());
+		// far in the future , so the transaction is never discarded as too old during the measurement
+		long timestamp = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1);
+		switch (body) {
+		case "keyed":
+			mBody = Buffer.buffer("{\"amount\":12.3343,\"timestamp\":" + timestamp + ",\"key\":\"merchant-1\"}");
+			break;
+		case "escaped":
+			mBody = Buffer.buffer("{\"amount\":12.3343,\"timestamp\":" + timestamp + ",\"key\":\"merchant\\u002d1\"}");
+			break;
+		default:
+			mBody = Buffer.buffer("{\"amount\":12.3343,\"timestamp\":" + timestamp + "}");
+		}
+	}
+
+	@Benchmark
+	public Optional<Boolean> unMarshallTransactionData() {
+		return mService.unMarshallTransactionData(mBody);
+	}
+}
@@ -0,0 +1,91 @@
+package com.stats.restverticle;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+
+/**
+ * Benchmark of the blocking executors at high concurrency , CONCURRENCY statistics requests of which every one
+ * blocks for taskMillis (a slow computation , a lock or I/O) are submitted at once from an event loop. The worker
+ * pool runs WORKER_POOL_SIZE (20) of them at a time , virtual threads all of them. Run on JDK 21 or newer , on
+ * older ones the virtual executor falls back to the worker pool
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BlockingExecutorBenchmark {
+
+	private static final int CONCURRENCY = 1000;
+
+	@Param({ BlockingExecutor.WORKER, BlockingExecutor.VIRTUAL })
+	public String executor;
+
+	@Param({ "0", "1", "10" })
+	public int taskMillis;
+
+	private Vertx mVertx;
+	private Context mEventLoop;
+	private BlockingExecutor mExecutor;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		mVertx = Vertx.vertx();
+		mEventLoop = mVertx.getOrCreateContext();
+		mExecutor = BlockingExecutor.create(mVertx, executor);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws InterruptedException {
+		mExecutor.close();
+		CountDownLatch closed = new CountDownLatch(1);
+		mVertx.close(result -> closed.countDown());
+		closed.await();
+	}
+
+	/**
+	 * @return completed tasks , one operation is one task
+	 */
+	@Benchmark
+	@OperationsPerInvocation(CONCURRENCY)
+	public long executeConcurrently() throws InterruptedException {
+		CountDownLatch completed = new CountDownLatch(CONCURRENCY);
+		mEventLoop.runOnContext(v -> {
+			for (int i = 0; i < CONCURRENCY; i++) {
+				mExecutor.<Long>execute(this::task, result -> completed.countDown());
+			}
+		});
+		completed.await();
+		return completed.getCount();
+	}
+
+	private Long task() {
+		if (taskMillis > 0) {
+			try {
+				Thread.sleep(taskMillis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		return System.nanoTime();
+	}
+}
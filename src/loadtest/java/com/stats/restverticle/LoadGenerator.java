@@ -0,0 +1,199 @@
+package com.stats.restverticle;
+
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import com.stats.restservice.internal.metrics.ServiceMetrics;
+import com.stats.restservice.internal.services.StatisticsOptions;
+import com.stats.restservice.internal.services.StatisticsServiceImpl;
+import com.stats.restservice.internal.services.TransactionServiceImpl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * End to end throughput test , starts the REST API in process (on its own Vertx instance) and drives it with open loop
+ * LoadGeneratorVerticles at increasing rates. Every step reports the latency percentiles of the requests and the
+ * highest rate that was served without errors and within the p99 objective is the max sustainable throughput.
+ * eg: mvn -Ploadtest compile exec:java -DLOAD_RATES=5000,10000,20000 -DLOAD_DURATION_S=30
+ */
+public class LoadGenerator {
+
+	/**
+	 * Comma separated requests per second of the steps
+	 */
+	static final String LOAD_RATES = "LOAD_RATES";
+	static final String LOAD_DURATION_S = "LOAD_DURATION_S";
+	static final String LOAD_WARMUP_S = "LOAD_WARMUP_S";
+	/**
+	 * Share of POST /transactions , the rest is GET /statistics
+	 */
+	static final String LOAD_POST_RATIO = "LOAD_POST_RATIO";
+	/**
+	 * Number of generator verticles , each on its own event loop
+	 */
+	static final String LOAD_CLIENTS = "LOAD_CLIENTS";
+	static final String LOAD_CONNECTIONS = "LOAD_CONNECTIONS";
+	static final String LOAD_SLO_P99_MS = "LOAD_SLO_P99_MS";
+	static final String LOAD_REPORT = "LOAD_REPORT";
+
+	/**
+	 * A step is sustained if at least this share of the scheduled rate was answered
+	 */
+	static final double SUSTAINED_THROUGHPUT_RATIO = 0.95;
+	static final long DEPLOY_TIMEOUT_SECONDS = 30;
+
+	public static void main(String[] args) throws Exception {
+		String rates = System.getProperty(LOAD_RATES, "1000,5000,10000,20000,40000");
+		long durationMillis = TimeUnit.SECONDS.toMillis(Long.getLong(LOAD_DURATION_S, 10l));
+		long warmupMillis = TimeUnit.SECONDS.toMillis(Long.getLong(LOAD_WARMUP_S, 5l));
+		double postRatio = Double.parseDouble(System.getProperty(LOAD_POST_RATIO, "0.9"));
+		int clients = Integer.getInteger(LOAD_CLIENTS, 2);
+		int connections = Integer.getInteger(LOAD_CONNECTIONS, 32);
+		double sloMillis = Double.parseDouble(System.getProperty(LOAD_SLO_P99_MS, "50"));
+		Path reportFile = Paths.get(System.getProperty(LOAD_REPORT, "target/load-report.txt"));
+
+		Vertx server = Vertx.vertx();
+		Vertx client = Vertx.vertx();
+		try {
+			int port = deployServer(server);
+			System.out.println("REST API listening on port " + port + " , " + clients + " generator(s) with "
+					+ connections + " connection(s) each , " + (int) (postRatio * 100) + "% POST");
+			if (warmupMillis > 0) {
+				double warmupRate = Double.parseDouble(rates.split(",")[0].trim());
+				runStep(client, port, warmupRate, warmupMillis, postRatio, clients, connections);
+			}
+
+			List<LoadStepResult> results = new ArrayList<>();
+			for (String rate : rates.split(",")) {
+				LoadStepResult result = runStep(client, port, Double.parseDouble(rate.trim()), durationMillis, postRatio,
+						clients, connections);
+				results.add(result);
+				System.out.println(formatStep(result));
+				if (!isSustained(result, sloMillis)) {
+					// the steps above only pile up more queueing
+					break;
+				}
+			}
+
+			String report = formatReport(results, sloMillis);
+			System.out.println(report);
+			if (reportFile.getParent() != null) {
+				Files.createDirectories(reportFile.getParent());
+			}
+			Files.write(reportFile, report.getBytes(StandardCharsets.UTF_8));
+			System.out.println("Report written to " + reportFile.toAbsolutePath());
+		} finally {
+			client.close();
+			server.close();
+		}
+	}
+
+	private static int deployServer(Vertx vertx) throws Exception {
+		ServerSocket socket = new ServerSocket(0);
+		int port = socket.getLocalPort();
+		socket.close();
+
+		// limits and instances from the system properties , like the application
+		JsonObject config = StatisticsApplication.resolveConfig(new JsonObject().put("HTTP_PORT", port));
+		int instances = RestVerticleDeployer.getInstances(config);
+		StatisticsServiceImpl statService = new StatisticsServiceImpl(new StatisticsOptions().setIngestStripes(instances));
+		ServiceMetrics metrics = new ServiceMetrics();
+		StatisticsSnapshot snapshot = null;
+		long snapshotInterval = config.getLong(StatisticsSnapshotVerticle.STATS_SNAPSHOT_INTERVAL_MS, 0l);
+		if (snapshotInterval > 0) {
+			snapshot = new StatisticsSnapshot(statService);
+			StatisticsSnapshot deployed = snapshot;
+			LoadGenerator.<String>await(handler -> vertx.deployVerticle(new StatisticsSnapshotVerticle(deployed, snapshotInterval), handler));
+		}
+		LoadGenerator.<String>await(handler -> vertx.deployVerticle(new PeriodicCleanerVerticle(statService, metrics), handler));
+		StatisticsSnapshot shared = snapshot;
+		AdmissionControl admission = new AdmissionControl(config, metrics);
+		LoadGenerator.<Void>await(handler -> RestVerticleDeployer.deployRestVerticles(vertx, instances,
+				new RestVerticleOptions(new TransactionServiceImpl(statService, metrics), statService).setSnapshot(shared)
+						.setMetrics(metrics).setAdmission(admission), new DeploymentOptions().setConfig(config), handler));
+		return port;
+	}
+
+	private static LoadStepResult runStep(Vertx vertx, int port, double rate, long durationMillis, double postRatio,
+			int clients, int connections) throws Exception {
+		List<LoadGeneratorVerticle> generators = new ArrayList<>();
+		List<String> deploymentIds = new ArrayList<>();
+		for (int i = 0; i < clients; i++) {
+			LoadGeneratorVerticle generator = new LoadGeneratorVerticle(port, rate / clients, durationMillis, postRatio,
+					connections);
+			generators.add(generator);
+			deploymentIds.add(LoadGenerator.<String>await(handler -> vertx.deployVerticle(generator, handler)));
+		}
+		LoadStepResult result = null;
+		long timeoutMillis = durationMillis + LoadGeneratorVerticle.REQUEST_TIMEOUT_MILLIS * 2;
+		for (LoadGeneratorVerticle generator : generators) {
+			LoadStepResult generatorResult = generator.getResult().get(timeoutMillis, TimeUnit.MILLISECONDS);
+			if (result == null) {
+				result = generatorResult;
+			} else {
+				result.merge(generatorResult);
+			}
+		}
+		for (String deploymentId : deploymentIds) {
+			LoadGenerator.<Void>await(handler -> vertx.undeploy(deploymentId, handler));
+		}
+		return result;
+	}
+
+	static boolean isSustained(LoadStepResult result, double sloMillis) {
+		return result.getErrors() == 0 && result.getThroughput() >= result.getRate() * SUSTAINED_THROUGHPUT_RATIO
+				&& result.getLatencyMillis(99) <= sloMillis;
+	}
+
+	private static String formatStep(LoadStepResult result) {
+		return String.format(Locale.ROOT, "%10.0f %12.0f %8d %10.3f %10.3f %10.3f %10.3f", result.getRate(),
+				result.getThroughput(), result.getErrors(), result.getLatencyMillis(50), result.getLatencyMillis(99),
+				result.getLatencyMillis(99.9), result.getLatencyMillis(100));
+	}
+
+	private static String formatReport(List<LoadStepResult> results, double sloMillis) {
+		StringBuilder report = new StringBuilder();
+		report.append("Latencies in ms , measured from the scheduled send time (corrected for coordinated omission)\n");
+		report.append(String.format(Locale.ROOT, "%10s %12s %8s %10s %10s %10s %10s%n", "rate/s", "achieved/s", "errors",
+				"p50", "p99", "p99.9", "max"));
+		double sustainable = 0;
+		for (LoadStepResult result : results) {
+			report.append(formatStep(result)).append('\n');
+			if (isSustained(result, sloMillis)) {
+				sustainable = Math.max(sustainable, result.getRate());
+			}
+		}
+		report.append(String.format(Locale.ROOT, "Max sustainable throughput: %.0f requests/s (no errors , p99 <= %.1f ms)%n",
+				sustainable, sloMillis));
+		LoadStepResult last = results.get(results.size() - 1);
+		report.append(String.format(Locale.ROOT, "Last step by type: POST p99 %.3f ms (%d requests) , GET p99 %.3f ms (%d requests)%n",
+				last.getPostLatency().getValueAtPercentile(99) / 1000.0, last.getPostLatency().getTotalCount(),
+				last.getGetLatency().getValueAtPercentile(99) / 1000.0, last.getGetLatency().getTotalCount()));
+		return report.toString();
+	}
+
+	private static <T> T await(Consumer<Handler<AsyncResult<T>>> operation) throws Exception {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		operation.accept(result -> {
+			if (result.succeeded()) {
+				future.complete(result.result());
+			} else {
+				future.completeExceptionally(result.cause());
+			}
+		});
+		return future.get(DEPLOY_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+	}
+}
@@ -0,0 +1,151 @@
+package com.stats.restverticle;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpClientRequest;
+
+/**
+ * Open loop load generator , sends requests on a fixed schedule no matter how fast the server answers. The latency of
+ * a request is measured from the time it was scheduled to be sent , not from when it was actually sent , so a server
+ * (or a generator) that falls behind shows up in the histogram instead of silently lowering the rate (coordinated
+ * omission).
+ */
+public class LoadGeneratorVerticle extends AbstractVerticle {
+
+	/**
+	 * Latencies above are recorded as this value
+	 */
+	static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+	static final int SIGNIFICANT_DIGITS = 3;
+	static final long REQUEST_TIMEOUT_MILLIS = 10000;
+
+	private final int mPort;
+	private final double mRate;
+	private final long mDurationMillis;
+	private final double mPostRatio;
+	private final int mConnections;
+	private final CompletableFuture<LoadStepResult> mResult = new CompletableFuture<>();
+	private final Histogram mPostLatency = new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+	private final Histogram mGetLatency = new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+
+	private HttpClient mClient;
+	private long mID;
+	private long mStartNanos;
+	private long mLastCompletionNanos;
+	private long mTotal;
+	private long mSent;
+	private long mOutstanding;
+	private long mErrors;
+
+	/**
+	 * @param port - port of the REST API
+	 * @param rate - requests per second sent by this verticle
+	 * @param durationMillis - time over which the requests are scheduled
+	 * @param postRatio - share of POST /transactions , the rest is GET /statistics
+	 * @param connections - maximum number of connections of this verticle
+	 */
+	public LoadGeneratorVerticle(int port, double rate, long durationMillis, double postRatio, int connections) {
+		mPort = port;
+		mRate = rate;
+		mDurationMillis = durationMillis;
+		mPostRatio = postRatio;
+		mConnections = connections;
+	}
+
+	/**
+	 * Invoked when this verticle is deployed. (Life cycle method to start the verticle)
+	 */
+	@Override
+	public void start() throws Exception {
+		// requests beyond the pool wait in the client queue , that wait is part of their latency
+		mClient = vertx.createHttpClient(new HttpClientOptions().setDefaultHost("localhost").setDefaultPort(mPort)
+				.setMaxPoolSize(mConnections).setKeepAlive(true));
+		mTotal = (long) (mRate * mDurationMillis / 1000);
+		mStartNanos = System.nanoTime();
+		mLastCompletionNanos = mStartNanos;
+		// the timer is coarser than the schedule , every tick sends all requests that are due (late ones included)
+		mID = vertx.setPeriodic(1, id -> sendDue());
+	}
+
+	@Override
+	public void stop() throws Exception {
+		vertx.cancelTimer(mID);
+		mClient.close();
+	}
+
+	/**
+	 * @return completed once all scheduled requests were answered or failed
+	 */
+	public CompletableFuture<LoadStepResult> getResult() {
+		return mResult;
+	}
+
+	private void sendDue() {
+		long now = System.nanoTime();
+		while (mSent < mTotal) {
+			long intended = mStartNanos + (long) (mSent * 1e9 / mRate);
+			if (intended > now) {
+				break;
+			}
+			send(intended);
+			mSent++;
+		}
+		if (mSent == mTotal) {
+			vertx.cancelTimer(mID);
+			checkCompleted();
+		}
+	}
+
+	private void send(long intended) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		boolean post = random.nextDouble() < mPostRatio;
+		boolean[] completed = new boolean[1];
+		HttpClientRequest request = post ? mClient.post(RestAPIVerticle.ADD_TRANSACTION_END_POINT)
+				: mClient.get(RestAPIVerticle.GET_STATS_END_POINT);
+		request.setTimeout(REQUEST_TIMEOUT_MILLIS);
+		request.handler(response -> response.bodyHandler(body -> {
+			if (!completed[0]) {
+				completed[0] = true;
+				completed(post, intended, response.statusCode() / 100 == 2);
+			}
+		}));
+		request.exceptionHandler(e -> {
+			if (!completed[0]) {
+				completed[0] = true;
+				completed(post, intended, false);
+			}
+		});
+		mOutstanding++;
+		if (post) {
+			request.putHeader(RestAPIVerticle.CONTENT_TYPE, RestAPIVerticle.APPLICATION_JSON_CHARSET_UTF_8)
+					.end("{\"amount\":" + random.nextInt(100000) / 100.0 + ",\"timestamp\":" + System.currentTimeMillis() + "}");
+		} else {
+			request.end();
+		}
+	}
+
+	private void completed(boolean post, long intended, boolean succeeded) {
+		mLastCompletionNanos = System.nanoTime();
+		long latencyMicros = (mLastCompletionNanos - intended) / 1000;
+		(post ? mPostLatency : mGetLatency).recordValue(Math.min(latencyMicros, HIGHEST_TRACKABLE_MICROS));
+		if (!succeeded) {
+			mErrors++;
+		}
+		mOutstanding--;
+		checkCompleted();
+	}
+
+	private void checkCompleted() {
+		if (mSent == mTotal && mOutstanding == 0 && !mResult.isDone()) {
+			mResult.complete(new LoadStepResult(mRate, mTotal, mErrors, mLastCompletionNanos - mStartNanos, mPostLatency,
+					mGetLatency));
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package com.stats.restverticle;
+
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Requests , errors and latencies of one rate step of the load generator , results of several generators are merged
+ */
+public class LoadStepResult {
+
+	private double mRate;
+	private long mRequests;
+	private long mErrors;
+	private long mElapsedNanos;
+	private final Histogram mPostLatency;
+	private final Histogram mGetLatency;
+
+	/**
+	 * @param rate - scheduled requests per second
+	 * @param requests - number of requests sent
+	 * @param errors - requests that failed , timed out or were answered with a non 2xx status
+	 * @param elapsedNanos - time from the first scheduled request to the last answer
+	 * @param postLatency - latencies of POST /transactions in micros
+	 * @param getLatency - latencies of GET /statistics in micros
+	 */
+	public LoadStepResult(double rate, long requests, long errors, long elapsedNanos, Histogram postLatency,
+			Histogram getLatency) {
+		mRate = rate;
+		mRequests = requests;
+		mErrors = errors;
+		mElapsedNanos = elapsedNanos;
+		mPostLatency = postLatency.copy();
+		mGetLatency = getLatency.copy();
+	}
+
+	/**
+	 * Adds the requests and latencies of a generator that ran the same step in parallel
+	 * @param other
+	 */
+	public void merge(LoadStepResult other) {
+		mRate += other.mRate;
+		mRequests += other.mRequests;
+		mErrors += other.mErrors;
+		mElapsedNanos = Math.max(mElapsedNanos, other.mElapsedNanos);
+		mPostLatency.add(other.mPostLatency);
+		mGetLatency.add(other.mGetLatency);
+	}
+
+	public double getRate() {
+		return mRate;
+	}
+
+	public long getRequests() {
+		return mRequests;
+	}
+
+	public long getErrors() {
+		return mErrors;
+	}
+
+	/**
+	 * @return successful requests per second
+	 */
+	public double getThroughput() {
+		return mElapsedNanos == 0 ? 0 : (mRequests - mErrors) * 1e9 / mElapsedNanos;
+	}
+
+	public Histogram getPostLatency() {
+		return mPostLatency;
+	}
+
+	public Histogram getGetLatency() {
+		return mGetLatency;
+	}
+
+	/**
+	 * @return latencies of all requests in micros
+	 */
+	public Histogram getLatency() {
+		Histogram latency = mPostLatency.copy();
+		latency.add(mGetLatency);
+		return latency;
+	}
+
+	/**
+	 * @param percentile - e.g 99.9
+	 * @return latency of all requests at the percentile in millis
+	 */
+	public double getLatencyMillis(double percentile) {
+		return getLatency().getValueAtPercentile(percentile) / (double) TimeUnit.MILLISECONDS.toMicros(1);
+	}
+}
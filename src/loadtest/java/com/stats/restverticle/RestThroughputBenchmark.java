@@ -0,0 +1,95 @@
+package com.stats.restverticle;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.stats.restservice.external.services.IStatisticsService;
+import com.stats.restservice.internal.services.StatisticsOptions;
+import com.stats.restservice.internal.services.StatisticsServiceImpl;
+import com.stats.restservice.internal.services.TransactionServiceImpl;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Closed loop scaling test of the REST API. Deploys 1 , 2 , 4 ... RestAPIVerticle instances (up to HTTP_INSTANCES ,
+ * defaults to available processors) and keeps a fixed number of POST /transactions requests in flight for a few
+ * seconds , printing the request throughput per instance count.
+ * eg: mvn -Ploadtest compile exec:java@rest-throughput -DHTTP_INSTANCES=8
+ */
+public class RestThroughputBenchmark {
+
+	private static final int PORT = 8089;
+	private static final int IN_FLIGHT = 256;
+	private static final long DURATION_MILLIS = 5000;
+
+	public static void main(String[] args) throws Exception {
+		int maxInstances = Integer.getInteger(RestVerticleDeployer.HTTP_INSTANCES, Runtime.getRuntime().availableProcessors());
+		System.out.println("instances\trequests/s");
+		for (int instances = 1; instances <= maxInstances; instances <<= 1) {
+			System.out.println(instances + "\t" + run(instances));
+		}
+	}
+
+	private static long run(int instances) throws Exception {
+		Vertx server = Vertx.vertx();
+		Vertx client = Vertx.vertx();
+		try {
+			IStatisticsService statisticsService = new StatisticsServiceImpl(new StatisticsOptions().setIngestStripes(instances));
+			CompletableFuture<Void> deployed = new CompletableFuture<>();
+			RestVerticleDeployer.deployRestVerticles(server, instances,
+					new RestVerticleOptions(new TransactionServiceImpl(statisticsService), statisticsService), new DeploymentOptions().setConfig(new JsonObject().put("HTTP_PORT", PORT)), result -> {
+						if (result.succeeded()) {
+							deployed.complete(null);
+						} else {
+							deployed.completeExceptionally(result.cause());
+						}
+					});
+			deployed.get(10, TimeUnit.SECONDS);
+
+			HttpClient httpClient = client.createHttpClient(new HttpClientOptions().setMaxPoolSize(IN_FLIGHT).setPipelining(false));
+			LongAdder completed = new LongAdder();
+			AtomicBoolean running = new AtomicBoolean(true);
+			for (int i = 0; i < IN_FLIGHT; i++) {
+				send(httpClient, completed, running);
+			}
+			Thread.sleep(DURATION_MILLIS);
+			running.set(false);
+			return completed.sum() * 1000 / DURATION_MILLIS;
+		} finally {
+			close(client);
+			// the next instance count binds the same port
+			close(server);
+		}
+	}
+
+	private static void close(Vertx vertx) throws Exception {
+		CompletableFuture<Void> closed = new CompletableFuture<>();
+		vertx.close(result -> closed.complete(null));
+		closed.get(10, TimeUnit.SECONDS);
+	}
+
+	private static void send(HttpClient httpClient, LongAdder completed, AtomicBoolean running) {
+		Buffer body = new JsonObject().put("amount", 12.3).put("timestamp", System.currentTimeMillis()).toBuffer();
+		httpClient.post(PORT, "localhost", "/transactions")
+			.putHeader("Content-Type", "application/json")
+			.handler(response -> {
+				completed.increment();
+				if (running.get()) {
+					send(httpClient, completed, running);
+				}
+			})
+			.exceptionHandler(e -> {
+				if (running.get()) {
+					send(httpClient, completed, running);
+				}
+			})
+			.end(body);
+	}
+}
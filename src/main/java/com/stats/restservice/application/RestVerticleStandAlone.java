@@ -1,39 +1,55 @@
 package com.stats.restservice.application;
 
-import com.stats.restservice.external.services.IStatisticsService;
-import com.stats.restservice.external.services.ITransactionService;
-import com.stats.restservice.internal.services.StatisticsServiceImpl;
-import com.stats.restservice.internal.services.TransactionServiceImpl;
-import com.stats.restverticle.PeriodicCleanerVerticle;
-import com.stats.restverticle.RestAPIVerticle;
-import com.stats.restverticle.RestVerticleApplicationStarter;
+import com.stats.restservice.internal.services.StatisticsOptions;
+import com.stats.restverticle.RestVerticleDeployer;
+import com.stats.restverticle.StatisticsApplication;
 
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.json.JsonObject;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
 
 /**
  * Stand Alone java class with main method to run the application from IDE directly 
+ * eg: -DHTTP_INSTANCES=4 to deploy 4 RestAPIVerticle instances (defaults to the number of cores)
+ *     -DSTATS_SNAPSHOT_INTERVAL_MS=50 to serve GET /statistics from a snapshot refreshed every 50 ms
+ *     -DSTATS_STREAM_INTERVAL_MS=1000 to push the statistics to the subscribers of GET /statistics/stream every second
+ *     -DSTATS_WINDOWS=1s,10s,60s,5m to serve GET /statistics?window=10s etc
+ *     -DSTATS_INGEST_LOG_DIR=/var/lib/stats to recover the live window from a write ahead log after a restart
+ *     -DSTATS_STATE_FILE=/var/lib/stats/state.bin to save the window on shutdown and restore it on startup
+ * Every configuration key of the README can be given as system property or environment variable , the application is
+ * deployed by the same bootstrap as the launcher (StatisticsApplication)
  */
 public class RestVerticleStandAlone extends AbstractVerticle {
 	
+	private static final Logger logger = LoggerFactory.getLogger(RestVerticleStandAlone.class);
+	
 	public static void main(String[] args) {
-		Vertx vertx = Vertx.vertx();
-		Logger logger = LoggerFactory.getLogger(RestVerticleApplicationStarter.class);
-		
-		IStatisticsService statService = new StatisticsServiceImpl();
-		ITransactionService transactionService = new TransactionServiceImpl(statService);
-		logger.info("Transaction and Statistics Services initialized successfully");
-		
-		RestAPIVerticle restVerticle = new RestAPIVerticle(transactionService , statService);
-		logger.info("deploying RestAPIVerticle - Event loop initiating...");
-		
-		PeriodicCleanerVerticle cleanerVerticle = new PeriodicCleanerVerticle(statService);
-		logger.info("deploying PeriodicCleanerVerticle - Periodic Event loop initiating...");
-		
-		vertx.deployVerticle(restVerticle);
-		vertx.deployVerticle(cleanerVerticle);
-		logger.info("Successfully deployed all verticles at localhost:8080");
+		JsonObject config = StatisticsApplication.resolveConfig(new JsonObject());
+		if (config.getBoolean(StatisticsOptions.STATS_CLUSTER, false)) {
+			// the cluster manager is looked up on the classpath , e.g vertx-hazelcast
+			Vertx.clusteredVertx(new VertxOptions(), result -> {
+				if (result.succeeded()) {
+					deploy(result.result(), config);
+				} else {
+					logger.error("Failed to join the cluster " + result.cause());
+				}
+			});
+		} else {
+			deploy(Vertx.vertx(), config);
+		}
+	}
+	
+	private static void deploy(Vertx vertx, JsonObject config) {
+		StatisticsApplication.deploy(vertx, config, ready -> {
+			if (ready.succeeded()) {
+				RestVerticleDeployer.closeOnShutdown(vertx, ready.result());
+			} else {
+				logger.error("Failed to deploy the application " + ready.cause());
+				vertx.close();
+			}
+		});
 	}
 }
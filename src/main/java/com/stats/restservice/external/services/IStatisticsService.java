@@ -1,8 +1,10 @@
 package com.stats.restservice.external.services;
 
+import java.util.List;
 import java.util.Map;
 
 import com.stats.restservice.transaction.ITransaction;
+import com.stats.restservice.transaction.TransactionBatch;
 
 /**
  *  Interface exposed to outside world to fetch the Statistics and to cleanse the older transactions
@@ -11,10 +13,43 @@ public interface IStatisticsService {
 
 	/**
 	 * API to fetch that calculates , computes the transaction statistics in the past 60 seconds 
-	 * @return the statistics map with metrics
+	 * @return the statistics map with metrics , sum , avg , max , min , count and optionally p50 , p95 , p99
 	 */
 	Map<String, Number> getStatistics();
 
+	/**
+	 * API to fetch the transaction statistics of one of the configured windows
+	 * @param windowMillis - length of the window , one of {@link #getWindows()}
+	 * @return the statistics map with metrics
+	 * @throws IllegalArgumentException if the window is not configured
+	 */
+	Map<String, Number> getStatistics(long windowMillis);
+
+	/**
+	 * API to fetch the transaction statistics of a single key in one of the configured windows
+	 * @param key - merchant , currency , account etc the transactions were computed with
+	 * @param windowMillis - length of the window , one of {@link #getWindows()}
+	 * @return the statistics map with metrics , empty statistics for unknown or evicted keys
+	 * @throws IllegalArgumentException if the window is not configured
+	 */
+	Map<String, Number> getStatistics(String key, long windowMillis);
+
+	/**
+	 * @param amount
+	 * @return true if the amount can be stored , false for amounts too large for the fixed point scale
+	 */
+	boolean isAmountSupported(double amount);
+
+	/**
+	 * @return the configured window lengths in millis , ascending
+	 */
+	List<Long> getWindows();
+
+	/**
+	 * @return length of the longest window , transactions older than this are not stored
+	 */
+	long getRetentionMillis();
+
 	/**
 	 * API to process/store the transaction  
 	 * @param {@link ITransaction}
@@ -22,8 +57,38 @@ public interface IStatisticsService {
 	void computeTransaction(ITransaction transaction);
 
 	/**
-	 * API to delete the expired transactions
+	 * API to process/store the transaction from primitive values , allocation free ingest path
+	 * @param amount
+	 * @param timestamp - epoch millis of the transaction
+	 */
+	void computeTransaction(double amount, long timestamp);
+
+	/**
+	 * API to process/store the transaction from primitive values , also counted in the statistics of its key
+	 * @param amount
+	 * @param timestamp - epoch millis of the transaction
+	 * @param key - null if the transaction has no key
+	 */
+	void computeTransaction(double amount, long timestamp, String key);
+
+	/**
+	 * API to process/store a whole batch of validated transactions in one call
+	 * @param {@link TransactionBatch}
+	 */
+	void computeTransactions(TransactionBatch batch);
+
+	/**
+	 * API to delete the expired transactions , incremental - a call only clears the buckets that expired since the
+	 * previous call and a bounded number of idle keys , so it is cheap enough for every tick of the cleaner
 	 * Usage: Internal - Used by PeriodicCleanerVerticle 
 	 */
 	void removeStaleTransactions();
+
+	/**
+	 * API to release the resources of the service , forces the ingest log to disk and saves the state file if
+	 * configured
+	 * Usage: Internal - Used by the bootstrap (RestVerticleApplicationStarter , RestVerticleStandAlone) once all verticles
+	 * are undeployed , so no transaction is ingested after the state is saved
+	 */
+	void close();
 }
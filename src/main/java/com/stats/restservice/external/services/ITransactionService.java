@@ -3,6 +3,10 @@ package com.stats.restservice.external.services;
 import java.util.Optional;
 import java.util.function.Supplier;
 
+import com.stats.restservice.transaction.TransactionBatch;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
 import io.vertx.core.json.JsonObject;
 
 /**
@@ -17,4 +21,30 @@ public interface ITransactionService {
 	 */
 	Optional<Boolean> unMarshallTransactionData(Supplier<JsonObject> jsonData);
 	
+	/**
+	 * API to pre-process the raw transaction json body , fields are read directly from the bytes.
+	 * Same outcome as {@link #unMarshallTransactionData(Supplier)} for the same body.
+	 * @param body
+	 * @return - Optional about the status of the operation 
+	 */
+	Optional<Boolean> unMarshallTransactionData(Buffer body);
+	
+	/**
+	 * Same as {@link #unMarshallTransactionData(Buffer)} , unless a transaction with the same idempotency key was
+	 * accepted before. Then the body is not processed again and the request is answered as accepted.
+	 * @param body
+	 * @param idempotencyKey - key given by the client for the transaction and all its retries , null if none
+	 * @return - Optional about the status of the operation 
+	 */
+	Optional<Boolean> unMarshallTransactionData(Buffer body, String idempotencyKey);
+	
+	/**
+	 * API to pre-process a batch of transactions , given either as a json array or as newline delimited json.
+	 * Every item is validated like a single transaction and the accepted ones are stored in one call.
+	 * @param body
+	 * @return - batch with the stored transactions and the numbers of accepted and rejected items
+	 * @throws DecodeException if the json array itself is malformed
+	 */
+	TransactionBatch unMarshallTransactionBatch(Buffer body);
+	
 }
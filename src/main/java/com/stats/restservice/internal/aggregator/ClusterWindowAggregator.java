@@ -0,0 +1,162 @@
+package com.stats.restservice.internal.aggregator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Window aggregator of a node of a cluster , every node only ingests its share of the transactions.
+ *
+ * The node periodically encodes the live buckets of its local aggregator ({@link #encodePartials()} , count , sum ,
+ * min , max and sketch per bucket , never raw transactions) and the other nodes keep the latest partials of every
+ * node in a ring of their own ({@link #mergePartials(String, byte[])}). Summaries combine the local buckets with
+ * the rings of the other nodes , so every node answers with the global window , lagging by at most one publish
+ * interval for the transactions of the other nodes.
+ *
+ * Partials replace the previous ones of the same node , so a lost or duplicated message costs no correctness ,
+ * and nodes that stopped publishing are dropped after the node timeout.
+ */
+public class ClusterWindowAggregator implements IWindowAggregator {
+
+	private final IWindowAggregator mLocal;
+	private final long mWindowMillis;
+	private final long mResolutionMillis;
+	private final double mQuantileAccuracy;
+	private final int mAmountScale;
+	private final long mNodeTimeoutMillis;
+	private final LongSupplier mClock;
+	private final Map<String, RemoteNode> mRemoteNodes = new ConcurrentHashMap<>();
+
+	/**
+	 * @param local - aggregator of the transactions of this node
+	 * @param windowMillis - length of the window of the local aggregator
+	 * @param resolutionMillis - resolution of the local aggregator
+	 * @param quantileAccuracy - quantile accuracy of the local aggregator , NO_QUANTILES if none
+	 * @param amountScale - amount scale of the local aggregator , FLOATING_POINT if none
+	 * @param nodeTimeoutMillis - nodes whose partials are older than this are left out
+	 * @param clock - source of current epoch millis
+	 */
+	public ClusterWindowAggregator(IWindowAggregator local, long windowMillis, long resolutionMillis, double quantileAccuracy,
+			int amountScale, long nodeTimeoutMillis, LongSupplier clock) {
+		mLocal = local;
+		mWindowMillis = windowMillis;
+		mResolutionMillis = resolutionMillis;
+		mQuantileAccuracy = quantileAccuracy;
+		mAmountScale = amountScale;
+		mNodeTimeoutMillis = nodeTimeoutMillis;
+		mClock = clock;
+	}
+
+	@Override
+	public boolean add(long timestamp, double amount) {
+		return mLocal.add(timestamp, amount);
+	}
+
+	@Override
+	public WindowSummary summary() {
+		WindowSummary summary = mLocal.summary();
+		long oldest = mClock.getAsLong() - mNodeTimeoutMillis;
+		for (RemoteNode node : mRemoteNodes.values()) {
+			if (node.mReceived >= oldest) {
+				node.mBuckets.mergeInto(summary);
+			}
+		}
+		return summary;
+	}
+
+	@Override
+	public WindowSummary summary(long windowMillis) {
+		WindowSummary summary = mLocal.summary(windowMillis);
+		long oldest = mClock.getAsLong() - mNodeTimeoutMillis;
+		for (RemoteNode node : mRemoteNodes.values()) {
+			if (node.mReceived >= oldest) {
+				node.mBuckets.mergeInto(summary, windowMillis);
+			}
+		}
+		return summary;
+	}
+
+	/**
+	 * Expires the local buckets and drops the nodes that stopped publishing
+	 */
+	@Override
+	public void expire() {
+		mLocal.expire();
+		long oldest = mClock.getAsLong() - mNodeTimeoutMillis;
+		for (Iterator<RemoteNode> nodes = mRemoteNodes.values().iterator(); nodes.hasNext();) {
+			if (nodes.next().mReceived < oldest) {
+				nodes.remove();
+			}
+		}
+	}
+
+	/**
+	 * Only the local buckets are written , the other nodes publish their own again after a restart
+	 */
+	@Override
+	public void writeTo(DataOutput out) throws IOException {
+		mLocal.writeTo(out);
+	}
+
+	@Override
+	public int readFrom(DataInput in) throws IOException {
+		return mLocal.readFrom(in);
+	}
+
+	/**
+	 * @return the live buckets of this node , to be published to the other nodes
+	 */
+	public byte[] encodePartials() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+		try {
+			mLocal.writeTo(new DataOutputStream(bytes));
+		} catch (IOException e) {
+			// not thrown by an in memory stream
+			throw new UncheckedIOException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Replaces the partials of another node with the ones it published
+	 * @param node - id of the publishing node
+	 * @param partials - as encoded by {@link #encodePartials()} on that node
+	 * @throws IOException if the partials are corrupt or the node runs another resolution / amount scale
+	 */
+	public void mergePartials(String node, byte[] partials) throws IOException {
+		SlidingWindowAggregator buckets = new SlidingWindowAggregator(mWindowMillis, mResolutionMillis, mQuantileAccuracy,
+				mAmountScale, mClock);
+		buckets.readFrom(new DataInputStream(new ByteArrayInputStream(partials)));
+		mRemoteNodes.put(node, new RemoteNode(buckets, mClock.getAsLong()));
+	}
+
+	/**
+	 * @return number of other nodes whose partials are kept
+	 */
+	public int getRemoteNodeCount() {
+		return mRemoteNodes.size();
+	}
+
+	/**
+	 * Latest partials of another node , immutable once published in the map
+	 */
+	private static final class RemoteNode {
+
+		private final SlidingWindowAggregator mBuckets;
+		private final long mReceived;
+
+		RemoteNode(SlidingWindowAggregator buckets, long received) {
+			mBuckets = buckets;
+			mReceived = received;
+		}
+	}
+}
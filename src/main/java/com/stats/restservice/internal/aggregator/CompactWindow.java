@@ -0,0 +1,161 @@
+package com.stats.restservice.internal.aggregator;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Sliding window of a single key. Only the non empty buckets are kept , as a deque ordered by epoch inside one
+ * primitive array (epoch , count , sum , min , max per bucket) , so a sparse key costs a few dozen bytes instead
+ * of a full ring. The array grows by doubling up to the number of buckets of the window.
+ *
+ * Transactions mostly arrive in order , so adding is O(1) at the tail , older epochs are searched from the tail.
+ * In fixed point mode (unit factor other than 0) the sum is kept as a long of units , otherwise as double bits.
+ * Not thread safe , guarded by the segment of KeyedWindowAggregator that owns it.
+ */
+final class CompactWindow {
+
+	private static final int STRIDE = 5;
+	private static final int EPOCH = 0;
+	private static final int COUNT = 1;
+	private static final int SUM = 2;
+	private static final int MIN = 3;
+	private static final int MAX = 4;
+
+	private long[] mSlots = new long[2 * STRIDE];
+	private int mHead;
+	private int mSize;
+
+	/**
+	 * Adds an amount to the bucket of the given epoch , the caller expires old buckets first
+	 * @param epoch
+	 * @param amount
+	 * @param unitFactor - units per 1.0 of amount , 0 for floating point sums
+	 */
+	void add(long epoch, double amount, double unitFactor) {
+		long units = 0;
+		if (unitFactor != 0) {
+			units = Math.round(amount * unitFactor);
+			amount = units / unitFactor;
+		}
+		int position = mSize - 1;
+		while (position >= 0 && mSlots[offset(position) + EPOCH] > epoch) {
+			position--;
+		}
+		if (position >= 0 && mSlots[offset(position) + EPOCH] == epoch) {
+			int offset = offset(position);
+			mSlots[offset + COUNT]++;
+			if (unitFactor != 0) {
+				mSlots[offset + SUM] += units;
+			} else {
+				mSlots[offset + SUM] = Double.doubleToRawLongBits(Double.longBitsToDouble(mSlots[offset + SUM]) + amount);
+			}
+			mSlots[offset + MIN] = Double.doubleToRawLongBits(Math.min(Double.longBitsToDouble(mSlots[offset + MIN]), amount));
+			mSlots[offset + MAX] = Double.doubleToRawLongBits(Math.max(Double.longBitsToDouble(mSlots[offset + MAX]), amount));
+			return;
+		}
+		insertAfter(position, epoch, amount);
+		if (unitFactor != 0) {
+			mSlots[offset(position + 1) + SUM] = units;
+		}
+	}
+
+	/**
+	 * Drops the buckets at or before the given epoch
+	 * @param expiredEpoch
+	 */
+	void expire(long expiredEpoch) {
+		while (mSize > 0 && mSlots[offset(0) + EPOCH] <= expiredEpoch) {
+			mHead = (mHead + 1) % capacity();
+			mSize--;
+		}
+	}
+
+	/**
+	 * Combines the buckets of the epochs [oldestEpoch , newestEpoch] into the given summary
+	 */
+	void mergeInto(WindowSummary summary, long oldestEpoch, long newestEpoch, double unitFactor) {
+		for (int position = mSize - 1; position >= 0; position--) {
+			int offset = offset(position);
+			long epoch = mSlots[offset + EPOCH];
+			if (epoch < oldestEpoch) {
+				break;
+			}
+			if (epoch > newestEpoch) {
+				continue;
+			}
+			if (unitFactor != 0) {
+				summary.combineUnits(mSlots[offset + COUNT], mSlots[offset + SUM], unitFactor,
+						Double.longBitsToDouble(mSlots[offset + MIN]), Double.longBitsToDouble(mSlots[offset + MAX]));
+			} else {
+				summary.combine(mSlots[offset + COUNT], Double.longBitsToDouble(mSlots[offset + SUM]),
+						Double.longBitsToDouble(mSlots[offset + MIN]), Double.longBitsToDouble(mSlots[offset + MAX]));
+			}
+		}
+	}
+
+	/**
+	 * Writes the number of buckets followed by their raw slots
+	 */
+	void writeTo(DataOutput out) throws IOException {
+		out.writeInt(mSize);
+		for (int position = 0; position < mSize; position++) {
+			int offset = offset(position);
+			for (int i = 0; i < STRIDE; i++) {
+				out.writeLong(mSlots[offset + i]);
+			}
+		}
+	}
+
+	/**
+	 * Reads a window written by {@link #writeTo(DataOutput)} , the unit factor must be the same
+	 */
+	static CompactWindow readFrom(DataInput in) throws IOException {
+		int size = in.readInt();
+		if (size < 0) {
+			throw new IOException("invalid number of buckets " + size);
+		}
+		CompactWindow window = new CompactWindow();
+		window.mSlots = new long[Math.max(2, size) * STRIDE];
+		for (int i = 0; i < size * STRIDE; i++) {
+			window.mSlots[i] = in.readLong();
+		}
+		window.mSize = size;
+		return window;
+	}
+
+	boolean isEmpty() {
+		return mSize == 0;
+	}
+
+	private void insertAfter(int position, long epoch, double amount) {
+		if (mSize == capacity()) {
+			// unroll the deque into a twice as large array
+			long[] slots = new long[mSlots.length * 2];
+			for (int i = 0; i < mSize; i++) {
+				System.arraycopy(mSlots, offset(i), slots, i * STRIDE, STRIDE);
+			}
+			mSlots = slots;
+			mHead = 0;
+		}
+		// shift the newer buckets one slot towards the tail , nothing to shift in the common in order case
+		for (int i = mSize - 1; i > position; i--) {
+			System.arraycopy(mSlots, offset(i), mSlots, offset(i + 1), STRIDE);
+		}
+		mSize++;
+		int offset = offset(position + 1);
+		mSlots[offset + EPOCH] = epoch;
+		mSlots[offset + COUNT] = 1;
+		long bits = Double.doubleToRawLongBits(amount);
+		Arrays.fill(mSlots, offset + SUM, offset + MAX + 1, bits);
+	}
+
+	private int capacity() {
+		return mSlots.length / STRIDE;
+	}
+
+	private int offset(int position) {
+		return (mHead + position) % capacity() * STRIDE;
+	}
+}
@@ -0,0 +1,55 @@
+package com.stats.restservice.internal.aggregator;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Interface to aggregate transaction amounts over a sliding time window
+ */
+public interface IWindowAggregator {
+
+	/**
+	 * Adds an amount to the time bucket of the given timestamp
+	 * @param timestamp - epoch millis of the transaction
+	 * @param amount
+	 * @return false if the timestamp is already outside the window
+	 */
+	boolean add(long timestamp, double amount);
+
+	/**
+	 * Merges the buckets that are still inside the window
+	 * @return summary of count , sum , min , max of the window
+	 */
+	WindowSummary summary();
+
+	/**
+	 * Merges the buckets of the most recent part of the window
+	 * @param windowMillis - length of that part , a multiple of the resolution and at most the window length
+	 * @return summary of count , sum , min , max of that part
+	 * @throws IllegalArgumentException if the length cannot be answered from the buckets
+	 */
+	WindowSummary summary(long windowMillis);
+
+	/**
+	 * Resets the buckets that fell out of the window
+	 */
+	void expire();
+
+	/**
+	 * Writes the live buckets , so that they can be restored into an aggregator of the same resolution
+	 * after a restart
+	 * @param out
+	 * @throws IOException
+	 */
+	void writeTo(DataOutput out) throws IOException;
+
+	/**
+	 * Merges the buckets written by {@link #writeTo(DataOutput)} into this aggregator , those that fell out of
+	 * the window meanwhile are skipped
+	 * @param in
+	 * @return number of restored buckets
+	 * @throws IOException if the buckets cannot be read or were written with another resolution / amount scale
+	 */
+	int readFrom(DataInput in) throws IOException;
+}
@@ -0,0 +1,266 @@
+package com.stats.restservice.internal.aggregator;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Sliding window statistics per key (merchant , currency , account ...) for a large and unbounded set of keys.
+ *
+ * Keys are spread over segments , each an access ordered LinkedHashMap guarded by its own monitor , so ingest
+ * and lookups are O(1) and only contend with keys of the same segment. The shares of maxKeys of all segments add up
+ * to maxKeys , beyond its share a segment evicts its least recently used key. Small bounds get fewer segments , so
+ * that the hashing of the keys leaves no segment with a share too small to be useful. Keys whose window became
+ * empty are evicted by {@link #expire(int)} starting from the least recently used one , which stops at the first
+ * key still in use , so a tick costs O(evicted keys + segments) and never scans the keys that are in use.
+ *
+ * A key that was last used with an out of order timestamp can have an empty window while a key used before it
+ * still has transactions , it is then only evicted once the keys before it are. As every key before it was used
+ * earlier , that happens at most one window after its last use. Its summaries are empty meanwhile and it counts
+ * toward maxKeys , which bounds the memory either way.
+ *
+ * Every key keeps only its non empty buckets in a {@link CompactWindow} , no quantile sketches are tracked per key.
+ */
+public class KeyedWindowAggregator {
+
+	/**
+	 * Default bound of the number of keys , a key with a bucket per second of a 60 seconds window needs
+	 * a few KB , a sparse one a few hundred bytes
+	 */
+	public static final int DEFAULT_MAX_KEYS = 100000;
+	private static final int MAX_SEGMENTS = 64;
+	/**
+	 * Smallest share of maxKeys of a segment , unless maxKeys itself is smaller
+	 */
+	private static final int MIN_SEGMENT_KEYS = 16;
+
+	private final Segment[] mSegments;
+	private final int mMask;
+	private final int mBuckets;
+	private final long mResolution;
+	private final LongSupplier mClock;
+	private final double mUnitFactor;
+	/**
+	 * Segment the next bounded expiry starts with , so that a small budget still reaches every segment
+	 */
+	private int mNextSegment;
+
+	/**
+	 * @param windowMillis - length of the window , must be a multiple of the resolution
+	 * @param resolutionMillis - time covered by a single bucket
+	 * @param maxKeys - maximum number of keys kept at once
+	 * @param clock - source of current epoch millis
+	 */
+	public KeyedWindowAggregator(long windowMillis, long resolutionMillis, int maxKeys, LongSupplier clock) {
+		this(windowMillis, resolutionMillis, maxKeys, SlidingWindowAggregator.FLOATING_POINT, clock);
+	}
+
+	/**
+	 * @param windowMillis - length of the window , must be a multiple of the resolution
+	 * @param resolutionMillis - time covered by a single bucket
+	 * @param maxKeys - maximum number of keys kept at once
+	 * @param amountScale - decimal places of the fixed point sums (2 for cents) , FLOATING_POINT for double sums
+	 * @param clock - source of current epoch millis
+	 */
+	public KeyedWindowAggregator(long windowMillis, long resolutionMillis, int maxKeys, int amountScale, LongSupplier clock) {
+		if (resolutionMillis <= 0 || windowMillis < resolutionMillis || windowMillis % resolutionMillis != 0) {
+			throw new IllegalArgumentException("window " + windowMillis + " is not a multiple of resolution " + resolutionMillis);
+		}
+		if (maxKeys <= 0) {
+			throw new IllegalArgumentException("maxKeys must be positive " + maxKeys);
+		}
+		mBuckets = (int) (windowMillis / resolutionMillis);
+		mResolution = resolutionMillis;
+		mClock = clock;
+		mUnitFactor = SlidingWindowAggregator.unitFactorOf(amountScale);
+		int segments = Math.min(MAX_SEGMENTS, Integer.highestOneBit(Math.max(1, maxKeys / MIN_SEGMENT_KEYS)));
+		mSegments = new Segment[segments];
+		mMask = segments - 1;
+		for (int i = 0; i < segments; i++) {
+			// the remainder goes to the first segments , so that no key of maxKeys is lost to the division
+			mSegments[i] = new Segment(maxKeys / segments + (i < maxKeys % segments ? 1 : 0));
+		}
+	}
+
+	/**
+	 * Adds a transaction to the window of its key
+	 * @param key
+	 * @param timestamp - epoch millis of the transaction
+	 * @param amount
+	 * @return false if the transaction is older than the window
+	 */
+	public boolean add(String key, long timestamp, double amount) {
+		long currentEpoch = currentEpoch();
+		long epoch = Math.min(Math.floorDiv(timestamp, mResolution), currentEpoch);
+		if (epoch <= currentEpoch - mBuckets) {
+			return false;
+		}
+		Segment segment = segmentOf(key);
+		synchronized (segment) {
+			CompactWindow window = segment.get(key);
+			if (window == null) {
+				window = new CompactWindow();
+				segment.put(key, window);
+			}
+			window.expire(currentEpoch - mBuckets);
+			window.add(epoch, amount, mUnitFactor);
+		}
+		return true;
+	}
+
+	/**
+	 * Merges the buckets of the most recent part of the window of a key
+	 * @param key
+	 * @param windowMillis - length of that part , a multiple of the resolution and at most the window length
+	 * @return summary of count , sum , min , max , empty for unknown keys
+	 */
+	public WindowSummary summary(String key, long windowMillis) {
+		if (windowMillis <= 0 || windowMillis % mResolution != 0 || windowMillis / mResolution > mBuckets) {
+			throw new IllegalArgumentException("window " + windowMillis + " cannot be answered with " + mBuckets
+					+ " buckets of " + mResolution);
+		}
+		WindowSummary summary = new WindowSummary();
+		if (mUnitFactor != 0) {
+			summary.enableFixedPoint(mUnitFactor);
+		}
+		long currentEpoch = currentEpoch();
+		Segment segment = segmentOf(key);
+		synchronized (segment) {
+			CompactWindow window = segment.get(key);
+			if (window != null) {
+				window.mergeInto(summary, currentEpoch - windowMillis / mResolution + 1, currentEpoch, mUnitFactor);
+			}
+		}
+		return summary;
+	}
+
+	/**
+	 * Evicts the least recently used keys whose window became empty
+	 */
+	public void expire() {
+		expire(Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Evicts up to maxEvictions of the least recently used keys whose window became empty , the rest is left for
+	 * the next call so that a single call never takes long whatever the number of keys
+	 * @param maxEvictions
+	 * @return number of evicted keys
+	 */
+	public int expire(int maxEvictions) {
+		long expiredEpoch = currentEpoch() - mBuckets;
+		int evicted = 0;
+		int first = mNextSegment;
+		for (int i = 0; i < mSegments.length && evicted < maxEvictions; i++) {
+			Segment segment = mSegments[(first + i) & mMask];
+			synchronized (segment) {
+				Iterator<CompactWindow> windows = segment.values().iterator();
+				while (windows.hasNext() && evicted < maxEvictions) {
+					CompactWindow window = windows.next();
+					window.expire(expiredEpoch);
+					if (!window.isEmpty()) {
+						break;
+					}
+					windows.remove();
+					evicted++;
+				}
+			}
+			if (evicted >= maxEvictions) {
+				mNextSegment = (first + i) & mMask;
+			}
+		}
+		return evicted;
+	}
+
+	/**
+	 * Writes the non empty windows of all keys , least recently used first
+	 * @param out
+	 * @throws IOException
+	 */
+	public void writeTo(DataOutput out) throws IOException {
+		SlidingWindowAggregator.writeHeader(out, mResolution, mUnitFactor);
+		for (Segment segment : mSegments) {
+			synchronized (segment) {
+				for (Map.Entry<String, CompactWindow> entry : segment.entrySet()) {
+					if (!entry.getValue().isEmpty()) {
+						out.writeBoolean(true);
+						out.writeUTF(entry.getKey());
+						entry.getValue().writeTo(out);
+					}
+				}
+			}
+		}
+		out.writeBoolean(false);
+	}
+
+	/**
+	 * Restores the windows written by {@link #writeTo(DataOutput)} , to be called before the first transaction as
+	 * the windows of the restored keys are replaced
+	 * @param in
+	 * @return number of restored keys
+	 * @throws IOException if the windows cannot be read or were written with another resolution / amount scale
+	 */
+	public int readFrom(DataInput in) throws IOException {
+		SlidingWindowAggregator.readHeader(in, mResolution, mUnitFactor);
+		long expiredEpoch = currentEpoch() - mBuckets;
+		int restored = 0;
+		while (in.readBoolean()) {
+			String key = in.readUTF();
+			CompactWindow window = CompactWindow.readFrom(in);
+			window.expire(expiredEpoch);
+			if (!window.isEmpty()) {
+				Segment segment = segmentOf(key);
+				synchronized (segment) {
+					segment.put(key, window);
+				}
+				restored++;
+			}
+		}
+		return restored;
+	}
+
+	/**
+	 * @return number of keys currently kept
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment segment : mSegments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	private Segment segmentOf(String key) {
+		int hash = key.hashCode();
+		return mSegments[(hash ^ (hash >>> 16)) & mMask];
+	}
+
+	private long currentEpoch() {
+		return Math.floorDiv(mClock.getAsLong(), mResolution);
+	}
+
+	/**
+	 * Access ordered map with a bounded number of keys , the eldest entry is the least recently used key
+	 */
+	private static final class Segment extends LinkedHashMap<String, CompactWindow> {
+
+		private static final long serialVersionUID = 1L;
+		private final int mMaxKeys;
+
+		Segment(int maxKeys) {
+			super(16, 0.75f, true);
+			mMaxKeys = maxKeys;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CompactWindow> eldest) {
+			return size() > mMaxKeys;
+		}
+	}
+}
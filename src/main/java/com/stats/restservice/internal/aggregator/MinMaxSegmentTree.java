@@ -0,0 +1,100 @@
+package com.stats.restservice.internal.aggregator;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Segment tree over the slots of a bucket ring that keeps the min and max of every subtree , so the
+ * extremes of the whole window are read from the root and updating or clearing a slot costs O(log slots)
+ * instead of a rescan. Empty slots hold +/- infinity.
+ *
+ * Lock free - every node holds an immutable pair of extremes. A leaf is replaced by the writer of its slot (the
+ * bucket lock serializes the writers of a slot) , then every ancestor is refreshed twice with a CAS from its
+ * children. If both CASes of a refresh fail , a concurrent refresh that read the children after the leaf was
+ * replaced succeeded , so the root always ends up with the update. A new pair is only allocated when the extremes
+ * of a slot change , which after the first transactions of a bucket is rare.
+ */
+class MinMaxSegmentTree {
+
+	private static final Extremes EMPTY = new Extremes(Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY);
+
+	private final int mLeaves;
+	private final AtomicReferenceArray<Extremes> mNodes;
+
+	MinMaxSegmentTree(int slots) {
+		int leaves = Integer.highestOneBit(Math.max(slots, 1));
+		mLeaves = leaves < slots ? leaves << 1 : leaves;
+		mNodes = new AtomicReferenceArray<>(2 * mLeaves);
+		for (int node = 0; node < 2 * mLeaves; node++) {
+			mNodes.lazySet(node, EMPTY);
+		}
+	}
+
+	/**
+	 * Replaces the extremes of a slot and recomputes its ancestors , not to be called concurrently for the same slot
+	 */
+	void set(int slot, double min, double max) {
+		int node = mLeaves + slot;
+		mNodes.set(node, new Extremes(min, max));
+		for (node >>= 1; node > 0; node >>= 1) {
+			if (!refresh(node)) {
+				refresh(node);
+			}
+		}
+	}
+
+	void clear(int slot) {
+		set(slot, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY);
+	}
+
+	/**
+	 * Merges the extremes of the slots [from , to] into the given summary
+	 */
+	void combineInto(WindowSummary summary, int from, int to) {
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		for (int low = mLeaves + from, high = mLeaves + to + 1; low < high; low >>= 1, high >>= 1) {
+			if ((low & 1) == 1) {
+				Extremes extremes = mNodes.get(low++);
+				min = Math.min(min, extremes.mMin);
+				max = Math.max(max, extremes.mMax);
+			}
+			if ((high & 1) == 1) {
+				Extremes extremes = mNodes.get(--high);
+				min = Math.min(min, extremes.mMin);
+				max = Math.max(max, extremes.mMax);
+			}
+		}
+		summary.combineExtremes(min, max);
+	}
+
+	double min() {
+		return mNodes.get(1).mMin;
+	}
+
+	double max() {
+		return mNodes.get(1).mMax;
+	}
+
+	/**
+	 * @return false if a concurrent refresh replaced the node meanwhile
+	 */
+	private boolean refresh(int node) {
+		Extremes current = mNodes.get(node);
+		Extremes left = mNodes.get(2 * node);
+		Extremes right = mNodes.get(2 * node + 1);
+		// a new pair every time , even if equal , so that a concurrent refresh that read the children earlier fails
+		return mNodes.compareAndSet(node, current,
+				new Extremes(Math.min(left.mMin, right.mMin), Math.max(left.mMax, right.mMax)));
+	}
+
+	private static final class Extremes {
+
+		private final double mMin;
+		private final double mMax;
+
+		Extremes(double min, double max) {
+			mMin = min;
+			mMax = max;
+		}
+	}
+}
@@ -0,0 +1,329 @@
+package com.stats.restservice.internal.aggregator;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Mergeable quantile sketch in the spirit of DDSketch. Amounts are counted in logarithmic bins , bin i holds
+ * the magnitudes in (gamma^(i-1) , gamma^i] with gamma = (1 + a) / (1 - a) , so every quantile is returned
+ * with a relative error of at most a (the relative accuracy) of the exact amount of that rank.
+ *
+ * Positive and negative amounts have their own bins , zeros are only counted. Every side keeps at most
+ * maxBins bins , when the magnitudes span more than gamma^maxBins the smallest ones are collapsed into the
+ * lowest bin and lose the guarantee. By default maxBins is sized from the accuracy to cover a span of
+ * MAGNITUDE_SPAN (e.g cents to ten thousands) , 692 bins at 1%.
+ *
+ * The bins of a side are a dense array of longs that covers the magnitudes seen , so a sketch takes at most
+ * 2 * 8 * maxBins bytes (11 KB at 1%) , a bucket with amounts of similar magnitude a few hundred bytes. The
+ * serialized form only has the non empty bins (12 bytes each) , i.e at most one per amount.
+ *
+ * Two sketches of the same accuracy merge by adding the bin counts , which gives exactly the sketch of all
+ * their amounts. Not thread safe , guarded by the owner (bucket / summary).
+ */
+public class QuantileSketch {
+
+	public static final double DEFAULT_RELATIVE_ACCURACY = 0.01;
+
+	/**
+	 * Ratio of the largest to the smallest magnitude of a side that keeps the relative accuracy by default
+	 */
+	static final double MAGNITUDE_SPAN = 1e6;
+
+	/**
+	 * Keeps the bin indexes of infinite amounts inside the int range
+	 */
+	private static final int MAX_INDEX = 1 << 20;
+
+	private final double mRelativeAccuracy;
+	private final double mGamma;
+	private final double mLogGamma;
+	private final Bins mPositive;
+	private final Bins mNegative;
+	private long mZeroCount;
+	private long mCount;
+
+	public QuantileSketch() {
+		this(DEFAULT_RELATIVE_ACCURACY);
+	}
+
+	/**
+	 * With the bins that cover MAGNITUDE_SPAN
+	 * @param relativeAccuracy - maximum relative error of a quantile , between 0 and 1 exclusive
+	 */
+	public QuantileSketch(double relativeAccuracy) {
+		this(relativeAccuracy, maxBinsOf(relativeAccuracy));
+	}
+
+	/**
+	 * @param relativeAccuracy - maximum relative error of a quantile , between 0 and 1 exclusive
+	 * @param maxBins - maximum number of bins of either sign
+	 */
+	public QuantileSketch(double relativeAccuracy, int maxBins) {
+		if (!(relativeAccuracy > 0 && relativeAccuracy < 1) || maxBins <= 0) {
+			throw new IllegalArgumentException("invalid relative accuracy " + relativeAccuracy + " or bins " + maxBins);
+		}
+		mRelativeAccuracy = relativeAccuracy;
+		mGamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+		mLogGamma = Math.log(mGamma);
+		mPositive = new Bins(maxBins);
+		mNegative = new Bins(maxBins);
+	}
+
+	/**
+	 * Records a new amount into the sketch
+	 * @param amount
+	 */
+	public void accept(double amount) {
+		if (amount > 0) {
+			mPositive.add(indexOf(amount), 1);
+		} else if (amount < 0) {
+			mNegative.add(indexOf(-amount), 1);
+		} else {
+			mZeroCount++;
+		}
+		mCount++;
+	}
+
+	/**
+	 * Adds the counts of another sketch of the same accuracy
+	 * @param other
+	 */
+	public void merge(QuantileSketch other) {
+		if (other.mRelativeAccuracy != mRelativeAccuracy) {
+			throw new IllegalArgumentException("cannot merge sketches of accuracy " + mRelativeAccuracy + " and "
+					+ other.mRelativeAccuracy);
+		}
+		mPositive.merge(other.mPositive);
+		mNegative.merge(other.mNegative);
+		mZeroCount += other.mZeroCount;
+		mCount += other.mCount;
+	}
+
+	/**
+	 * @param quantile - between 0 and 1 , e.g 0.99 for the 99th percentile
+	 * @return estimate of the amount at the given quantile , zero if the sketch is empty
+	 */
+	public double getQuantile(double quantile) {
+		if (quantile < 0 || quantile > 1) {
+			throw new IllegalArgumentException("quantile must be between 0 and 1 " + quantile);
+		}
+		if (mCount == 0) {
+			return 0.0d;
+		}
+		long rank = (long) (quantile * (mCount - 1));
+		long seen = 0;
+		// most negative first , i.e highest magnitude of the negative bins
+		for (int index = mNegative.mMax; index >= mNegative.mMin; index--) {
+			seen += mNegative.count(index);
+			if (seen > rank) {
+				return -valueOf(index);
+			}
+		}
+		seen += mZeroCount;
+		if (seen > rank) {
+			return 0.0d;
+		}
+		for (int index = mPositive.mMin; index < mPositive.mMax; index++) {
+			seen += mPositive.count(index);
+			if (seen > rank) {
+				return valueOf(index);
+			}
+		}
+		return valueOf(mPositive.mMax);
+	}
+
+	public long getCount() {
+		return mCount;
+	}
+
+	public double getRelativeAccuracy() {
+		return mRelativeAccuracy;
+	}
+
+	/**
+	 * Clears the counts , the bin arrays are kept for reuse
+	 */
+	public void clear() {
+		mPositive.clear();
+		mNegative.clear();
+		mZeroCount = 0;
+		mCount = 0;
+	}
+
+	/**
+	 * Writes the accuracy and the non empty bins
+	 * @param out
+	 * @throws IOException
+	 */
+	void writeTo(DataOutput out) throws IOException {
+		out.writeDouble(mRelativeAccuracy);
+		out.writeLong(mZeroCount);
+		mPositive.writeTo(out);
+		mNegative.writeTo(out);
+	}
+
+	/**
+	 * Reads a sketch written by {@link #writeTo(DataOutput)}
+	 * @param in
+	 * @return the sketch
+	 * @throws IOException
+	 */
+	static QuantileSketch readFrom(DataInput in) throws IOException {
+		QuantileSketch sketch = new QuantileSketch(in.readDouble());
+		sketch.mZeroCount = in.readLong();
+		sketch.mCount = sketch.mZeroCount + sketch.mPositive.readFrom(in) + sketch.mNegative.readFrom(in);
+		return sketch;
+	}
+
+	/**
+	 * @param relativeAccuracy
+	 * @return number of bins of either sign that cover MAGNITUDE_SPAN with the given accuracy
+	 */
+	public static int maxBinsOf(double relativeAccuracy) {
+		if (!(relativeAccuracy > 0 && relativeAccuracy < 1)) {
+			throw new IllegalArgumentException("invalid relative accuracy " + relativeAccuracy);
+		}
+		double logGamma = Math.log((1 + relativeAccuracy) / (1 - relativeAccuracy));
+		// one more , the span can start anywhere inside the lowest bin
+		return (int) Math.min(MAX_INDEX, Math.ceil(Math.log(MAGNITUDE_SPAN) / logGamma) + 1);
+	}
+
+	private int indexOf(double magnitude) {
+		double index = Math.ceil(Math.log(magnitude) / mLogGamma);
+		return (int) Math.max(-MAX_INDEX, Math.min(MAX_INDEX, index));
+	}
+
+	/**
+	 * Representative of bin i , at relative distance of at most the accuracy from both bin boundaries
+	 */
+	private double valueOf(int index) {
+		return 2 * Math.pow(mGamma, index) / (mGamma + 1);
+	}
+
+	/**
+	 * Dense counts of a contiguous range of bin indexes , growing up to maxBins and collapsing the lowest
+	 * indexes into one bin beyond that
+	 */
+	private static final class Bins {
+
+		private final int mMaxBins;
+		private long[] mCounts = new long[0];
+		private int mOffset;
+		/**
+		 * Range of the indexes that may be non zero , empty when mMin > mMax
+		 */
+		private int mMin = Integer.MAX_VALUE;
+		private int mMax = Integer.MIN_VALUE;
+
+		Bins(int maxBins) {
+			mMaxBins = maxBins;
+		}
+
+		long count(int index) {
+			return mCounts[index - mOffset];
+		}
+
+		void add(int index, long count) {
+			if (mMin > mMax) {
+				ensureCapacity(index, index);
+				mMin = index;
+				mMax = index;
+			} else {
+				int lowest = Math.max(mMax, index) - mMaxBins + 1;
+				index = Math.max(index, lowest);
+				long collapsed = 0;
+				if (mMin < lowest) {
+					for (int i = mMin; i <= Math.min(mMax, lowest - 1); i++) {
+						collapsed += mCounts[i - mOffset];
+						mCounts[i - mOffset] = 0;
+					}
+					mMin = lowest;
+					mMax = Math.max(mMax, lowest);
+				}
+				ensureCapacity(Math.min(mMin, index), Math.max(mMax, index));
+				if (collapsed > 0) {
+					mCounts[lowest - mOffset] += collapsed;
+				}
+				mMin = Math.min(mMin, index);
+				mMax = Math.max(mMax, index);
+			}
+			mCounts[index - mOffset] += count;
+		}
+
+		void merge(Bins other) {
+			for (int index = other.mMin; index <= other.mMax; index++) {
+				long count = other.count(index);
+				if (count > 0) {
+					add(index, count);
+				}
+			}
+		}
+
+		/**
+		 * Writes the number of non empty bins followed by index / count pairs
+		 */
+		void writeTo(DataOutput out) throws IOException {
+			int bins = 0;
+			for (int index = mMin; index <= mMax; index++) {
+				bins += count(index) > 0 ? 1 : 0;
+			}
+			out.writeInt(bins);
+			for (int index = mMin; index <= mMax; index++) {
+				if (count(index) > 0) {
+					out.writeInt(index);
+					out.writeLong(count(index));
+				}
+			}
+		}
+
+		/**
+		 * @return total count of the bins read
+		 */
+		long readFrom(DataInput in) throws IOException {
+			long total = 0;
+			for (int bins = in.readInt(); bins > 0; bins--) {
+				int index = in.readInt();
+				long count = in.readLong();
+				add(index, count);
+				total += count;
+			}
+			return total;
+		}
+
+		void clear() {
+			if (mMin <= mMax) {
+				Arrays.fill(mCounts, mMin - mOffset, mMax - mOffset + 1, 0);
+			}
+			mMin = Integer.MAX_VALUE;
+			mMax = Integer.MIN_VALUE;
+		}
+
+		/**
+		 * Makes the array cover [min , max] , which includes the current range and spans at most maxBins
+		 */
+		private void ensureCapacity(int min, int max) {
+			if (min >= mOffset && max < mOffset + mCounts.length) {
+				return;
+			}
+			int span = max - min + 1;
+			long[] counts = mCounts;
+			long[] live = null;
+			if (mMin <= mMax) {
+				live = Arrays.copyOfRange(mCounts, mMin - mOffset, mMax - mOffset + 1);
+			}
+			if (span > counts.length) {
+				counts = new long[Math.min(mMaxBins, Math.max(span + span / 2, 16))];
+			} else {
+				Arrays.fill(counts, 0);
+			}
+			int offset = min < mOffset ? max - counts.length + 1 : min;
+			if (live != null) {
+				System.arraycopy(live, 0, counts, mMin - offset, live.length);
+			}
+			mCounts = counts;
+			mOffset = offset;
+		}
+	}
+}
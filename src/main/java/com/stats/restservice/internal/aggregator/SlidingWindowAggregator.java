@@ -0,0 +1,341 @@
+package com.stats.restservice.internal.aggregator;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.function.LongSupplier;
+
+import com.stats.restservice.utils.CustomDateTimeUtils;
+
+/**
+ * Sliding window aggregator backed by a fixed ring of time buckets. Every bucket keeps count , sum , min and max
+ * of the transactions of its time slice , so both ingest and statistics are constant time and the memory
+ * does not depend on the transaction rate.
+ * 
+ * Min and max of the window are kept in a segment tree over the ring , so expired buckets are cleared in
+ * O(log buckets) without rescanning the survivors. Expiry follows a watermark epoch : every epoch is cleared
+ * exactly once , by whichever reader or the cleaner gets there first , which makes it amortised O(1).
+ * 
+ * Entries expire with the granularity of one bucket , i.e a transaction leaves the window at most one
+ * resolution earlier than its exact age. Timestamps in the future are counted in the current bucket.
+ * 
+ * Optionally every bucket also keeps a quantile sketch , allocated on the first transaction of the slot and
+ * merged into the summary on demand. With an amount scale the buckets sum fixed point units , see {@link WindowSummary}.
+ */
+public class SlidingWindowAggregator implements IWindowAggregator {
+
+	static final long DEFAULT_WINDOW_MILLIS = CustomDateTimeUtils.DEFAULT_WINDOW_MILLIS;
+	static final long DEFAULT_RESOLUTION_MILLIS = 1000l;
+	/**
+	 * Relative accuracy that disables the quantile sketches
+	 */
+	public static final double NO_QUANTILES = 0;
+	/**
+	 * Amount scale that keeps floating point sums
+	 */
+	public static final int FLOATING_POINT = -1;
+
+	private final WindowBucket[] mBuckets;
+	private final MinMaxSegmentTree mExtremes;
+	private final long mResolution;
+	private final double mQuantileAccuracy;
+	private final double mUnitFactor;
+	private final LongSupplier mClock;
+	private final Object mExpiryLock = new Object();
+	/**
+	 * Newest epoch that has been cleared from the ring , transactions at or before it are rejected
+	 */
+	private volatile long mExpiredEpoch;
+
+	public SlidingWindowAggregator() {
+		this(DEFAULT_WINDOW_MILLIS, DEFAULT_RESOLUTION_MILLIS, System::currentTimeMillis);
+	}
+
+	/**
+	 * @param windowMillis - length of the window , must be a multiple of the resolution
+	 * @param resolutionMillis - time covered by a single bucket
+	 * @param clock - source of current epoch millis
+	 */
+	public SlidingWindowAggregator(long windowMillis, long resolutionMillis, LongSupplier clock) {
+		this(windowMillis, resolutionMillis, NO_QUANTILES, clock);
+	}
+
+	/**
+	 * @param windowMillis - length of the window , must be a multiple of the resolution
+	 * @param resolutionMillis - time covered by a single bucket
+	 * @param quantileAccuracy - relative accuracy of the quantile sketches , NO_QUANTILES to not track them
+	 * @param clock - source of current epoch millis
+	 */
+	public SlidingWindowAggregator(long windowMillis, long resolutionMillis, double quantileAccuracy, LongSupplier clock) {
+		this(windowMillis, resolutionMillis, quantileAccuracy, FLOATING_POINT, clock);
+	}
+
+	/**
+	 * @param windowMillis - length of the window , must be a multiple of the resolution
+	 * @param resolutionMillis - time covered by a single bucket
+	 * @param quantileAccuracy - relative accuracy of the quantile sketches , NO_QUANTILES to not track them
+	 * @param amountScale - decimal places of the fixed point sums (2 for cents) , FLOATING_POINT for double sums
+	 * @param clock - source of current epoch millis
+	 */
+	public SlidingWindowAggregator(long windowMillis, long resolutionMillis, double quantileAccuracy, int amountScale,
+			LongSupplier clock) {
+		if (resolutionMillis <= 0 || windowMillis < resolutionMillis || windowMillis % resolutionMillis != 0) {
+			throw new IllegalArgumentException("window " + windowMillis + " is not a multiple of resolution " + resolutionMillis);
+		}
+		mResolution = resolutionMillis;
+		mQuantileAccuracy = quantileAccuracy;
+		mUnitFactor = unitFactorOf(amountScale);
+		mClock = clock;
+		mBuckets = new WindowBucket[(int) (windowMillis / resolutionMillis)];
+		for (int i = 0; i < mBuckets.length; i++) {
+			mBuckets[i] = new WindowBucket();
+			if (mUnitFactor != 0) {
+				mBuckets[i].enableFixedPoint(mUnitFactor);
+			}
+		}
+		mExtremes = new MinMaxSegmentTree(mBuckets.length);
+		mExpiredEpoch = currentEpoch() - mBuckets.length;
+	}
+
+	@Override
+	public boolean add(long timestamp, double amount) {
+		long currentEpoch = currentEpoch();
+		long epoch = Math.min(Math.floorDiv(timestamp, mResolution), currentEpoch);
+		if (epoch <= currentEpoch - mBuckets.length) {
+			return false;
+		}
+		int slot = slotOf(epoch);
+		WindowBucket bucket = mBuckets[slot];
+		synchronized (bucket) {
+			// checked under the bucket lock so that a concurrent expiry of this slot cannot be undone
+			if (epoch <= mExpiredEpoch || epoch < bucket.mEpoch) {
+				return false;
+			}
+			if (mQuantileAccuracy != NO_QUANTILES) {
+				bucket.enableSketch(mQuantileAccuracy);
+			}
+			if (epoch != bucket.mEpoch) {
+				bucket.rotate(epoch);
+				bucket.accept(amount);
+				mExtremes.set(slot, bucket.getMin(), bucket.getMax());
+				return true;
+			}
+			double min = bucket.getMin();
+			double max = bucket.getMax();
+			bucket.accept(amount);
+			if (bucket.getMin() != min || bucket.getMax() != max) {
+				mExtremes.set(slot, bucket.getMin(), bucket.getMax());
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public WindowSummary summary() {
+		WindowSummary summary = new WindowSummary();
+		mergeNewest(summary, mBuckets.length);
+		return summary;
+	}
+
+	@Override
+	public WindowSummary summary(long windowMillis) {
+		WindowSummary summary = new WindowSummary();
+		mergeInto(summary, windowMillis);
+		return summary;
+	}
+
+	/**
+	 * Combines the live buckets into the given summary , used to merge several aggregators without copies
+	 * @param summary
+	 */
+	void mergeInto(WindowSummary summary) {
+		mergeNewest(summary, mBuckets.length);
+	}
+
+	/**
+	 * Combines the buckets of the most recent windowMillis into the given summary
+	 * @param summary
+	 * @param windowMillis
+	 */
+	void mergeInto(WindowSummary summary, long windowMillis) {
+		if (windowMillis <= 0 || windowMillis % mResolution != 0 || windowMillis / mResolution > mBuckets.length) {
+			throw new IllegalArgumentException("window " + windowMillis + " cannot be answered with " + mBuckets.length
+					+ " buckets of " + mResolution);
+		}
+		mergeNewest(summary, (int) (windowMillis / mResolution));
+	}
+
+	/**
+	 * Combines the newest buckets , their slots are contiguous on the ring (modulo wrap around) so min and max
+	 * are one or two range queries on the segment tree
+	 */
+	private void mergeNewest(WindowSummary summary, int buckets) {
+		if (mQuantileAccuracy != NO_QUANTILES) {
+			summary.enableSketch(mQuantileAccuracy);
+		}
+		if (mUnitFactor != 0) {
+			summary.enableFixedPoint(mUnitFactor);
+		}
+		long currentEpoch = currentEpoch();
+		expireUpTo(currentEpoch - mBuckets.length);
+		long oldestEpoch = currentEpoch - buckets + 1;
+		for (long epoch = oldestEpoch; epoch <= currentEpoch; epoch++) {
+			WindowBucket bucket = mBuckets[slotOf(epoch)];
+			synchronized (bucket) {
+				if (bucket.mEpoch == epoch) {
+					summary.combineTotals(bucket);
+				}
+			}
+		}
+		int from = slotOf(oldestEpoch);
+		int to = slotOf(currentEpoch);
+		if (from <= to) {
+			mExtremes.combineInto(summary, from, to);
+		} else {
+			mExtremes.combineInto(summary, from, mBuckets.length - 1);
+			mExtremes.combineInto(summary, 0, to);
+		}
+	}
+
+	@Override
+	public void expire() {
+		expireUpTo(currentEpoch() - mBuckets.length);
+	}
+
+	/**
+	 * Moves the watermark to the given epoch and clears the slots of every epoch it passes
+	 */
+	private void expireUpTo(long epoch) {
+		if (epoch <= mExpiredEpoch) {
+			return;
+		}
+		synchronized (mExpiryLock) {
+			long from = Math.max(mExpiredEpoch + 1, epoch - mBuckets.length + 1);
+			mExpiredEpoch = epoch;
+			for (long expired = from; expired <= epoch; expired++) {
+				int slot = slotOf(expired);
+				WindowBucket bucket = mBuckets[slot];
+				synchronized (bucket) {
+					if (bucket.mEpoch <= expired && bucket.getCount() > 0) {
+						bucket.rotate(Long.MIN_VALUE);
+						mExtremes.clear(slot);
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	public void writeTo(DataOutput out) throws IOException {
+		writeHeader(out);
+		writeBuckets(out);
+		out.writeBoolean(false);
+	}
+
+	@Override
+	public int readFrom(DataInput in) throws IOException {
+		readHeader(in);
+		int restored = 0;
+		while (in.readBoolean()) {
+			long epoch = in.readLong();
+			restored += restore(epoch, WindowSummary.readFrom(in)) ? 1 : 0;
+		}
+		return restored;
+	}
+
+	void writeHeader(DataOutput out) throws IOException {
+		writeHeader(out, mResolution, mUnitFactor);
+	}
+
+	void readHeader(DataInput in) throws IOException {
+		readHeader(in, mResolution, mUnitFactor);
+	}
+
+	/**
+	 * Writes every live bucket as a flag , its epoch and its summary
+	 */
+	void writeBuckets(DataOutput out) throws IOException {
+		long currentEpoch = currentEpoch();
+		for (long epoch = currentEpoch - mBuckets.length + 1; epoch <= currentEpoch; epoch++) {
+			WindowBucket bucket = mBuckets[slotOf(epoch)];
+			synchronized (bucket) {
+				if (bucket.mEpoch == epoch && bucket.getCount() > 0) {
+					out.writeBoolean(true);
+					out.writeLong(epoch);
+					bucket.writeTo(out);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Merges a bucket summary into the bucket of its epoch , sketches of another accuracy are dropped
+	 * @return false if the epoch is outside the window
+	 */
+	boolean restore(long epoch, WindowSummary summary) {
+		long currentEpoch = currentEpoch();
+		epoch = Math.min(epoch, currentEpoch);
+		if (epoch <= currentEpoch - mBuckets.length || summary.getCount() == 0) {
+			return false;
+		}
+		if (summary.getSketch() != null && summary.getSketch().getRelativeAccuracy() != mQuantileAccuracy) {
+			summary.removeSketch();
+		}
+		int slot = slotOf(epoch);
+		WindowBucket bucket = mBuckets[slot];
+		synchronized (bucket) {
+			if (epoch <= mExpiredEpoch || epoch < bucket.mEpoch) {
+				return false;
+			}
+			if (mQuantileAccuracy != NO_QUANTILES) {
+				bucket.enableSketch(mQuantileAccuracy);
+			}
+			if (epoch != bucket.mEpoch) {
+				bucket.rotate(epoch);
+			}
+			bucket.combine(summary);
+			mExtremes.set(slot, bucket.getMin(), bucket.getMax());
+		}
+		return true;
+	}
+
+	/**
+	 * Writes what restoring buckets depends on , the epochs are only meaningful for the same resolution and the
+	 * sums for the same unit factor
+	 */
+	static void writeHeader(DataOutput out, long resolution, double unitFactor) throws IOException {
+		out.writeLong(resolution);
+		out.writeDouble(unitFactor);
+	}
+
+	static void readHeader(DataInput in, long resolution, double unitFactor) throws IOException {
+		long writtenResolution = in.readLong();
+		double writtenUnitFactor = in.readDouble();
+		if (writtenResolution != resolution || writtenUnitFactor != unitFactor) {
+			throw new IOException("buckets of " + writtenResolution + " ms and unit factor " + writtenUnitFactor
+					+ " cannot be restored into buckets of " + resolution + " ms and unit factor " + unitFactor);
+		}
+	}
+
+	/**
+	 * @param amountScale - decimal places , FLOATING_POINT for none
+	 * @return units per 1.0 of amount , 0 for floating point
+	 */
+	static double unitFactorOf(int amountScale) {
+		if (amountScale == FLOATING_POINT) {
+			return 0;
+		}
+		if (amountScale < 0 || amountScale > 9) {
+			throw new IllegalArgumentException("amount scale must be between 0 and 9 " + amountScale);
+		}
+		return Math.pow(10, amountScale);
+	}
+
+	private int slotOf(long epoch) {
+		return (int) Math.floorMod(epoch, (long) mBuckets.length);
+	}
+
+	private long currentEpoch() {
+		return Math.floorDiv(mClock.getAsLong(), mResolution);
+	}
+}
@@ -0,0 +1,138 @@
+package com.stats.restservice.internal.aggregator;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Sliding window aggregator for highly concurrent ingest , in the spirit of LongAdder / Striped64.
+ * Every writer thread (typically one event loop per RestAPIVerticle instance) is handed the next stripe round robin
+ * on its first add , a complete ring of padded buckets , so up to as many writer threads as stripes never contend
+ * on a lock or cache line.
+ * Readers merge all stripes , which costs stripes * buckets and is still independent of the transaction rate.
+ */
+public class StripedWindowAggregator implements IWindowAggregator {
+
+	private final SlidingWindowAggregator[] mStripes;
+	private final int mMask;
+	private final AtomicInteger mNextStripe = new AtomicInteger();
+	/**
+	 * Stripe of the writer thread , assigned explicitly since thread ids are not guaranteed to be consecutive
+	 */
+	private final ThreadLocal<SlidingWindowAggregator> mThreadStripe;
+
+	public StripedWindowAggregator(int stripes) {
+		this(stripes, SlidingWindowAggregator.DEFAULT_WINDOW_MILLIS, SlidingWindowAggregator.DEFAULT_RESOLUTION_MILLIS,
+				System::currentTimeMillis);
+	}
+
+	/**
+	 * @param stripes - number of stripes , rounded up to the next power of two
+	 * @param windowMillis - length of the window , must be a multiple of the resolution
+	 * @param resolutionMillis - time covered by a single bucket
+	 * @param clock - source of current epoch millis
+	 */
+	public StripedWindowAggregator(int stripes, long windowMillis, long resolutionMillis, LongSupplier clock) {
+		this(stripes, windowMillis, resolutionMillis, SlidingWindowAggregator.NO_QUANTILES, clock);
+	}
+
+	/**
+	 * @param stripes - number of stripes , rounded up to the next power of two
+	 * @param windowMillis - length of the window , must be a multiple of the resolution
+	 * @param resolutionMillis - time covered by a single bucket
+	 * @param quantileAccuracy - relative accuracy of the quantile sketches , NO_QUANTILES to not track them
+	 * @param clock - source of current epoch millis
+	 */
+	public StripedWindowAggregator(int stripes, long windowMillis, long resolutionMillis, double quantileAccuracy,
+			LongSupplier clock) {
+		this(stripes, windowMillis, resolutionMillis, quantileAccuracy, SlidingWindowAggregator.FLOATING_POINT, clock);
+	}
+
+	/**
+	 * @param stripes - number of stripes , rounded up to the next power of two
+	 * @param windowMillis - length of the window , must be a multiple of the resolution
+	 * @param resolutionMillis - time covered by a single bucket
+	 * @param quantileAccuracy - relative accuracy of the quantile sketches , NO_QUANTILES to not track them
+	 * @param amountScale - decimal places of the fixed point sums (2 for cents) , FLOATING_POINT for double sums
+	 * @param clock - source of current epoch millis
+	 */
+	public StripedWindowAggregator(int stripes, long windowMillis, long resolutionMillis, double quantileAccuracy,
+			int amountScale, LongSupplier clock) {
+		if (stripes <= 0) {
+			throw new IllegalArgumentException("stripes must be positive " + stripes);
+		}
+		int size = Integer.highestOneBit(stripes);
+		size = size < stripes ? size << 1 : size;
+		mStripes = new SlidingWindowAggregator[size];
+		mMask = size - 1;
+		for (int i = 0; i < size; i++) {
+			mStripes[i] = new SlidingWindowAggregator(windowMillis, resolutionMillis, quantileAccuracy, amountScale, clock);
+		}
+		mThreadStripe = ThreadLocal.withInitial(() -> mStripes[mNextStripe.getAndIncrement() & mMask]);
+	}
+
+	@Override
+	public boolean add(long timestamp, double amount) {
+		return mThreadStripe.get().add(timestamp, amount);
+	}
+
+	@Override
+	public WindowSummary summary() {
+		WindowSummary summary = new WindowSummary();
+		for (SlidingWindowAggregator stripe : mStripes) {
+			stripe.mergeInto(summary);
+		}
+		return summary;
+	}
+
+	@Override
+	public WindowSummary summary(long windowMillis) {
+		WindowSummary summary = new WindowSummary();
+		for (SlidingWindowAggregator stripe : mStripes) {
+			stripe.mergeInto(summary, windowMillis);
+		}
+		return summary;
+	}
+
+	@Override
+	public void expire() {
+		for (SlidingWindowAggregator stripe : mStripes) {
+			stripe.expire();
+		}
+	}
+
+	/**
+	 * Writes the buckets of all stripes , restoring merges them whatever the number of stripes
+	 */
+	@Override
+	public void writeTo(DataOutput out) throws IOException {
+		mStripes[0].writeHeader(out);
+		for (SlidingWindowAggregator stripe : mStripes) {
+			stripe.writeBuckets(out);
+		}
+		out.writeBoolean(false);
+	}
+
+	@Override
+	public int readFrom(DataInput in) throws IOException {
+		mStripes[0].readHeader(in);
+		int restored = 0;
+		while (in.readBoolean()) {
+			long epoch = in.readLong();
+			restored += mStripes[restored & mMask].restore(epoch, WindowSummary.readFrom(in)) ? 1 : 0;
+		}
+		return restored;
+	}
+
+	int getStripeCount() {
+		return mStripes.length;
+	}
+
+	WindowSummary stripeSummary(int stripe) {
+		WindowSummary summary = new WindowSummary();
+		mStripes[stripe].mergeInto(summary);
+		return summary;
+	}
+}
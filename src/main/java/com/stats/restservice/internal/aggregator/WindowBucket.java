@@ -0,0 +1,22 @@
+package com.stats.restservice.internal.aggregator;
+
+/**
+ * One slot of the sliding window ring , holds the summary of all transactions of a single time bucket (epoch).
+ * Guarded by its own monitor. Padded so that neighbouring buckets (of the same or another stripe) do not share
+ * a cache line.
+ */
+class WindowBucket extends WindowSummary {
+
+	long mEpoch = Long.MIN_VALUE;
+	@SuppressWarnings("unused")
+	private long p1, p2, p3, p4, p5, p6, p7;
+
+	/**
+	 * Clears the slot and assigns it to a new epoch
+	 * @param epoch
+	 */
+	void rotate(long epoch) {
+		mEpoch = epoch;
+		reset();
+	}
+}
@@ -0,0 +1,279 @@
+package com.stats.restservice.internal.aggregator;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Count , sum , min and max of a set of amounts. The sum is compensated (Neumaier) so that merging
+ * many buckets gives the same result as summing the amounts one after another.
+ * Optionally carries a quantile sketch of the amounts , merged along with the count and sum.
+ *
+ * In fixed point mode every amount is rounded to a whole number of units (e.g cents) and the sum is a long of
+ * units , exact and independent of the order in which amounts and buckets are added.
+ */
+public class WindowSummary {
+
+	private long mCount;
+	private double mSum;
+	private double mCompensation;
+	private double mMin = Double.POSITIVE_INFINITY;
+	private double mMax = Double.NEGATIVE_INFINITY;
+	private QuantileSketch mSketch;
+	/**
+	 * Units per 1.0 of amount in fixed point mode , 0 for floating point sums
+	 */
+	private double mUnitFactor;
+	private long mUnits;
+
+	/**
+	 * Records a new amount into the summary
+	 * @param amount
+	 */
+	public void accept(double amount) {
+		if (mUnitFactor != 0) {
+			long units = toUnits(amount);
+			mUnits += units;
+			amount = units / mUnitFactor;
+		} else {
+			addToSum(amount);
+		}
+		mCount++;
+		mMin = Math.min(mMin, amount);
+		mMax = Math.max(mMax, amount);
+		if (mSketch != null) {
+			mSketch.accept(amount);
+		}
+	}
+
+	/**
+	 * Merges another summary into this one
+	 * @param other
+	 */
+	public void combine(WindowSummary other) {
+		if (other.mCount == 0) {
+			return;
+		}
+		combineTotals(other);
+		combineExtremes(other.mMin, other.mMax);
+	}
+
+	/**
+	 * Merges the totals and extremes of a bucket kept outside of a summary
+	 * @param count
+	 * @param sum
+	 * @param min
+	 * @param max
+	 */
+	void combine(long count, double sum, double min, double max) {
+		if (count == 0) {
+			return;
+		}
+		mCount += count;
+		addToSum(sum);
+		combineExtremes(min, max);
+	}
+
+	/**
+	 * Merges the totals and extremes of a fixed point bucket kept outside of a summary
+	 * @param count
+	 * @param units - sum in units
+	 * @param unitFactor - units per 1.0 of amount
+	 * @param min
+	 * @param max
+	 */
+	void combineUnits(long count, long units, double unitFactor, double min, double max) {
+		if (count == 0) {
+			return;
+		}
+		enableFixedPoint(unitFactor);
+		mCount += count;
+		mUnits += units;
+		combineExtremes(min, max);
+	}
+
+	/**
+	 * Switches an empty summary to fixed point sums
+	 * @param unitFactor - units per 1.0 of amount , e.g 100 for cents
+	 */
+	void enableFixedPoint(double unitFactor) {
+		mUnitFactor = unitFactor;
+	}
+
+	/**
+	 * @param amount
+	 * @return amount rounded to the nearest whole number of units
+	 */
+	long toUnits(double amount) {
+		return Math.round(amount * mUnitFactor);
+	}
+
+	/**
+	 * Merges only the count , sum and sketch of another summary into this one
+	 * @param other
+	 */
+	void combineTotals(WindowSummary other) {
+		if (other.mCount == 0) {
+			return;
+		}
+		mCount += other.mCount;
+		if (other.mUnitFactor != 0) {
+			enableFixedPoint(other.mUnitFactor);
+			mUnits += other.mUnits;
+		} else {
+			addToSum(other.mSum);
+			mCompensation += other.mCompensation;
+		}
+		if (other.mSketch != null) {
+			enableSketch(other.mSketch.getRelativeAccuracy());
+			mSketch.merge(other.mSketch);
+		}
+	}
+
+	/**
+	 * Starts tracking quantiles , amounts accepted from now on are recorded in a sketch. The sketch is
+	 * allocated lazily and kept across resets.
+	 * @param relativeAccuracy
+	 */
+	void enableSketch(double relativeAccuracy) {
+		if (mSketch == null) {
+			mSketch = new QuantileSketch(relativeAccuracy);
+		}
+	}
+
+	/**
+	 * Merges extremes that were tracked outside of this summary
+	 * @param min
+	 * @param max
+	 */
+	void combineExtremes(double min, double max) {
+		mMin = Math.min(mMin, min);
+		mMax = Math.max(mMax, max);
+	}
+
+	/**
+	 * Clears the summary so that the instance can be reused
+	 */
+	public void reset() {
+		mCount = 0;
+		mSum = 0;
+		mCompensation = 0;
+		mUnits = 0;
+		mMin = Double.POSITIVE_INFINITY;
+		mMax = Double.NEGATIVE_INFINITY;
+		if (mSketch != null) {
+			mSketch.clear();
+		}
+	}
+
+	public long getCount() {
+		return mCount;
+	}
+
+	public double getSum() {
+		return mUnitFactor != 0 ? mUnits / mUnitFactor : mSum + mCompensation;
+	}
+
+	/**
+	 * @return average of the amounts , zero if there are none
+	 */
+	public double getAverage() {
+		return mCount > 0 ? getSum() / mCount : 0.0d;
+	}
+
+	/**
+	 * @return smallest amount , {@link Double#POSITIVE_INFINITY} if there are none
+	 */
+	public double getMin() {
+		return mMin;
+	}
+
+	/**
+	 * @return highest amount , {@link Double#NEGATIVE_INFINITY} if there are none
+	 */
+	public double getMax() {
+		return mMax;
+	}
+
+	/**
+	 * @return sketch of the amounts , null if quantiles are not tracked
+	 */
+	public QuantileSketch getSketch() {
+		return mSketch;
+	}
+
+	/**
+	 * Writes the summary , including the sum compensation and the sketch , so that it reads back exactly
+	 * @param out
+	 * @throws IOException
+	 */
+	void writeTo(DataOutput out) throws IOException {
+		out.writeLong(mCount);
+		out.writeDouble(mUnitFactor);
+		out.writeLong(mUnits);
+		out.writeDouble(mSum);
+		out.writeDouble(mCompensation);
+		out.writeDouble(mMin);
+		out.writeDouble(mMax);
+		out.writeBoolean(mSketch != null);
+		if (mSketch != null) {
+			mSketch.writeTo(out);
+		}
+	}
+
+	/**
+	 * Reads a summary written by {@link #writeTo(DataOutput)}
+	 * @param in
+	 * @return the summary
+	 * @throws IOException
+	 */
+	static WindowSummary readFrom(DataInput in) throws IOException {
+		WindowSummary summary = new WindowSummary();
+		summary.mCount = in.readLong();
+		summary.mUnitFactor = in.readDouble();
+		summary.mUnits = in.readLong();
+		summary.mSum = in.readDouble();
+		summary.mCompensation = in.readDouble();
+		summary.mMin = in.readDouble();
+		summary.mMax = in.readDouble();
+		if (in.readBoolean()) {
+			summary.mSketch = QuantileSketch.readFrom(in);
+		}
+		return summary;
+	}
+
+	/**
+	 * Units per 1.0 of amount in fixed point mode , 0 for floating point sums
+	 */
+	double getUnitFactor() {
+		return mUnitFactor;
+	}
+
+	/**
+	 * Stops tracking quantiles , drops the sketch
+	 */
+	void removeSketch() {
+		mSketch = null;
+	}
+
+	private void addToSum(double value) {
+		double sum = mSum + value;
+		if (Math.abs(mSum) >= Math.abs(value)) {
+			mCompensation += (mSum - sum) + value;
+		} else {
+			mCompensation += (value - sum) + mSum;
+		}
+		mSum = sum;
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder("WindowSummary{");
+		sb.append("count=").append(mCount);
+		sb.append(", sum=").append(getSum());
+		sb.append(", min=").append(mMin);
+		sb.append(", max=").append(mMax);
+		sb.append('}');
+		return sb.toString();
+	}
+}
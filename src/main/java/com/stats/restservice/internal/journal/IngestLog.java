@@ -0,0 +1,426 @@
+package com.stats.restservice.internal.journal;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.zip.CRC32;
+
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+/**
+ * Append only write ahead log of the ingested transactions , so that the live window survives a restart or crash.
+ *
+ * The log is a directory of segment files named after their creation time , every segment is preallocated and
+ * memory mapped , so an append is a CRC32 and a copy of a fixed size record (24 bytes , plus the padded key of
+ * keyed transactions) into the page cache , without a system call. Appends claim the space of their record with a
+ * CAS on the write position of the segment and copy in parallel , only rolling a full segment takes the lock. A
+ * record is visible to the OS as soon as append returns , it survives a crash of the process unless a concurrent
+ * append that claimed the space before it was still copying (replay stops at the first incomplete record).
+ *
+ * Group commit - a single background thread forces the dirty segment to disk every flush interval , so a power
+ * loss costs at most that interval of transactions whatever the ingest rate. The same thread rolls a new segment
+ * once the current one covers the retention period and deletes the segments whose transactions all expired.
+ *
+ * Record layout - int header (magic , key length) , int CRC32 of the rest , long timestamp , long amount bits ,
+ * UTF-8 key padded to 8 bytes. The header is written last and replay stops at the first record whose header or
+ * CRC does not match , which is where the process stopped writing.
+ */
+public class IngestLog implements Closeable {
+
+	public static final int DEFAULT_SEGMENT_BYTES = 16 << 20;
+	public static final long DEFAULT_FLUSH_MILLIS = 10l;
+
+	static final String SEGMENT_PREFIX = "ingest-";
+	static final String SEGMENT_SUFFIX = ".log";
+
+	private static final int MAGIC = 0x57;
+	private static final int HEADER_BYTES = 8;
+	private static final int BODY_BYTES = 16;
+	/**
+	 * UTF-8 of the longest valid key (TransactionFactory.MAX_KEY_LENGTH chars , at most 3 bytes each)
+	 */
+	private static final int MAX_KEY_BYTES = 384;
+	private static final int MAX_RECORD_BYTES = recordBytes(MAX_KEY_BYTES);
+
+	private static final Logger logger = LoggerFactory.getLogger(IngestLog.class);
+
+	/**
+	 * Callback of {@link IngestLog#replay(RecordConsumer)}
+	 */
+	public interface RecordConsumer {
+		void accept(long timestamp, double amount, String key);
+	}
+
+	private final File mDirectory;
+	private final long mRetentionMillis;
+	private final int mSegmentBytes;
+	private final LongSupplier mClock;
+	private final ScheduledExecutorService mFlusher;
+
+	/**
+	 * Creation times of the closed segments , oldest first , guarded by this
+	 */
+	private final ArrayDeque<Long> mClosedSegments = new ArrayDeque<>();
+	/**
+	 * Segments found on startup , replayed by {@link #replay(RecordConsumer)}
+	 */
+	private final List<Long> mRecoveredSegments;
+	/**
+	 * Record and CRC of the appending thread , so appends share nothing but the write position
+	 */
+	private final ThreadLocal<RecordBuffer> mRecordBuffers = ThreadLocal.withInitial(RecordBuffer::new);
+	private final LongAdder mDropped = new LongAdder();
+	/**
+	 * Replaced under this , read by the appends without the lock
+	 */
+	private volatile Segment mCurrent;
+	/**
+	 * Rolled segment that still has to be forced , guarded by this
+	 */
+	private Segment mUnforced;
+	private volatile boolean mDirty;
+
+	/**
+	 * Opens the log in the given directory , the segments found there are kept for replay and appends go to a new segment
+	 * @param directory - created if missing
+	 * @param retentionMillis - transactions older than this are neither replayed nor kept
+	 * @param segmentBytes - size of a segment file
+	 * @param flushMillis - interval of the group commit , 0 to not start the background thread (the owner then calls
+	 *        {@link #maintain()})
+	 * @param clock - source of current epoch millis
+	 * @throws IOException if the directory or the first segment cannot be created
+	 */
+	public IngestLog(File directory, long retentionMillis, int segmentBytes, long flushMillis, LongSupplier clock)
+			throws IOException {
+		if (segmentBytes < 2 * MAX_RECORD_BYTES) {
+			throw new IllegalArgumentException("segment of " + segmentBytes + " bytes is too small");
+		}
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("cannot create ingest log directory " + directory);
+		}
+		mDirectory = directory;
+		mRetentionMillis = retentionMillis;
+		mSegmentBytes = segmentBytes;
+		mClock = clock;
+		mRecoveredSegments = listSegments(directory);
+		mClosedSegments.addAll(mRecoveredSegments);
+		mCurrent = createSegment();
+		if (flushMillis > 0) {
+			mFlusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "ingest-log-flusher");
+				thread.setDaemon(true);
+				return thread;
+			});
+			mFlusher.scheduleWithFixedDelay(this::maintainQuietly, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+		} else {
+			mFlusher = null;
+		}
+	}
+
+	/**
+	 * Appends a transaction , O(1) , lock free unless the segment is full and allocation free for transactions
+	 * without key
+	 * @param timestamp
+	 * @param amount
+	 * @param key - null for transactions without key
+	 * @return false if the record was dropped because no segment could be created
+	 */
+	public boolean append(long timestamp, double amount, String key) {
+		byte[] keyBytes = key == null ? null : key.getBytes(StandardCharsets.UTF_8);
+		int keyLength = keyBytes == null ? 0 : keyBytes.length;
+		if (keyLength > MAX_KEY_BYTES) {
+			throw new IllegalArgumentException("key of " + keyLength + " bytes is too long");
+		}
+		int length = recordBytes(keyLength);
+		RecordBuffer record = mRecordBuffers.get();
+		ByteBuffer body = record.mBody;
+		body.clear();
+		body.putLong(timestamp).putLong(Double.doubleToRawLongBits(amount));
+		if (keyBytes != null) {
+			body.put(keyBytes);
+		}
+		record.mCrc.reset();
+		record.mCrc.update(body.array(), 0, length - HEADER_BYTES);
+		int crc = (int) record.mCrc.getValue();
+		while (true) {
+			Segment segment = mCurrent;
+			if (segment == null) {
+				mDropped.increment();
+				return false;
+			}
+			int position = segment.mPosition.getAndAdd(length);
+			if (position + length <= mSegmentBytes) {
+				segment.write(position, body, length, crc, MAGIC << 24 | keyLength);
+				mDirty = true;
+				return true;
+			}
+			// the segment is full , the first append that finds it so rolls it and the others retry on the new one
+			synchronized (this) {
+				if (mCurrent == segment) {
+					roll();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Replays the transactions of the segments found on startup that may still be inside the retention period ,
+	 * oldest first. To be called once before the service starts ingesting.
+	 * @param consumer
+	 * @return number of replayed records
+	 * @throws IOException if a segment cannot be read
+	 */
+	public long replay(RecordConsumer consumer) throws IOException {
+		long oldest = mClock.getAsLong() - mRetentionMillis;
+		long records = 0;
+		ByteBuffer record = ByteBuffer.allocate(MAX_RECORD_BYTES);
+		CRC32 crc = new CRC32();
+		for (int i = 0; i < mRecoveredSegments.size(); i++) {
+			// a segment only holds transactions received before the next one was created
+			long end = i + 1 < mRecoveredSegments.size() ? mRecoveredSegments.get(i + 1) : mCurrent.mCreated;
+			if (end < oldest) {
+				continue;
+			}
+			MappedByteBuffer buffer;
+			try (RandomAccessFile file = new RandomAccessFile(segmentFile(mRecoveredSegments.get(i)), "r")) {
+				buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+			}
+			int position = 0;
+			while (position + HEADER_BYTES + BODY_BYTES <= buffer.limit()) {
+				int header = buffer.getInt(position);
+				int keyLength = header & 0xFFFF;
+				int length = recordBytes(keyLength);
+				if (header >>> 24 != MAGIC || keyLength > MAX_KEY_BYTES || position + length > buffer.limit()) {
+					break;
+				}
+				buffer.position(position + HEADER_BYTES);
+				buffer.get(record.array(), 0, length - HEADER_BYTES);
+				crc.reset();
+				crc.update(record.array(), 0, length - HEADER_BYTES);
+				if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+					logger.warn("Ignoring the torn tail of ingest log segment " + mRecoveredSegments.get(i));
+					break;
+				}
+				String key = keyLength == 0 ? null
+						: new String(record.array(), BODY_BYTES, keyLength, StandardCharsets.UTF_8);
+				consumer.accept(record.getLong(0), Double.longBitsToDouble(record.getLong(8)), key);
+				records++;
+				position += length;
+			}
+		}
+		return records;
+	}
+
+	/**
+	 * Group commit and housekeeping , forces the appended records to disk , rolls the current segment once it covers
+	 * the retention period and deletes the segments whose transactions all expired. Executed by the background thread.
+	 * @throws IOException
+	 */
+	public void maintain() throws IOException {
+		long now = mClock.getAsLong();
+		Segment unforced;
+		Segment current;
+		boolean dirty;
+		synchronized (this) {
+			if (mCurrent == null || now - mCurrent.mCreated >= mRetentionMillis) {
+				roll();
+			}
+			unforced = mUnforced;
+			mUnforced = null;
+			current = mCurrent;
+			dirty = mDirty;
+			mDirty = false;
+		}
+		// the forces and deletes are done outside the lock , appends go on meanwhile
+		if (unforced != null) {
+			unforced.mBuffer.force();
+		}
+		if (dirty && current != null) {
+			current.mBuffer.force();
+		}
+		truncate(now - mRetentionMillis);
+	}
+
+	/**
+	 * @return number of records dropped because no segment could be created
+	 */
+	public long getDropped() {
+		return mDropped.sum();
+	}
+
+	/**
+	 * Stops the background thread and forces the appended records to disk
+	 */
+	@Override
+	public void close() throws IOException {
+		if (mFlusher != null) {
+			mFlusher.shutdown();
+			try {
+				mFlusher.awaitTermination(1, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		Segment unforced;
+		Segment current;
+		synchronized (this) {
+			unforced = mUnforced;
+			current = mCurrent;
+			mUnforced = null;
+			mDirty = false;
+		}
+		if (unforced != null) {
+			unforced.mBuffer.force();
+		}
+		if (current != null) {
+			current.mBuffer.force();
+		}
+	}
+
+	private void maintainQuietly() {
+		try {
+			maintain();
+		} catch (Exception e) {
+			// keep the background thread alive , the next run retries
+			logger.error("Encountered exception while flushing the ingest log " + e);
+		}
+	}
+
+	/**
+	 * Closes the current segment and starts a new one , guarded by this. The new segment is created before it
+	 * replaces the current one , so concurrent appends never find no segment while it is created
+	 */
+	private void roll() {
+		Segment next = null;
+		try {
+			next = createSegment();
+		} catch (IOException e) {
+			logger.error("Cannot create an ingest log segment , dropping records until the next attempt " + e);
+		}
+		if (mCurrent != null) {
+			mClosedSegments.add(mCurrent.mCreated);
+			mUnforced = mCurrent;
+		}
+		mCurrent = next;
+	}
+
+	/**
+	 * Deletes the closed segments whose successor was created before the given time , all their transactions expired
+	 */
+	private void truncate(long oldest) {
+		while (true) {
+			long created;
+			synchronized (this) {
+				Iterator<Long> segments = mClosedSegments.iterator();
+				if (!segments.hasNext()) {
+					return;
+				}
+				segments.next();
+				Long next = segments.hasNext() ? segments.next() : mCurrent != null ? mCurrent.mCreated : null;
+				if (next == null || next >= oldest) {
+					return;
+				}
+				created = mClosedSegments.pollFirst();
+			}
+			File file = segmentFile(created);
+			if (!file.delete() && file.exists()) {
+				logger.warn("Cannot delete expired ingest log segment " + file);
+			}
+		}
+	}
+
+	private Segment createSegment() throws IOException {
+		long created = mClock.getAsLong();
+		Segment current = mCurrent;
+		Long newest = current != null ? current.mCreated : mClosedSegments.peekLast();
+		if (newest != null && created <= newest) {
+			// names must stay unique and ordered even if the clock goes backwards
+			created = newest + 1;
+		}
+		try (RandomAccessFile file = new RandomAccessFile(segmentFile(created), "rw")) {
+			// sparse preallocation , the pages are only backed once written
+			file.setLength(mSegmentBytes);
+			return new Segment(created, file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, mSegmentBytes));
+		}
+	}
+
+	private File segmentFile(long created) {
+		return new File(mDirectory, SEGMENT_PREFIX + created + SEGMENT_SUFFIX);
+	}
+
+	private static List<Long> listSegments(File directory) {
+		List<Long> segments = new ArrayList<>();
+		String[] names = directory.list();
+		if (names != null) {
+			for (String name : names) {
+				if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+					try {
+						segments.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+					} catch (NumberFormatException e) {
+						logger.warn("Ignoring unexpected file in the ingest log directory " + name);
+					}
+				}
+			}
+		}
+		Collections.sort(segments);
+		return segments;
+	}
+
+	private static int recordBytes(int keyLength) {
+		return HEADER_BYTES + BODY_BYTES + (keyLength + 7 & ~7);
+	}
+
+	/**
+	 * Mapped segment file and its write position , the position is claimed beyond the size of the segment once full
+	 */
+	private static final class Segment {
+
+		private final long mCreated;
+		private final MappedByteBuffer mBuffer;
+		private final AtomicInteger mPosition = new AtomicInteger();
+
+		Segment(long created, MappedByteBuffer buffer) {
+			mCreated = created;
+			mBuffer = buffer;
+		}
+
+		/**
+		 * Copies a record into the claimed space with absolute puts only , so concurrent writes do not interfere
+		 */
+		void write(int position, ByteBuffer body, int length, int crc, int header) {
+			// the body is a multiple of 8 bytes
+			for (int offset = 0; offset < length - HEADER_BYTES; offset += 8) {
+				mBuffer.putLong(position + HEADER_BYTES + offset, body.getLong(offset));
+			}
+			mBuffer.putInt(position + 4, crc);
+			// header last , a record without it is never replayed
+			mBuffer.putInt(position, header);
+		}
+	}
+
+	/**
+	 * Body of the record being appended and its CRC , one per appending thread
+	 */
+	private static final class RecordBuffer {
+
+		private final ByteBuffer mBody = ByteBuffer.allocate(MAX_RECORD_BYTES - HEADER_BYTES);
+		private final CRC32 mCrc = new CRC32();
+	}
+}
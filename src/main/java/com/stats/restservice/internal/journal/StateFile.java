@@ -0,0 +1,108 @@
+package com.stats.restservice.internal.journal;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Compact binary file of the aggregator state , written on shutdown and restored on startup for warm restarts.
+ *
+ * Layout - int magic , int version , payload , long CRC32 of the payload. The file is written to a temporary file
+ * that is synced and then renamed , so a reader sees either the previous or the complete new state. Reading
+ * loads the whole file and verifies the checksum before the payload is handed out , so a corrupt file is never
+ * partly restored.
+ */
+public final class StateFile {
+
+	static final int MAGIC = 0x53544154;
+	/**
+	 * Version of the layout of the payload , files of other versions are not restored
+	 */
+	static final int VERSION = 1;
+
+	private static final int HEADER_BYTES = 8;
+	private static final int TRAILER_BYTES = 8;
+
+	/**
+	 * Writes the payload of the file
+	 */
+	public interface Writer {
+		void write(DataOutput out) throws IOException;
+	}
+
+	/**
+	 * Reads the payload of the file
+	 */
+	public interface Reader {
+		void read(DataInput in) throws IOException;
+	}
+
+	private StateFile() {
+	}
+
+	/**
+	 * Atomically replaces the file with the given payload
+	 * @param file
+	 * @param writer
+	 * @throws IOException
+	 */
+	public static void write(File file, Writer writer) throws IOException {
+		File temporary = new File(file.getPath() + ".tmp");
+		try (FileOutputStream stream = new FileOutputStream(temporary)) {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			CheckedOutputStream checked = new CheckedOutputStream(out, new CRC32());
+			DataOutputStream payload = new DataOutputStream(new BufferedOutputStream(checked, 1 << 16));
+			writer.write(payload);
+			payload.flush();
+			out.writeLong(checked.getChecksum().getValue());
+			out.flush();
+			stream.getFD().sync();
+		}
+		Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Verifies and reads the file
+	 * @param file
+	 * @param reader
+	 * @return false if there is no such file
+	 * @throws IOException if the file is corrupt , of another version or the reader failed
+	 */
+	public static boolean read(File file, Reader reader) throws IOException {
+		if (!file.isFile()) {
+			return false;
+		}
+		byte[] bytes = Files.readAllBytes(file.toPath());
+		if (bytes.length < HEADER_BYTES + TRAILER_BYTES) {
+			throw new IOException("truncated state file " + file);
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		if (buffer.getInt(0) != MAGIC) {
+			throw new IOException("not a state file " + file);
+		}
+		if (buffer.getInt(4) != VERSION) {
+			throw new IOException("unsupported version " + buffer.getInt(4) + " of state file " + file);
+		}
+		int payloadBytes = bytes.length - HEADER_BYTES - TRAILER_BYTES;
+		CRC32 crc = new CRC32();
+		crc.update(bytes, HEADER_BYTES, payloadBytes);
+		if (crc.getValue() != buffer.getLong(bytes.length - TRAILER_BYTES)) {
+			throw new IOException("checksum mismatch of state file " + file);
+		}
+		reader.read(new DataInputStream(new ByteArrayInputStream(bytes, HEADER_BYTES, payloadBytes)));
+		return true;
+	}
+}
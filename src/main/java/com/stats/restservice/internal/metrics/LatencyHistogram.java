@@ -0,0 +1,77 @@
+package com.stats.restservice.internal.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of durations with fixed buckets , recorded lock free and without allocation from any thread and written
+ * in the Prometheus text format (cumulative buckets , sum and count in seconds).
+ */
+public final class LatencyHistogram {
+
+	/**
+	 * Upper bounds of the buckets in seconds , from 100 micros to 10 seconds. Durations above fall into +Inf
+	 */
+	static final double[] BUCKET_SECONDS = { 0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1,
+			0.25, 0.5, 1, 2.5, 5, 10 };
+
+	private static final long[] BUCKET_NANOS = new long[BUCKET_SECONDS.length];
+	private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	static {
+		for (int i = 0; i < BUCKET_SECONDS.length; i++) {
+			BUCKET_NANOS[i] = (long) (BUCKET_SECONDS[i] * NANOS_PER_SECOND);
+		}
+	}
+
+	/**
+	 * Count per bucket (not cumulative) , the last one is +Inf
+	 */
+	private final AtomicLongArray mCounts = new AtomicLongArray(BUCKET_NANOS.length + 1);
+	private final LongAdder mSumNanos = new LongAdder();
+
+	/**
+	 * @param nanos - duration , e.g the difference of two System.nanoTime()
+	 */
+	public void record(long nanos) {
+		int bucket = 0;
+		while (bucket < BUCKET_NANOS.length && nanos > BUCKET_NANOS[bucket]) {
+			bucket++;
+		}
+		mCounts.incrementAndGet(bucket);
+		mSumNanos.add(nanos);
+	}
+
+	/**
+	 * @return number of recorded durations
+	 */
+	public long getCount() {
+		long count = 0;
+		for (int i = 0; i < mCounts.length(); i++) {
+			count += mCounts.get(i);
+		}
+		return count;
+	}
+
+	/**
+	 * Writes the bucket , sum and count samples , the HELP and TYPE lines are up to the caller
+	 * @param out
+	 * @param name - name of the metric
+	 * @param labels - labels of the series without braces (e.g route="/statistics") , empty for none
+	 */
+	void writeTo(StringBuilder out, String name, String labels) {
+		String separator = labels.isEmpty() ? "" : ",";
+		long cumulative = 0;
+		for (int i = 0; i < mCounts.length(); i++) {
+			cumulative += mCounts.get(i);
+			String bound = i < BUCKET_SECONDS.length ? Double.toString(BUCKET_SECONDS[i]) : "+Inf";
+			out.append(name).append("_bucket{").append(labels).append(separator).append("le=\"").append(bound)
+					.append("\"} ").append(cumulative).append('\n');
+		}
+		String series = labels.isEmpty() ? "" : "{" + labels + "}";
+		out.append(name).append("_sum").append(series).append(' ').append(mSumNanos.sum() / NANOS_PER_SECOND).append('\n');
+		// the buckets are read one by one , so the count is the +Inf bucket to stay consistent with them
+		out.append(name).append("_count").append(series).append(' ').append(cumulative).append('\n');
+	}
+}
@@ -0,0 +1,307 @@
+package com.stats.restservice.internal.metrics;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import com.stats.restservice.external.services.IStatisticsService;
+
+/**
+ * Counters and histograms of the service , shared by all verticles and services of an application and exposed on
+ * GET /metrics in the Prometheus text format. Recording is lock free (LongAdder , AtomicLongArray) and does not
+ * allocate , so it is safe on the ingest path. The text is only built on a scrape.
+ */
+public class ServiceMetrics {
+
+	/**
+	 * Content type of the Prometheus text exposition format
+	 */
+	public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	/**
+	 * Why a transaction was not added to the statistics (POST /transactions answered with 204 , or an item of a batch rejected)
+	 */
+	public enum RejectReason {
+		/** Malformed json or missing / invalid amount , timestamp or key */
+		INVALID("invalid"),
+		/** Amount beyond the fixed point scale */
+		AMOUNT_OUT_OF_RANGE("amount_out_of_range"),
+		/** Timestamp older than the longest window */
+		TOO_OLD("too_old");
+
+		private final String mLabel;
+
+		RejectReason(String label) {
+			mLabel = label;
+		}
+	}
+
+	/**
+	 * Why a request was answered without being processed (429 , 503 or 413)
+	 */
+	public enum ShedReason {
+		/** Too many requests in progress */
+		IN_FLIGHT("in_flight"),
+		/** Too many statistics requests waiting for a worker thread */
+		BLOCKING_QUEUE("blocking_queue"),
+		/** Ingest rate limit */
+		RATE_LIMIT("rate_limit"),
+		/** Body larger than the limit */
+		BODY_TOO_LARGE("body_too_large");
+
+		private final String mLabel;
+
+		ShedReason(String label) {
+			mLabel = label;
+		}
+	}
+
+	/**
+	 * Routes with their own latency histogram
+	 */
+	public enum Route {
+		TRANSACTIONS("/transactions"),
+		TRANSACTIONS_BATCH("/transactions/batch"),
+		STATISTICS("/statistics"),
+		KEYED_STATISTICS("/statistics/:key"),
+		METRICS("/metrics");
+
+		private final String mPath;
+
+		Route(String path) {
+			mPath = path;
+		}
+	}
+
+	private final LongAdder mAccepted = new LongAdder();
+	private final LongAdder[] mRejected = newAdders(RejectReason.values().length);
+	private final LongAdder mParseFailures = new LongAdder();
+	private final LongAdder mDuplicates = new LongAdder();
+	private final LongAdder mUntrackedKeys = new LongAdder();
+	private final LongAdder[] mShed = newAdders(ShedReason.values().length);
+	private final LongAdder mComputed = new LongAdder();
+	private final LongAdder mCoalesced = new LongAdder();
+	private final List<Gauge> mGauges = new CopyOnWriteArrayList<>();
+	private final LatencyHistogram[] mRouteLatency = newHistograms(Route.values().length);
+	private final LatencyHistogram mCleanerRuns = new LatencyHistogram();
+	private final LatencyHistogram mBlockingWait = new LatencyHistogram();
+
+	public void transactionAccepted() {
+		mAccepted.increment();
+	}
+
+	/**
+	 * @param count - accepted items of a batch
+	 */
+	public void transactionsAccepted(int count) {
+		mAccepted.add(count);
+	}
+
+	public void transactionRejected(RejectReason reason) {
+		mRejected[reason.ordinal()].increment();
+	}
+
+	/**
+	 * A body or a line of a batch that is not json at all
+	 */
+	public void parseFailure() {
+		mParseFailures.increment();
+	}
+
+	/**
+	 * A retry of a transaction whose idempotency key was accepted before
+	 */
+	public void transactionDuplicate() {
+		mDuplicates.increment();
+	}
+
+	/**
+	 * An idempotency key that could not be remembered , the idempotency key capacities are exhausted
+	 */
+	public void idempotencyKeyUntracked() {
+		mUntrackedKeys.increment();
+	}
+
+	public void requestShed(ShedReason reason) {
+		mShed[reason.ordinal()].increment();
+	}
+
+	/**
+	 * GET /statistics that computed the statistics of its window
+	 */
+	public void statisticsComputed() {
+		mComputed.increment();
+	}
+
+	/**
+	 * GET /statistics that shared the computation of another request
+	 */
+	public void statisticsCoalesced() {
+		mCoalesced.increment();
+	}
+
+	/**
+	 * Adds a value that is read on every scrape , e.g a queue depth
+	 * @param name - name of the metric
+	 * @param help
+	 * @param value - thread safe , called from the scraping thread
+	 */
+	public void registerGauge(String name, String help, LongSupplier value) {
+		mGauges.add(new Gauge(name, help, value));
+	}
+
+	/**
+	 * @param route
+	 * @param nanos - from the request reaching the route handler to the end of the response
+	 */
+	public void recordRequest(Route route, long nanos) {
+		mRouteLatency[route.ordinal()].record(nanos);
+	}
+
+	/**
+	 * @param nanos - duration of one run of the cleaner
+	 */
+	public void recordCleanerRun(long nanos) {
+		mCleanerRuns.record(nanos);
+	}
+
+	/**
+	 * @param nanos - time a task handed to executeBlocking waited for a worker thread
+	 */
+	public void recordBlockingWait(long nanos) {
+		mBlockingWait.record(nanos);
+	}
+
+	public long getAccepted() {
+		return mAccepted.sum();
+	}
+
+	public long getRejected(RejectReason reason) {
+		return mRejected[reason.ordinal()].sum();
+	}
+
+	public long getParseFailures() {
+		return mParseFailures.sum();
+	}
+
+	public long getDuplicates() {
+		return mDuplicates.sum();
+	}
+
+	public long getUntrackedKeys() {
+		return mUntrackedKeys.sum();
+	}
+
+	public long getComputed() {
+		return mComputed.sum();
+	}
+
+	public long getCoalesced() {
+		return mCoalesced.sum();
+	}
+
+	public long getShed(ShedReason reason) {
+		return mShed[reason.ordinal()].sum();
+	}
+
+	public LatencyHistogram getRequestLatency(Route route) {
+		return mRouteLatency[route.ordinal()];
+	}
+
+	/**
+	 * @param statisticsService - for the number of transactions in every window , null to leave them out
+	 * @return all metrics in the Prometheus text exposition format
+	 */
+	public String scrape(IStatisticsService statisticsService) {
+		StringBuilder out = new StringBuilder(4096);
+		header(out, "stats_transactions_accepted_total", "counter", "Transactions added to the statistics");
+		out.append("stats_transactions_accepted_total ").append(mAccepted.sum()).append('\n');
+
+		header(out, "stats_transactions_rejected_total", "counter", "Transactions not added to the statistics by reason");
+		for (RejectReason reason : RejectReason.values()) {
+			out.append("stats_transactions_rejected_total{reason=\"").append(reason.mLabel).append("\"} ")
+					.append(mRejected[reason.ordinal()].sum()).append('\n');
+		}
+
+		header(out, "stats_parse_failures_total", "counter", "Transaction bodies or batch lines that are not valid json");
+		out.append("stats_parse_failures_total ").append(mParseFailures.sum()).append('\n');
+
+		header(out, "stats_transactions_duplicate_total", "counter", "Retries of transactions with an idempotency key accepted before");
+		out.append("stats_transactions_duplicate_total ").append(mDuplicates.sum()).append('\n');
+
+		header(out, "stats_idempotency_keys_untracked_total", "counter", "Idempotency keys not remembered because the key capacities are exhausted");
+		out.append("stats_idempotency_keys_untracked_total ").append(mUntrackedKeys.sum()).append('\n');
+
+		header(out, "stats_requests_shed_total", "counter", "Requests answered with 429 , 503 or 413 by admission control");
+		for (ShedReason reason : ShedReason.values()) {
+			out.append("stats_requests_shed_total{reason=\"").append(reason.mLabel).append("\"} ")
+					.append(mShed[reason.ordinal()].sum()).append('\n');
+		}
+
+		header(out, "stats_statistics_computed_total", "counter", "Computations of the statistics of a window for GET /statistics");
+		out.append("stats_statistics_computed_total ").append(mComputed.sum()).append('\n');
+
+		header(out, "stats_statistics_coalesced_total", "counter", "GET /statistics answered from a computation of another request");
+		out.append("stats_statistics_coalesced_total ").append(mCoalesced.sum()).append('\n');
+
+		for (Gauge gauge : mGauges) {
+			header(out, gauge.mName, "gauge", gauge.mHelp);
+			out.append(gauge.mName).append(' ').append(gauge.mValue.getAsLong()).append('\n');
+		}
+
+		if (statisticsService != null) {
+			header(out, "stats_window_transactions", "gauge", "Transactions in the window");
+			for (long window : statisticsService.getWindows()) {
+				out.append("stats_window_transactions{window_ms=\"").append(window).append("\"} ")
+						.append(statisticsService.getStatistics(window).get("count")).append('\n');
+			}
+		}
+
+		header(out, "stats_cleaner_run_seconds", "histogram", "Duration of a run of the periodic cleaner");
+		mCleanerRuns.writeTo(out, "stats_cleaner_run_seconds", "");
+
+		header(out, "stats_execute_blocking_wait_seconds", "histogram", "Time a statistics request waited for a worker thread");
+		mBlockingWait.writeTo(out, "stats_execute_blocking_wait_seconds", "");
+
+		header(out, "http_request_duration_seconds", "histogram", "Latency of the requests by route");
+		for (Route route : Route.values()) {
+			mRouteLatency[route.ordinal()].writeTo(out, "http_request_duration_seconds", "route=\"" + route.mPath + "\"");
+		}
+		return out.toString();
+	}
+
+	private static void header(StringBuilder out, String name, String type, String help) {
+		out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+	}
+
+	private static final class Gauge {
+
+		private final String mName;
+		private final String mHelp;
+		private final LongSupplier mValue;
+
+		Gauge(String name, String help, LongSupplier value) {
+			mName = name;
+			mHelp = help;
+			mValue = value;
+		}
+	}
+
+	private static LongAdder[] newAdders(int count) {
+		LongAdder[] adders = new LongAdder[count];
+		for (int i = 0; i < count; i++) {
+			adders[i] = new LongAdder();
+		}
+		return adders;
+	}
+
+	private static LatencyHistogram[] newHistograms(int count) {
+		LatencyHistogram[] histograms = new LatencyHistogram[count];
+		for (int i = 0; i < count; i++) {
+			histograms[i] = new LatencyHistogram();
+		}
+		return histograms;
+	}
+}
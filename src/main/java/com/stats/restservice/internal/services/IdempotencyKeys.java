@@ -0,0 +1,248 @@
+package com.stats.restservice.internal.services;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Idempotency keys of the accepted transactions , remembered for the retention of the statistics (a retry of a
+ * transaction that already left every window can not change them anyway).
+ *
+ * Keys are kept in two generations that each cover one retention , the older one is dropped when the current one
+ * is a retention old , so a key is remembered between one and two retentions. Every generation holds up to
+ * IDEMPOTENCY_EXACT_KEYS keys in an exact set , up to IDEMPOTENCY_FILTER_KEYS keys beyond only set the bits of a
+ * Bloom filter. The filter never takes more keys than it is sized for , so at most one in a million new keys beyond
+ * the exact ones is taken for a retry. Keys beyond both capacities are not tracked at all (fail open , the request is
+ * processed like one without a key). Every operation is O(1) and lock free except the rotation of the generations.
+ */
+public class IdempotencyKeys {
+
+	public static final String IDEMPOTENCY_EXACT_KEYS = "IDEMPOTENCY_EXACT_KEYS";
+	public static final String IDEMPOTENCY_FILTER_KEYS = "IDEMPOTENCY_FILTER_KEYS";
+
+	public static final int DEFAULT_EXACT_KEYS = 100_000;
+	public static final int DEFAULT_FILTER_KEYS = 1_000_000;
+
+	/**
+	 * False positive rate of the Bloom filter once it holds all the keys it is sized for , a false positive answers a
+	 * new transaction like a retry
+	 */
+	static final double FALSE_POSITIVE_RATE = 0.000001;
+
+	/**
+	 * Longer keys are rejected , a UUID or a hash is expected
+	 */
+	public static final int MAX_KEY_LENGTH = 255;
+
+	/**
+	 * Outcome of {@link IdempotencyKeys#add(String)}
+	 */
+	public enum Outcome {
+		/** First request with the key */
+		NEW,
+		/** The key was added before , the request is a retry */
+		RETRY,
+		/** Both capacities of the current generation are exhausted , the key is not remembered */
+		UNTRACKED
+	}
+
+	private final long mGenerationNanos;
+	private final int mExactKeys;
+	private final int mFilterKeys;
+	private final int mFilterBits;
+	private final int mHashes;
+	private volatile Generation mCurrent;
+	private volatile Generation mPrevious;
+
+	/**
+	 * With the default capacities
+	 * @param retentionMillis - time a key is remembered at least
+	 */
+	public IdempotencyKeys(long retentionMillis) {
+		this(retentionMillis, DEFAULT_EXACT_KEYS, DEFAULT_FILTER_KEYS);
+	}
+
+	/**
+	 * Reads the capacities from the configuration
+	 * @param config
+	 * @param retentionMillis - time a key is remembered at least
+	 */
+	public IdempotencyKeys(JsonObject config, long retentionMillis) {
+		this(retentionMillis,
+				config.getInteger(IDEMPOTENCY_EXACT_KEYS, DEFAULT_EXACT_KEYS),
+				config.getInteger(IDEMPOTENCY_FILTER_KEYS, DEFAULT_FILTER_KEYS));
+	}
+
+	/**
+	 * @param retentionMillis - time a key is remembered at least
+	 * @param exactKeys - keys per generation kept exactly
+	 * @param filterKeys - keys per generation beyond the exact ones the Bloom filter takes
+	 */
+	public IdempotencyKeys(long retentionMillis, int exactKeys, int filterKeys) {
+		if (retentionMillis <= 0 || exactKeys < 0 || filterKeys <= 0) {
+			throw new IllegalArgumentException("Invalid idempotency key capacity " + exactKeys + " / " + filterKeys);
+		}
+		mGenerationNanos = TimeUnit.MILLISECONDS.toNanos(retentionMillis);
+		mExactKeys = exactKeys;
+		mFilterKeys = filterKeys;
+		// optimal size and number of hashes of a Bloom filter , rounded up to whole longs
+		double bits = -filterKeys * Math.log(FALSE_POSITIVE_RATE) / (Math.log(2) * Math.log(2));
+		mFilterBits = (int) Math.min((Integer.MAX_VALUE / 64) * 64, (((long) Math.ceil(bits) + 63) / 64) * 64);
+		mHashes = Math.max(1, (int) Math.round(mFilterBits / (double) filterKeys * Math.log(2)));
+		mCurrent = new Generation(System.nanoTime());
+		mPrevious = new Generation(mCurrent.mStartNanos - mGenerationNanos);
+	}
+
+	/**
+	 * @param key
+	 * @return true if the key is a non empty string of at most MAX_KEY_LENGTH characters
+	 */
+	public static boolean isValidKey(String key) {
+		return key != null && !key.isEmpty() && key.length() <= MAX_KEY_LENGTH;
+	}
+
+	/**
+	 * Remembers the key , atomic with respect to concurrent calls with the same key. Only to be called for a
+	 * transaction that is accepted , a remembered key can not be removed again
+	 * @param key
+	 * @return RETRY if the key was remembered already , UNTRACKED if there is no room left to remember it
+	 */
+	public Outcome add(String key) {
+		Generation current = rotate();
+		long hash = hash(key);
+		Generation previous = mPrevious;
+		if (previous.contains(key, hash) || current.contains(key, hash)) {
+			return Outcome.RETRY;
+		}
+		if (current.mExactCount.incrementAndGet() <= mExactKeys) {
+			if (current.mExact.add(key)) {
+				return Outcome.NEW;
+			}
+			current.mExactCount.decrementAndGet();
+			return Outcome.RETRY;
+		}
+		current.mExactCount.decrementAndGet();
+		// a fuller filter would take more and more new keys for retries
+		if (current.mFilterCount.incrementAndGet() > mFilterKeys) {
+			current.mFilterCount.decrementAndGet();
+			return Outcome.UNTRACKED;
+		}
+		return current.put(hash) ? Outcome.NEW : Outcome.RETRY;
+	}
+
+	/**
+	 * @return bits of the Bloom filter of a generation
+	 */
+	int getFilterBits() {
+		return mFilterBits;
+	}
+
+	/**
+	 * Starts a new generation if the current one is a retention old
+	 * @return the current generation
+	 */
+	private Generation rotate() {
+		Generation current = mCurrent;
+		long now = System.nanoTime();
+		if (now - current.mStartNanos < mGenerationNanos) {
+			return current;
+		}
+		synchronized (this) {
+			current = mCurrent;
+			if (now - current.mStartNanos >= mGenerationNanos) {
+				// a generation older than two retentions has nothing worth keeping
+				mPrevious = now - current.mStartNanos < 2 * mGenerationNanos ? current : new Generation(now - mGenerationNanos);
+				current = new Generation(now);
+				mCurrent = current;
+			}
+			return current;
+		}
+	}
+
+	/**
+	 * 64 bit FNV-1a of the key , split into the two hashes of the double hashing of the Bloom filter
+	 */
+	private static long hash(String key) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < key.length(); i++) {
+			hash ^= key.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		// final avalanche , FNV alone leaves the high bits of short keys poorly mixed
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+	/**
+	 * Keys of one retention , the Bloom filter is only allocated once the exact set is full
+	 */
+	private final class Generation {
+
+		private final long mStartNanos;
+		private final Set<String> mExact = ConcurrentHashMap.newKeySet();
+		private final AtomicInteger mExactCount = new AtomicInteger();
+		private final AtomicInteger mFilterCount = new AtomicInteger();
+		private volatile AtomicLongArray mFilter;
+
+		Generation(long startNanos) {
+			mStartNanos = startNanos;
+		}
+
+		boolean contains(String key, long hash) {
+			if (mExact.contains(key)) {
+				return true;
+			}
+			AtomicLongArray filter = mFilter;
+			if (filter == null) {
+				return false;
+			}
+			int h1 = (int) hash;
+			int h2 = (int) (hash >>> 32);
+			for (int i = 0; i < mHashes; i++) {
+				int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % mFilterBits;
+				if ((filter.get(bit >>> 6) & (1L << bit)) == 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * @return true if at least one bit was not set yet , i.e the key is new
+		 */
+		boolean put(long hash) {
+			AtomicLongArray filter = filter();
+			int h1 = (int) hash;
+			int h2 = (int) (hash >>> 32);
+			boolean added = false;
+			for (int i = 0; i < mHashes; i++) {
+				int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % mFilterBits;
+				long mask = 1L << bit;
+				if ((filter.getAndAccumulate(bit >>> 6, mask, (bits, m) -> bits | m) & mask) == 0) {
+					added = true;
+				}
+			}
+			return added;
+		}
+
+		private AtomicLongArray filter() {
+			AtomicLongArray filter = mFilter;
+			if (filter == null) {
+				synchronized (this) {
+					filter = mFilter;
+					if (filter == null) {
+						filter = new AtomicLongArray(mFilterBits / 64);
+						mFilter = filter;
+					}
+				}
+			}
+			return filter;
+		}
+	}
+}
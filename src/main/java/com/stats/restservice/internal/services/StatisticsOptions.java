@@ -0,0 +1,269 @@
+package com.stats.restservice.internal.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+import com.stats.restservice.internal.aggregator.KeyedWindowAggregator;
+import com.stats.restservice.internal.aggregator.QuantileSketch;
+import com.stats.restservice.internal.aggregator.SlidingWindowAggregator;
+import com.stats.restservice.internal.journal.IngestLog;
+import com.stats.restservice.utils.CustomDateTimeUtils;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Options to tune the statistics service , can be created from the verticle / launcher json configuration
+ */
+public class StatisticsOptions {
+
+	public static final String INGEST_STRIPES = "INGEST_STRIPES";
+	public static final String STATS_WINDOWS = "STATS_WINDOWS";
+	public static final String STATS_RESOLUTION_MS = "STATS_RESOLUTION_MS";
+	public static final String STATS_QUANTILES = "STATS_QUANTILES";
+	public static final String STATS_QUANTILE_ACCURACY = "STATS_QUANTILE_ACCURACY";
+	public static final String STATS_MAX_KEYS = "STATS_MAX_KEYS";
+	public static final String STATS_AMOUNT_SCALE = "STATS_AMOUNT_SCALE";
+	public static final String STATS_INGEST_LOG_DIR = "STATS_INGEST_LOG_DIR";
+	public static final String STATS_INGEST_LOG_FLUSH_MS = "STATS_INGEST_LOG_FLUSH_MS";
+	public static final String STATS_STATE_FILE = "STATS_STATE_FILE";
+	public static final String STATS_CLUSTER = "STATS_CLUSTER";
+	public static final String STATS_CLUSTER_INTERVAL_MS = "STATS_CLUSTER_INTERVAL_MS";
+
+	/**
+	 * Single shared ring of buckets , no striping
+	 */
+	public static final int DEFAULT_INGEST_STRIPES = 1;
+
+	/**
+	 * One bucket per second
+	 */
+	public static final long DEFAULT_RESOLUTION_MS = 1000l;
+
+	private int mIngestStripes = DEFAULT_INGEST_STRIPES;
+	private long mResolutionMillis = DEFAULT_RESOLUTION_MS;
+	private boolean mQuantiles;
+	private double mQuantileAccuracy = QuantileSketch.DEFAULT_RELATIVE_ACCURACY;
+	private int mMaxKeys = KeyedWindowAggregator.DEFAULT_MAX_KEYS;
+	private int mAmountScale = SlidingWindowAggregator.FLOATING_POINT;
+	private List<Long> mWindows = Collections.singletonList(CustomDateTimeUtils.DEFAULT_WINDOW_MILLIS);
+	private String mIngestLogDirectory;
+	private long mIngestLogFlushMillis = IngestLog.DEFAULT_FLUSH_MILLIS;
+	private String mStateFile;
+	private boolean mCluster;
+	private long mClusterIntervalMillis = DEFAULT_RESOLUTION_MS;
+
+	public StatisticsOptions() {
+	}
+
+	/**
+	 * Reads the options from a json configuration , missing keys keep their defaults
+	 * @param config
+	 */
+	public StatisticsOptions(JsonObject config) {
+		mIngestStripes = config.getInteger(INGEST_STRIPES, DEFAULT_INGEST_STRIPES);
+		mResolutionMillis = config.getLong(STATS_RESOLUTION_MS, DEFAULT_RESOLUTION_MS);
+		mQuantiles = config.getBoolean(STATS_QUANTILES, false);
+		mQuantileAccuracy = config.getDouble(STATS_QUANTILE_ACCURACY, QuantileSketch.DEFAULT_RELATIVE_ACCURACY);
+		mMaxKeys = config.getInteger(STATS_MAX_KEYS, KeyedWindowAggregator.DEFAULT_MAX_KEYS);
+		mAmountScale = config.getInteger(STATS_AMOUNT_SCALE, SlidingWindowAggregator.FLOATING_POINT);
+		mIngestLogDirectory = config.getString(STATS_INGEST_LOG_DIR);
+		mIngestLogFlushMillis = config.getLong(STATS_INGEST_LOG_FLUSH_MS, IngestLog.DEFAULT_FLUSH_MILLIS);
+		mStateFile = config.getString(STATS_STATE_FILE);
+		mCluster = config.getBoolean(STATS_CLUSTER, false);
+		mClusterIntervalMillis = config.getLong(STATS_CLUSTER_INTERVAL_MS, mResolutionMillis);
+		String windows = config.getString(STATS_WINDOWS);
+		if (windows != null) {
+			List<Long> windowMillis = new ArrayList<>();
+			for (String window : windows.split(",")) {
+				windowMillis.add(CustomDateTimeUtils.parseDuration(window));
+			}
+			setWindows(windowMillis);
+		}
+	}
+
+	public int getIngestStripes() {
+		return mIngestStripes;
+	}
+
+	/**
+	 * Number of ingest stripes , values above 1 give every writer thread its own ring of buckets.
+	 * A good value is the number of RestAPIVerticle instances / event loops.
+	 * @param ingestStripes
+	 * @return this for chaining
+	 */
+	public StatisticsOptions setIngestStripes(int ingestStripes) {
+		mIngestStripes = ingestStripes;
+		return this;
+	}
+
+	public long getResolutionMillis() {
+		return mResolutionMillis;
+	}
+
+	/**
+	 * Time covered by a single bucket , transactions expire with this granularity
+	 * @param resolutionMillis
+	 * @return this for chaining
+	 */
+	public StatisticsOptions setResolutionMillis(long resolutionMillis) {
+		mResolutionMillis = resolutionMillis;
+		return this;
+	}
+
+	/**
+	 * @return the window lengths in millis , ascending , always containing the default 60 seconds window
+	 */
+	public List<Long> getWindows() {
+		return mWindows;
+	}
+
+	/**
+	 * Window lengths that can be queried , all of them are answered from one ring sized for the longest.
+	 * Every length must be a multiple of the resolution.
+	 * @param windowMillis
+	 * @return this for chaining
+	 */
+	public StatisticsOptions setWindows(List<Long> windowMillis) {
+		TreeSet<Long> windows = new TreeSet<>(windowMillis);
+		windows.add(CustomDateTimeUtils.DEFAULT_WINDOW_MILLIS);
+		mWindows = Collections.unmodifiableList(new ArrayList<>(windows));
+		return this;
+	}
+
+	public boolean isQuantiles() {
+		return mQuantiles;
+	}
+
+	/**
+	 * Tracks p50 , p95 and p99 of the amounts , every bucket of every ingest stripe gets a quantile sketch of up to
+	 * 2 * 8 * QuantileSketch.maxBinsOf(accuracy) bytes , 11 KB at 1% (660 KB per stripe with 60 buckets) and ten
+	 * times that at 0.1%. The partials published in cluster mode carry up to 12 bytes per amount and bin
+	 * @param quantiles
+	 * @return this for chaining
+	 */
+	public StatisticsOptions setQuantiles(boolean quantiles) {
+		mQuantiles = quantiles;
+		return this;
+	}
+
+	public double getQuantileAccuracy() {
+		return mQuantileAccuracy;
+	}
+
+	/**
+	 * Maximum relative error of the reported quantiles , defaults to 1% , the memory of the sketches grows with
+	 * the inverse of it
+	 * @param quantileAccuracy
+	 * @return this for chaining
+	 */
+	public StatisticsOptions setQuantileAccuracy(double quantileAccuracy) {
+		mQuantileAccuracy = quantileAccuracy;
+		return this;
+	}
+
+	public int getMaxKeys() {
+		return mMaxKeys;
+	}
+
+	/**
+	 * Maximum number of keys with their own statistics , the least recently used keys are evicted beyond it
+	 * @param maxKeys
+	 * @return this for chaining
+	 */
+	public StatisticsOptions setMaxKeys(int maxKeys) {
+		mMaxKeys = maxKeys;
+		return this;
+	}
+
+	public int getAmountScale() {
+		return mAmountScale;
+	}
+
+	/**
+	 * Keeps sums in fixed point , amounts are rounded to this number of decimal places (2 for cents , 4 for 1e-4)
+	 * and summed as longs , so sums are exact and reproducible. Defaults to floating point sums.
+	 * @param amountScale - between 0 and 9 , or FLOATING_POINT
+	 * @return this for chaining
+	 */
+	public StatisticsOptions setAmountScale(int amountScale) {
+		mAmountScale = amountScale;
+		return this;
+	}
+
+	public String getIngestLogDirectory() {
+		return mIngestLogDirectory;
+	}
+
+	/**
+	 * Directory of the write ahead log of the ingested transactions , the live window is replayed from it on startup.
+	 * Defaults to none , i.e the statistics start empty.
+	 * @param ingestLogDirectory
+	 * @return this for chaining
+	 */
+	public StatisticsOptions setIngestLogDirectory(String ingestLogDirectory) {
+		mIngestLogDirectory = ingestLogDirectory;
+		return this;
+	}
+
+	public long getIngestLogFlushMillis() {
+		return mIngestLogFlushMillis;
+	}
+
+	/**
+	 * Interval of the group commit of the ingest log , at most this much is lost on a power failure , a crash of the
+	 * process loses nothing
+	 * @param ingestLogFlushMillis
+	 * @return this for chaining
+	 */
+	public StatisticsOptions setIngestLogFlushMillis(long ingestLogFlushMillis) {
+		mIngestLogFlushMillis = ingestLogFlushMillis;
+		return this;
+	}
+
+	public String getStateFile() {
+		return mStateFile;
+	}
+
+	/**
+	 * File the buckets are written to when the service is closed and restored from on startup , a lighter
+	 * alternative to the ingest log for graceful restarts and rolling deploys. Defaults to none.
+	 * @param stateFile
+	 * @return this for chaining
+	 */
+	public StatisticsOptions setStateFile(String stateFile) {
+		mStateFile = stateFile;
+		return this;
+	}
+
+	public boolean isCluster() {
+		return mCluster;
+	}
+
+	/**
+	 * Cluster mode , the nodes exchange the partials of their buckets over the event bus and every node answers
+	 * GET /statistics with the window of all nodes. Statistics per key stay per node.
+	 * @param cluster
+	 * @return this for chaining
+	 */
+	public StatisticsOptions setCluster(boolean cluster) {
+		mCluster = cluster;
+		return this;
+	}
+
+	public long getClusterIntervalMillis() {
+		return mClusterIntervalMillis;
+	}
+
+	/**
+	 * Interval at which every node publishes its partials , the statistics of the other nodes lag by up to this much.
+	 * Defaults to the resolution.
+	 * @param clusterIntervalMillis
+	 * @return this for chaining
+	 */
+	public StatisticsOptions setClusterIntervalMillis(long clusterIntervalMillis) {
+		mClusterIntervalMillis = clusterIntervalMillis;
+		return this;
+	}
+}
@@ -1,16 +1,28 @@
 package com.stats.restservice.internal.services;
 
-import java.time.ZoneOffset;
-import java.time.ZonedDateTime;
-import java.util.DoubleSummaryStatistics;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 
 import com.stats.restservice.external.services.IStatisticsService;
+import com.stats.restservice.internal.aggregator.ClusterWindowAggregator;
+import com.stats.restservice.internal.aggregator.IWindowAggregator;
+import com.stats.restservice.internal.aggregator.KeyedWindowAggregator;
+import com.stats.restservice.internal.aggregator.QuantileSketch;
+import com.stats.restservice.internal.aggregator.SlidingWindowAggregator;
+import com.stats.restservice.internal.aggregator.StripedWindowAggregator;
+import com.stats.restservice.internal.aggregator.WindowSummary;
+import com.stats.restservice.internal.journal.IngestLog;
+import com.stats.restservice.internal.journal.StateFile;
 import com.stats.restservice.transaction.ITransaction;
+import com.stats.restservice.transaction.TransactionBatch;
+import com.stats.restservice.utils.CustomDateTimeUtils;
 
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
@@ -25,60 +37,294 @@ public class StatisticsServiceImpl implements IStatisticsService{
 	static final String MAX = "max";
 	static final String AVERAGE = "avg";
 	static final String SUM = "sum";
+	static final String P50 = "p50";
+	static final String P95 = "p95";
+	static final String P99 = "p99";
+	
+	/**
+	 * Bound of the idle keys evicted by one cleaner tick , the rest are evicted on the following ticks
+	 */
+	static final int MAX_KEY_EVICTIONS_PER_TICK = 4096;
+	/**
+	 * Publish intervals a node may miss before it is left out of the cluster statistics
+	 */
+	static final int MISSED_PUBLISHES_BEFORE_NODE_DROPPED = 3;
 	
 	 private static final Logger logger = LoggerFactory.getLogger(StatisticsServiceImpl.class);
 	
-	Set<ITransaction> mTransactionSet = null;
+	IWindowAggregator mWindowAggregator = null;
+	private final KeyedWindowAggregator mKeyedAggregator;
+	private final List<Long> mWindows;
+	/**
+	 * Largest magnitude of an amount that can be stored , only bounded in fixed point mode
+	 */
+	private final double mMaxAmount;
+	/**
+	 * Optional write ahead log of the accepted transactions
+	 */
+	private IngestLog mIngestLog;
+	/**
+	 * Optional file the buckets are written to on close and restored from on startup
+	 */
+	private File mStateFile;
 	
 	public StatisticsServiceImpl() {
-		// ConcurrentHashSet to be operated by multiple threads
-		mTransactionSet = ConcurrentHashMap.newKeySet(1000);	
+		this(new StatisticsOptions());
+	}
+
+	public StatisticsServiceImpl(StatisticsOptions options) {
+		this(createAggregator(options), new KeyedWindowAggregator(getLongestWindow(options), options.getResolutionMillis(),
+				options.getMaxKeys(), options.getAmountScale(), System::currentTimeMillis), options.getWindows(),
+				options.getAmountScale());
+		if (options.getIngestLogDirectory() != null && options.getStateFile() != null) {
+			throw new IllegalArgumentException("the ingest log already recovers the window , a state file cannot be used along");
+		}
+		if (options.getIngestLogDirectory() != null) {
+			openIngestLog(new File(options.getIngestLogDirectory()), options.getIngestLogFlushMillis());
+		}
+		if (options.getStateFile() != null) {
+			mStateFile = new File(options.getStateFile());
+			restoreState();
+		}
+	}
+
+	public StatisticsServiceImpl(IWindowAggregator windowAggregator) {
+		this(windowAggregator, new KeyedWindowAggregator(CustomDateTimeUtils.DEFAULT_WINDOW_MILLIS,
+				StatisticsOptions.DEFAULT_RESOLUTION_MS, KeyedWindowAggregator.DEFAULT_MAX_KEYS, System::currentTimeMillis),
+				Collections.singletonList(CustomDateTimeUtils.DEFAULT_WINDOW_MILLIS));
+	}
+
+	/**
+	 * @param windowAggregator - aggregator whose window is the longest of the given windows
+	 * @param keyedAggregator - per key aggregator with the same window
+	 * @param windows - window lengths in millis , ascending
+	 */
+	public StatisticsServiceImpl(IWindowAggregator windowAggregator, KeyedWindowAggregator keyedAggregator, List<Long> windows) {
+		this(windowAggregator, keyedAggregator, windows, SlidingWindowAggregator.FLOATING_POINT);
+	}
+
+	/**
+	 * @param windowAggregator - aggregator whose window is the longest of the given windows
+	 * @param keyedAggregator - per key aggregator with the same window
+	 * @param windows - window lengths in millis , ascending
+	 * @param amountScale - decimal places of the fixed point sums of both aggregators , FLOATING_POINT for none
+	 */
+	public StatisticsServiceImpl(IWindowAggregator windowAggregator, KeyedWindowAggregator keyedAggregator, List<Long> windows,
+			int amountScale) {
+		// Ring of time buckets , constant time / memory irrespective of the transaction rate
+		mWindowAggregator = windowAggregator;
+		mKeyedAggregator = keyedAggregator;
+		mWindows = windows;
+		// units of a single amount must stay exact in a double , i.e below 2^53
+		mMaxAmount = amountScale == SlidingWindowAggregator.FLOATING_POINT ? Double.POSITIVE_INFINITY
+				: (1l << 53) / Math.pow(10, amountScale);
+	}
+
+	/**
+	 * Replays the transactions of the last window from the log , then logs every accepted transaction to it
+	 */
+	private void openIngestLog(File directory, long flushMillis) {
+		try {
+			mIngestLog = new IngestLog(directory, getRetentionMillis(), IngestLog.DEFAULT_SEGMENT_BYTES, flushMillis,
+					System::currentTimeMillis);
+			long records = mIngestLog.replay((timestamp, amount, key) -> {
+				if (mWindowAggregator.add(timestamp, amount) && key != null) {
+					mKeyedAggregator.add(key, timestamp, amount);
+				}
+			});
+			logger.info("Replayed " + records + " transactions from the ingest log " + directory);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot open the ingest log " + directory, e);
+		}
+	}
+
+	/**
+	 * Restores the buckets written by the last close , a state that cannot be restored is logged and skipped
+	 */
+	private void restoreState() {
+		long start = System.nanoTime();
+		try {
+			int[] restored = new int[2];
+			if (StateFile.read(mStateFile, in -> {
+				restored[0] = mWindowAggregator.readFrom(in);
+				restored[1] = mKeyedAggregator.readFrom(in);
+			})) {
+				logger.info("Restored " + restored[0] + " buckets and " + restored[1] + " keys from " + mStateFile + " in "
+						+ (System.nanoTime() - start) / 1000000 + " ms");
+				// restored exactly once , a later crash must not restore the same transactions again
+				Files.delete(mStateFile.toPath());
+			}
+		} catch (IOException e) {
+			logger.warn("Starting without the state of " + mStateFile + " " + e);
+		}
+	}
+
+	private static long getLongestWindow(StatisticsOptions options) {
+		return options.getWindows().get(options.getWindows().size() - 1);
+	}
+
+	/**
+	 * One ring sized for the longest window , the shorter windows are answered from its newest buckets
+	 */
+	private static IWindowAggregator createAggregator(StatisticsOptions options) {
+		long longestWindow = getLongestWindow(options);
+		for (long window : options.getWindows()) {
+			if (window % options.getResolutionMillis() != 0) {
+				throw new IllegalArgumentException("window " + window + " is not a multiple of resolution "
+						+ options.getResolutionMillis());
+			}
+		}
+		double quantileAccuracy = options.isQuantiles() ? options.getQuantileAccuracy() : SlidingWindowAggregator.NO_QUANTILES;
+		IWindowAggregator aggregator = options.getIngestStripes() > 1
+				? new StripedWindowAggregator(options.getIngestStripes(), longestWindow, options.getResolutionMillis(),
+						quantileAccuracy, options.getAmountScale(), System::currentTimeMillis)
+				: new SlidingWindowAggregator(longestWindow, options.getResolutionMillis(), quantileAccuracy,
+						options.getAmountScale(), System::currentTimeMillis);
+		if (options.isCluster()) {
+			aggregator = new ClusterWindowAggregator(aggregator, longestWindow, options.getResolutionMillis(), quantileAccuracy,
+					options.getAmountScale(), MISSED_PUBLISHES_BEFORE_NODE_DROPPED * options.getClusterIntervalMillis(),
+					System::currentTimeMillis);
+		}
+		return aggregator;
+	}
+
+	/**
+	 * @return the aggregator that exchanges partials with the other nodes , null if not in cluster mode
+	 */
+	public ClusterWindowAggregator getClusterAggregator() {
+		return mWindowAggregator instanceof ClusterWindowAggregator ? (ClusterWindowAggregator) mWindowAggregator : null;
 	}
 
 	 @Override
 	  public Map<String, Number> getStatistics(){
-		 /**
-		  * Can make the following stream() => parallelStream() depending on the traffic of input new transactions. IF the size of transactionSet is huge 
-		  * like more than 5000 or so parallelStream may be beneficial to use (Premature optimization is evil ?? so stick with sequential stream for now)
-		  */
-		  DoubleSummaryStatistics summaryStats = mTransactionSet.stream()
-				   .filter(this::ignoreOlderEntries)
-		           .mapToDouble(this::getAmount)
-		           .summaryStatistics();
-		  	
+		 return getStatistics(CustomDateTimeUtils.DEFAULT_WINDOW_MILLIS);
+	 }
+
+	 @Override
+	  public Map<String, Number> getStatistics(long windowMillis){
+		 checkWindow(windowMillis);
+		  WindowSummary summaryStats = windowMillis == getRetentionMillis() ? mWindowAggregator.summary()
+				  : mWindowAggregator.summary(windowMillis);
+		  return toStatistics(summaryStats);
+	 }
+
+	 @Override
+	  public Map<String, Number> getStatistics(String key, long windowMillis){
+		 checkWindow(windowMillis);
+		 return toStatistics(mKeyedAggregator.summary(key, windowMillis));
+	 }
+
+	 private void checkWindow(long windowMillis) {
+		 if (!mWindows.contains(windowMillis)) {
+			 throw new IllegalArgumentException("window " + windowMillis + " is not configured");
+		 }
+	 }
+
+	 private Map<String, Number> toStatistics(WindowSummary summaryStats) {
 	        Map<String, Number> statistics = new LinkedHashMap<>();
 			statistics.put(SUM, summaryStats.getSum());
 	        statistics.put(AVERAGE, summaryStats.getAverage());
 	        statistics.put(MAX, summaryStats.getMax());
 	        statistics.put(MIN, summaryStats.getMin());
 	        statistics.put(COUNT, summaryStats.getCount());
+	        QuantileSketch sketch = summaryStats.getSketch();
+	        if (sketch != null) {
+	        	// optional , only when quantiles are tracked
+	        	statistics.put(P50, sketch.getQuantile(0.50));
+	        	statistics.put(P95, sketch.getQuantile(0.95));
+	        	statistics.put(P99, sketch.getQuantile(0.99));
+	        }
 	        
-	        logger.info("Statstics => "+statistics);
+	        if (logger.isDebugEnabled()) {
+	        	logger.debug("Statstics => "+statistics);
+	        }
 	        return  statistics;
 	    }
 
-	private boolean ignoreOlderEntries(ITransaction transaction) {
-		return (System.currentTimeMillis() - transaction.getTimestamp()) / 1000 < 60;
-	}
-
 	protected Double getAmount(ITransaction transaction){
 		return transaction.getAmount();
 	}
 
 	@Override
 	public void computeTransaction(ITransaction transaction) {
-		mTransactionSet.add(transaction);
+		computeTransaction(getAmount(transaction), transaction.getTimestamp(), transaction.getKey());
+	}
+
+	@Override
+	public void computeTransaction(double amount, long timestamp) {
+		computeTransaction(amount, timestamp, null);
+	}
+
+	@Override
+	public void computeTransaction(double amount, long timestamp, String key) {
+		if (!mWindowAggregator.add(timestamp, amount)) {
+			return;
+		}
+		if (key != null) {
+			mKeyedAggregator.add(key, timestamp, amount);
+		}
+		if (mIngestLog != null) {
+			mIngestLog.append(timestamp, amount, key);
+		}
+	}
+
+	@Override
+	public void computeTransactions(TransactionBatch batch) {
+		for (int i = 0; i < batch.size(); i++) {
+			computeTransaction(batch.getAmount(i), batch.getTimestamp(i), batch.getKey(i));
+		}
+	}
+
+	@Override
+	public boolean isAmountSupported(double amount) {
+		return mMaxAmount == Double.POSITIVE_INFINITY || Math.abs(amount) < mMaxAmount;
+	}
+
+	@Override
+	public List<Long> getWindows() {
+		return mWindows;
+	}
+
+	@Override
+	public long getRetentionMillis() {
+		return mWindows.get(mWindows.size() - 1);
 	}
 
 	@Override
 	public void removeStaleTransactions() {
-		mTransactionSet.removeIf(isOlderThanOneMinute());		
+		// clears only the buckets that passed since the last call , O(1) per tick
+		mWindowAggregator.expire();
+		int evicted = mKeyedAggregator.expire(MAX_KEY_EVICTIONS_PER_TICK);
+		if (evicted > 0 && logger.isDebugEnabled()) {
+			logger.debug("Evicted " + evicted + " idle keys");
+		}
+	}
+	
+	@Override
+	public void close() {
+		if (mStateFile != null) {
+			try {
+				StateFile.write(mStateFile, out -> {
+					mWindowAggregator.writeTo(out);
+					mKeyedAggregator.writeTo(out);
+				});
+				logger.info("Saved the statistics state to " + mStateFile);
+			} catch (IOException e) {
+				logger.error("Encountered exception while saving the statistics state " + e);
+			}
+		}
+		if (mIngestLog != null) {
+			try {
+				mIngestLog.close();
+			} catch (IOException e) {
+				logger.error("Encountered exception while closing the ingest log " + e);
+			}
+		}
 	}
 	
 	 protected Predicate<ITransaction> isOlderThanOneMinute() {
-	        ZonedDateTime utc = ZonedDateTime.now(ZoneOffset.UTC);
-	        long epochInMillis = utc.toEpochSecond() * 1000;
-	        return transaction ->
-	                transaction.getTimestamp() < epochInMillis - 60 * 1000l;
+	        long now = System.currentTimeMillis();
+	        return transaction -> !CustomDateTimeUtils.isTransactionWithinWindow(transaction.getTimestamp(),
+	        		CustomDateTimeUtils.DEFAULT_WINDOW_MILLIS, now);
 	   }
 }
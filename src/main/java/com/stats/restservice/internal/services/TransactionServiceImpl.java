@@ -5,10 +5,16 @@ import java.util.function.Supplier;
 
 import com.stats.restservice.external.services.IStatisticsService;
 import com.stats.restservice.external.services.ITransactionService;
-import com.stats.restservice.transaction.ITransaction;
+import com.stats.restservice.internal.metrics.ServiceMetrics;
+import com.stats.restservice.internal.metrics.ServiceMetrics.RejectReason;
+import com.stats.restservice.transaction.TransactionBatch;
 import com.stats.restservice.transaction.TransactionFactory;
 import com.stats.restservice.utils.CustomDateTimeUtils;
+import com.stats.restservice.utils.TransactionParser;
 
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
@@ -18,43 +24,250 @@ import io.vertx.core.logging.LoggerFactory;
  */
 public class TransactionServiceImpl implements ITransactionService{
 	
+	private static final Optional<Boolean> ACCEPTED = Optional.of(true);
+	
 	private IStatisticsService mStatisticsService;
+	
+	/**
+	 * Transactions are kept as long as the longest statistics window needs them
+	 */
+	private final long mRetentionMillis;
+	
+	/**
+	 * Parsers keep their results in fields , so every event loop / worker thread gets its own
+	 */
+	private final ThreadLocal<TransactionParser> mParsers = ThreadLocal.withInitial(TransactionParser::new);
+	
+	private final ServiceMetrics mMetrics;
+	
+	private final IdempotencyKeys mIdempotencyKeys;
 
 	public TransactionServiceImpl(IStatisticsService statService) {
+		this(statService, new ServiceMetrics());
+	}
+	
+	/**
+	 * @param statService
+	 * @param metrics - counts the accepted and rejected transactions
+	 */
+	public TransactionServiceImpl(IStatisticsService statService, ServiceMetrics metrics) {
+		this(statService, metrics, new IdempotencyKeys(statService.getRetentionMillis()));
+	}
+	
+	/**
+	 * @param statService
+	 * @param metrics - counts the accepted , rejected and duplicate transactions
+	 * @param idempotencyKeys - keys of the accepted transactions
+	 */
+	public TransactionServiceImpl(IStatisticsService statService, ServiceMetrics metrics, IdempotencyKeys idempotencyKeys) {
 		mStatisticsService = statService;
+		mRetentionMillis = statService.getRetentionMillis();
+		mMetrics = metrics;
+		mIdempotencyKeys = idempotencyKeys;
 	}
 	
 	 private static final Logger logger = LoggerFactory.getLogger(TransactionServiceImpl.class);
 
 		@Override
 		public Optional<Boolean> unMarshallTransactionData(Supplier<JsonObject> jsonData) {
-			  ITransaction transaction = getTransactionFromRequestBody(jsonData);
-			if (transaction  == null ||
-	    	            transaction.getAmount() == null ||
-	    	            transaction.getTimestamp() == null ||
-	    	            !CustomDateTimeUtils.isTransactionOlderThanMinute(transaction.getTimestamp())) {
-	    		  
-	    		  logger.debug("Discard received transaction , older / invalid values received in json => "+ transaction);
-	    	            return Optional.empty();
-	    	      }
-	    	
-	        logger.info("Received new transaction => "+ transaction);
-	        mStatisticsService.computeTransaction(transaction);
-	        return Optional.of(true);
-		}
-		
-		private ITransaction getTransactionFromRequestBody(Supplier<JsonObject> jsonBody) {
-			ITransaction transaction = null;
+			return unMarshallTransactionData(jsonData, null);
+		}
+		
+		private Optional<Boolean> unMarshallTransactionData(Supplier<JsonObject> jsonData, String idempotencyKey) {
+			double amount;
+			long timestamp;
+			String key;
 			try {
-				JsonObject jsonData = jsonBody.get();
-				logger.debug("Received jsonData to be unmarshalled" +jsonData);
-				Double amount = Double.parseDouble(String.valueOf(jsonData.getValue("amount")));
-				Long timestamp = Long.parseLong(String.valueOf(jsonData.getValue("timestamp")));
-				transaction = TransactionFactory.getTransaction(amount , timestamp);
+				JsonObject transactionJson = jsonData.get();
+				amount = parseAmount(transactionJson);
+				timestamp = parseTimestamp(transactionJson);
+				key = parseKey(transactionJson);
 			} catch (Exception e) {
 				logger.error("Encountered exception while parsing transaction data" +e.getMessage());
 				logger.debug(e);
+				if (e instanceof DecodeException) {
+					mMetrics.parseFailure();
+				}
+				mMetrics.transactionRejected(RejectReason.INVALID);
+				return Optional.empty();
+			}
+			return acceptTransaction(amount, timestamp, key, idempotencyKey);
+		}
+		
+		@Override
+		public Optional<Boolean> unMarshallTransactionData(Buffer body) {
+			return unMarshallTransactionData(body, null);
+		}
+		
+		@Override
+		public Optional<Boolean> unMarshallTransactionData(Buffer body, String idempotencyKey) {
+			TransactionParser parser = mParsers.get();
+			switch (parser.parse(body)) {
+			case PARSED:
+				return acceptTransaction(parser.getAmount(), parser.getTimestamp(), parser.getKey(), idempotencyKey);
+			case INVALID:
+				logger.error("Encountered invalid amount / timestamp / key in transaction data");
+				mMetrics.transactionRejected(RejectReason.INVALID);
+				return Optional.empty();
+			default:
+				// escapes , comments etc - let the json parser decide
+				return unMarshallTransactionData(() -> new JsonObject(body.toString()), idempotencyKey);
+			}
+		}
+		
+		/**
+		 * @param idempotencyKey - taken once the transaction is valid , so a rejected transaction never holds its key
+		 */
+		private Optional<Boolean> acceptTransaction(double amount, long timestamp, String key, String idempotencyKey) {
+			Validity validity = validate(amount, timestamp);
+			if (validity == Validity.REJECTED) {
+				return Optional.empty();
+			}
+			Optional<Boolean> status = validity == Validity.WITHIN_DEFAULT_WINDOW ? ACCEPTED : Optional.empty();
+			// taking the key is atomic , so of concurrent retries only one gets here
+			if (idempotencyKey != null && isRetry(idempotencyKey)) {
+				return status;
+			}
+			
+			// primitives all the way down to the buckets , nothing is allocated per transaction
+			if (key == null) {
+				mStatisticsService.computeTransaction(amount, timestamp);
+			} else {
+				mStatisticsService.computeTransaction(amount, timestamp, key);
+			}
+			mMetrics.transactionAccepted();
+			return status;
+		}
+		
+		private boolean isRetry(String idempotencyKey) {
+			switch (mIdempotencyKeys.add(idempotencyKey)) {
+			case RETRY:
+				if (logger.isDebugEnabled()) {
+					logger.debug("Discard retry of transaction with idempotency key " + idempotencyKey);
+				}
+				mMetrics.transactionDuplicate();
+				return true;
+			case UNTRACKED:
+				// fail open , a possible retry is counted twice rather than a new transaction dropped
+				mMetrics.idempotencyKeyUntracked();
+				return false;
+			default:
+				return false;
+			}
+		}
+		
+		@Override
+		public TransactionBatch unMarshallTransactionBatch(Buffer body) {
+			String content = body.toString().trim();
+			TransactionBatch batch;
+			if (content.startsWith("[")) {
+				JsonArray items;
+				try {
+					items = new JsonArray(content);
+				} catch (DecodeException e) {
+					mMetrics.parseFailure();
+					throw e;
+				}
+				batch = new TransactionBatch(items.size());
+				for (Object item : items) {
+					addToBatch(item instanceof JsonObject ? (JsonObject) item : null, batch);
+				}
+			} else {
+				// newline delimited json , one transaction object per line
+				String[] lines = content.split("\\r?\\n");
+				batch = new TransactionBatch(lines.length);
+				for (String line : lines) {
+					if (line.trim().isEmpty()) {
+						continue;
+					}
+					JsonObject item = null;
+					try {
+						item = new JsonObject(line);
+					} catch (DecodeException e) {
+						logger.debug("Discard malformed line of transaction batch " + e.getMessage());
+						mMetrics.parseFailure();
+					}
+					addToBatch(item, batch);
+				}
+			}
+			
+			mStatisticsService.computeTransactions(batch);
+			mMetrics.transactionsAccepted(batch.size());
+			logger.info("Received transaction batch , accepted " + batch.getAcceptedCount() + " rejected " + batch.getRejectedCount());
+			return batch;
+		}
+		
+		/**
+		 * Same validation as for a single transaction , the item is either added to or rejected from the batch 
+		 */
+		private void addToBatch(JsonObject transactionJson, TransactionBatch batch) {
+			try {
+				double amount = parseAmount(transactionJson);
+				long timestamp = parseTimestamp(transactionJson);
+				String key = parseKey(transactionJson);
+				Validity validity = validate(amount, timestamp);
+				if (validity != Validity.REJECTED) {
+					batch.add(amount, timestamp, key, validity == Validity.WITHIN_DEFAULT_WINDOW);
+					return;
+				}
+			} catch (Exception e) {
+				logger.debug("Discard invalid item of transaction batch " + e.getMessage());
+				mMetrics.transactionRejected(RejectReason.INVALID);
+			}
+			batch.reject();
+		}
+		
+		/**
+		 * Validation shared by single transactions and the items of a batch , rejections are counted in the metrics
+		 */
+		private Validity validate(double amount, long timestamp) {
+			if (!mStatisticsService.isAmountSupported(amount)) {
+				logger.error("Encountered amount out of the range of the fixed point scale " + amount);
+				mMetrics.transactionRejected(RejectReason.AMOUNT_OUT_OF_RANGE);
+				return Validity.REJECTED;
+			}
+			long now = System.currentTimeMillis();
+			if (!CustomDateTimeUtils.isTransactionWithinWindow(timestamp, mRetentionMillis, now)) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Discard received transaction , older values received in json => amount " + amount + " timestamp " + timestamp);
+				}
+				mMetrics.transactionRejected(RejectReason.TOO_OLD);
+				return Validity.REJECTED;
+			}
+			// older than the 60 seconds of the original contract , stored for the longer windows but answered like a rejection
+			return CustomDateTimeUtils.isTransactionWithinWindow(timestamp, CustomDateTimeUtils.DEFAULT_WINDOW_MILLIS, now)
+					? Validity.WITHIN_DEFAULT_WINDOW : Validity.BEYOND_DEFAULT_WINDOW;
+		}
+		
+		private static double parseAmount(JsonObject transactionJson) {
+			return Double.parseDouble(String.valueOf(transactionJson.getValue("amount")));
+		}
+		
+		private static long parseTimestamp(JsonObject transactionJson) {
+			return Long.parseLong(String.valueOf(transactionJson.getValue("timestamp")));
+		}
+		
+		/**
+		 * @return the optional key , null if absent
+		 * @throws IllegalArgumentException if the key is not a non empty string of at most MAX_KEY_LENGTH characters
+		 */
+		private static String parseKey(JsonObject transactionJson) {
+			Object key = transactionJson.getValue("key");
+			if (key != null && !(key instanceof String && TransactionFactory.isValidKey((String) key))) {
+				throw new IllegalArgumentException("Invalid transaction key " + key);
 			}
-			return transaction;
+			return (String) key;
+		}
+		
+		/**
+		 * Outcome of the validation of a transaction
+		 */
+		private enum Validity {
+			/** Invalid or older than the retention , not stored */
+			REJECTED,
+			/** Stored and answered as accepted */
+			WITHIN_DEFAULT_WINDOW,
+			/** Older than 60 seconds , stored for the longer windows but answered like a rejected one (204) */
+			BEYOND_DEFAULT_WINDOW
 		}
 }
@@ -21,4 +21,12 @@ public interface ITransaction {
 	 */
 	Long getTimestamp();
 
+	/**
+	 * Fetches the optional key (merchant , currency , account ...) the transaction is aggregated under
+	 * @return key or null if the transaction only counts towards the overall statistics , null by default
+	 */
+	default String getKey() {
+		return null;
+	}
+
 }
@@ -7,10 +7,16 @@ public class Transaction implements ITransaction{
 	
 	private Double amount;
 	private Long timestamp;
+	private String key;
 	
 	public Transaction(Double amount , Long timestamp) {
+		this(amount, timestamp, null);
+	}
+	
+	public Transaction(Double amount , Long timestamp , String key) {
 		this.amount = amount;
 		this.timestamp = timestamp;
+		this.key = key;
 	}
 	
 	@Override
@@ -23,11 +29,17 @@ public class Transaction implements ITransaction{
 		return timestamp; 
 	}
 	
+	@Override
+	public String getKey() {
+		return key; 
+	}
+	
 	 @Override
 	    public String toString() {
 	        final StringBuilder sb = new StringBuilder("Transaction{");
 	        sb.append("amount=").append(amount);
 	        sb.append(", timestamp=").append(timestamp);
+	        sb.append(", key=").append(key);
 	        sb.append('}');
 	        return sb.toString();
 	    }
@@ -38,6 +50,7 @@ public class Transaction implements ITransaction{
 			int result = 1;
 			result = prime * result + ((amount == null) ? 0 : amount.hashCode());
 			result = prime * result + ((timestamp == null) ? 0 : timestamp.hashCode());
+			result = prime * result + ((key == null) ? 0 : key.hashCode());
 			return result;
 		}
 
@@ -60,6 +73,11 @@ public class Transaction implements ITransaction{
 					return false;
 			} else if (!timestamp.equals(other.timestamp))
 				return false;
+			if (key == null) {
+				if (other.key != null)
+					return false;
+			} else if (!key.equals(other.key))
+				return false;
 			return true;
 		}
 }
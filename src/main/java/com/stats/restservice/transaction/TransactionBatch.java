@@ -0,0 +1,115 @@
+package com.stats.restservice.transaction;
+
+import java.util.Arrays;
+
+/**
+ * Batch of validated transactions stored as parallel primitive columns , together with the number of
+ * items that were rejected while building it. The key column is only allocated once a keyed item is added.
+ */
+public class TransactionBatch {
+
+	private double[] mAmounts;
+	private long[] mTimestamps;
+	private String[] mKeys;
+	private int mSize;
+	private int mRejected;
+	private int mBeyondDefaultWindow;
+
+	public TransactionBatch(int initialCapacity) {
+		mAmounts = new double[Math.max(initialCapacity, 1)];
+		mTimestamps = new long[mAmounts.length];
+	}
+
+	/**
+	 * Appends an accepted transaction to the batch
+	 * @param amount
+	 * @param timestamp
+	 */
+	public void add(double amount, long timestamp) {
+		add(amount, timestamp, null);
+	}
+
+	/**
+	 * Appends an accepted transaction to the batch
+	 * @param amount
+	 * @param timestamp
+	 * @param key - null for none
+	 */
+	public void add(double amount, long timestamp, String key) {
+		add(amount, timestamp, key, true);
+	}
+
+	/**
+	 * Appends a transaction to the batch
+	 * @param amount
+	 * @param timestamp
+	 * @param key - null for none
+	 * @param withinDefaultWindow - false for a transaction older than 60 seconds , stored for the longer windows
+	 *        but counted as rejected like the 204 of a single transaction
+	 */
+	public void add(double amount, long timestamp, String key, boolean withinDefaultWindow) {
+		if (mSize == mAmounts.length) {
+			mAmounts = Arrays.copyOf(mAmounts, mSize * 2);
+			mTimestamps = Arrays.copyOf(mTimestamps, mSize * 2);
+			if (mKeys != null) {
+				mKeys = Arrays.copyOf(mKeys, mSize * 2);
+			}
+		}
+		if (key != null && mKeys == null) {
+			mKeys = new String[mAmounts.length];
+		}
+		mAmounts[mSize] = amount;
+		mTimestamps[mSize] = timestamp;
+		if (mKeys != null) {
+			mKeys[mSize] = key;
+		}
+		mSize++;
+		if (!withinDefaultWindow) {
+			mBeyondDefaultWindow++;
+		}
+	}
+
+	/**
+	 * Records an item that was rejected and is not stored (invalid or older than the retention)
+	 */
+	public void reject() {
+		mRejected++;
+	}
+
+	public double getAmount(int index) {
+		return mAmounts[index];
+	}
+
+	public long getTimestamp(int index) {
+		return mTimestamps[index];
+	}
+
+	/**
+	 * @param index
+	 * @return key of the transaction , null if it has none
+	 */
+	public String getKey(int index) {
+		return mKeys == null ? null : mKeys[index];
+	}
+
+	/**
+	 * @return number of stored transactions
+	 */
+	public int size() {
+		return mSize;
+	}
+
+	/**
+	 * @return number of stored transactions of the last 60 seconds
+	 */
+	public int getAcceptedCount() {
+		return mSize - mBeyondDefaultWindow;
+	}
+
+	/**
+	 * @return number of rejected items , including the stored ones older than 60 seconds
+	 */
+	public int getRejectedCount() {
+		return mRejected + mBeyondDefaultWindow;
+	}
+}
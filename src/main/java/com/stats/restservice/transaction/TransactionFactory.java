@@ -5,6 +5,11 @@ package com.stats.restservice.transaction;
  */
 public class TransactionFactory {
 	
+	/**
+	 * Longest accepted key , bounds the memory of keyed statistics
+	 */
+	public static final int MAX_KEY_LENGTH = 128;
+	
 	/**
 	 * Method to instantiate new transaction with given inputs
 	 * @param amount
@@ -15,4 +20,24 @@ public class TransactionFactory {
 		ITransaction transaction = new Transaction(amount , dateTimeStamp);
 		return transaction;
 	}
+	
+	/**
+	 * Method to instantiate new keyed transaction with given inputs
+	 * @param amount
+	 * @param dateTimeStamp
+	 * @param key - merchant , currency , account etc , null for none
+	 * @return
+	 */
+	public static ITransaction getTransaction(Double amount , Long dateTimeStamp , String key) {
+		ITransaction transaction = new Transaction(amount , dateTimeStamp , key);
+		return transaction;
+	}
+	
+	/**
+	 * @param key
+	 * @return true if the key is null (no key) or a non empty string of at most MAX_KEY_LENGTH characters
+	 */
+	public static boolean isValidKey(String key) {
+		return key == null || (!key.isEmpty() && key.length() <= MAX_KEY_LENGTH);
+	}
 }
@@ -1,18 +1,65 @@
 package com.stats.restservice.utils;
 
-import java.time.Instant;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Util class to provide supplement methods for DateTime calculation 
  */
 public class CustomDateTimeUtils {
 
-    public static boolean isTransactionOlderThanMinute(Long ts) {
-        LocalDateTime date = Instant.ofEpochMilli(ts).atZone(ZoneId.systemDefault()).toLocalDateTime();
-        LocalDateTime oneMinBefore = LocalDateTime.now().minus(60, ChronoUnit.SECONDS);
-        return date.isAfter(oneMinBefore);
+    /**
+     * Default statistics window , the last 60 seconds
+     */
+    public static final long DEFAULT_WINDOW_MILLIS = TimeUnit.SECONDS.toMillis(60);
+
+    /**
+     * Plain epoch arithmetic , both sides are UTC millis so there is no need to go through zoned date times
+     * @param ts - epoch millis of the transaction
+     * @param windowMillis - length of the window
+     * @param now - current epoch millis
+     * @return true if the transaction is not older than the window
+     */
+    public static boolean isTransactionWithinWindow(long ts, long windowMillis, long now) {
+        return now - ts < windowMillis;
+    }
+    
+    /**
+     * Parses a duration like "500ms" , "10s" , "5m" or "1h"
+     * @param duration
+     * @return duration in millis
+     * @throws IllegalArgumentException if the duration is malformed or not positive
+     */
+    public static long parseDuration(String duration) {
+        String value = duration.trim();
+        int unitStart = 0;
+        while (unitStart < value.length() && Character.isDigit(value.charAt(unitStart))) {
+            unitStart++;
+        }
+        if (unitStart == 0 || unitStart > 12) {
+            throw new IllegalArgumentException("Malformed duration " + duration);
+        }
+        long amount = Long.parseLong(value.substring(0, unitStart));
+        TimeUnit unit;
+        switch (value.substring(unitStart)) {
+        case "ms":
+            unit = TimeUnit.MILLISECONDS;
+            break;
+        case "s":
+            unit = TimeUnit.SECONDS;
+            break;
+        case "m":
+            unit = TimeUnit.MINUTES;
+            break;
+        case "h":
+            unit = TimeUnit.HOURS;
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown unit of duration " + duration);
+        }
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Duration must be positive " + duration);
+        }
+        return unit.toMillis(amount);
     }
     
 }
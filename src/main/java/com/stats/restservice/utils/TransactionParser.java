@@ -0,0 +1,500 @@
+package com.stats.restservice.utils;
+
+import com.stats.restservice.transaction.TransactionFactory;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Streaming parser that reads amount , timestamp and the optional key of a transaction straight from the bytes of
+ * the request body , without building a JsonObject or intermediate strings (only the key becomes a String).
+ *
+ * Only strict JSON is handled here. Whenever the body needs something this parser does not do (escape sequences ,
+ * comments , trailing content , deep nesting etc) it answers {@link Result#UNSUPPORTED} and the caller is expected
+ * to fall back to the JsonObject based parsing , so the outcome is always the same as the legacy path.
+ *
+ * Instances keep the parsed values in fields and are not thread safe , use one instance per thread.
+ */
+public class TransactionParser {
+
+	public enum Result {
+		/** amount and timestamp were parsed , see {@link TransactionParser#getAmount()} */
+		PARSED,
+		/** well formed json , but amount / timestamp are missing or not numbers , or the key is not a valid string */
+		INVALID,
+		/** body needs the full json parser to decide */
+		UNSUPPORTED
+	}
+
+	private static final byte[] AMOUNT = { 'a', 'm', 'o', 'u', 'n', 't' };
+	private static final byte[] TIMESTAMP = { 't', 'i', 'm', 'e', 's', 't', 'a', 'm', 'p' };
+	private static final byte[] KEY = { 'k', 'e', 'y' };
+	private static final byte[] TRUE = { 't', 'r', 'u', 'e' };
+	private static final byte[] FALSE = { 'f', 'a', 'l', 's', 'e' };
+	private static final byte[] NULL = { 'n', 'u', 'l', 'l' };
+
+	private static final int OTHER_FIELD = 0;
+	private static final int AMOUNT_FIELD = 1;
+	private static final int TIMESTAMP_FIELD = 2;
+	private static final int KEY_FIELD = 3;
+	private static final int MAX_DEPTH = 32;
+	private static final long MAX_EXACT_MANTISSA = 1l << 53;
+	private static final int MAX_SIGNIFICANT_DIGITS = 18;
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	private Buffer mBody;
+	private int mPos;
+	private int mLength;
+
+	private boolean mAmountValid;
+	private boolean mTimestampValid;
+	private double mAmount;
+	private long mTimestamp;
+	private boolean mKeyValid;
+	private String mKey;
+
+	/**
+	 * Parses a transaction json object
+	 * @param body - raw request body
+	 * @return {@link Result}
+	 */
+	public Result parse(Buffer body) {
+		mBody = body;
+		mPos = 0;
+		mLength = body.length();
+		mAmountValid = false;
+		mTimestampValid = false;
+		mKeyValid = true;
+		mKey = null;
+		try {
+			skipWhitespace();
+			if (!consume('{')) {
+				return Result.UNSUPPORTED;
+			}
+			skipWhitespace();
+			if (!consume('}')) {
+				do {
+					skipWhitespace();
+					int field = parseKey();
+					skipWhitespace();
+					if (field < 0 || !consume(':')) {
+						return Result.UNSUPPORTED;
+					}
+					skipWhitespace();
+					if (!parseValue(field, 1)) {
+						return Result.UNSUPPORTED;
+					}
+					skipWhitespace();
+				} while (consume(','));
+				if (!consume('}')) {
+					return Result.UNSUPPORTED;
+				}
+			}
+			skipWhitespace();
+			if (mPos != mLength) {
+				return Result.UNSUPPORTED;
+			}
+			return mAmountValid && mTimestampValid && mKeyValid ? Result.PARSED : Result.INVALID;
+		} finally {
+			mBody = null;
+		}
+	}
+
+	/**
+	 * @return amount of the last successfully parsed transaction
+	 */
+	public double getAmount() {
+		return mAmount;
+	}
+
+	/**
+	 * @return timestamp of the last successfully parsed transaction
+	 */
+	public long getTimestamp() {
+		return mTimestamp;
+	}
+
+	/**
+	 * @return key of the last successfully parsed transaction , null if it has none
+	 */
+	public String getKey() {
+		return mKey;
+	}
+
+	/**
+	 * Reads a member name and tells whether it is one of the transaction fields , -1 if unsupported
+	 */
+	private int parseKey() {
+		if (!consume('"')) {
+			return -1;
+		}
+		int start = mPos;
+		int end = scanPlainString();
+		if (end < 0) {
+			return -1;
+		}
+		if (matches(start, end, AMOUNT)) {
+			return AMOUNT_FIELD;
+		}
+		if (matches(start, end, TIMESTAMP)) {
+			return TIMESTAMP_FIELD;
+		}
+		if (matches(start, end, KEY)) {
+			return KEY_FIELD;
+		}
+		return OTHER_FIELD;
+	}
+
+	private boolean parseValue(int field, int depth) {
+		if (mPos >= mLength) {
+			return false;
+		}
+		byte c = mBody.getByte(mPos);
+		switch (c) {
+		case '"':
+			mPos++;
+			if (field == OTHER_FIELD) {
+				return skipString();
+			}
+			int start = mPos;
+			int end = scanPlainString();
+			if (end < 0) {
+				return false;
+			}
+			assignFromString(field, start, end);
+			return true;
+		case '{':
+		case '[':
+			invalidate(field);
+			return depth < MAX_DEPTH && skipContainer(c, depth + 1);
+		case 't':
+			invalidate(field);
+			return consumeLiteral(TRUE);
+		case 'f':
+			invalidate(field);
+			return consumeLiteral(FALSE);
+		case 'n':
+			invalidate(field);
+			if (field == KEY_FIELD) {
+				// explicit null is the same as no key
+				mKeyValid = true;
+				mKey = null;
+			}
+			return consumeLiteral(NULL);
+		default:
+			int numberStart = mPos;
+			int kind = scanNumber();
+			if (kind == 0) {
+				return false;
+			}
+			assignFromNumber(field, numberStart, mPos, kind == 1);
+			return true;
+		}
+	}
+
+	private boolean skipContainer(byte open, int depth) {
+		mPos++;
+		skipWhitespace();
+		byte close = open == '{' ? (byte) '}' : (byte) ']';
+		if (consume(close)) {
+			return true;
+		}
+		do {
+			skipWhitespace();
+			if (open == '{') {
+				if (!consume('"') || !skipString()) {
+					return false;
+				}
+				skipWhitespace();
+				if (!consume(':')) {
+					return false;
+				}
+				skipWhitespace();
+			}
+			if (!parseValue(OTHER_FIELD, depth)) {
+				return false;
+			}
+			skipWhitespace();
+		} while (consume(','));
+		return consume(close);
+	}
+
+	/**
+	 * Number token as the json grammar defines it
+	 * @return 0 if not a number , 1 for an integer token , 2 for a token with fraction or exponent
+	 */
+	private int scanNumber() {
+		consume('-');
+		if (consume('0')) {
+			// no leading zeros
+		} else if (!scanDigits()) {
+			return 0;
+		}
+		int kind = 1;
+		if (consume('.')) {
+			if (!scanDigits()) {
+				return 0;
+			}
+			kind = 2;
+		}
+		if (consume('e') || consume('E')) {
+			if (!consume('+')) {
+				consume('-');
+			}
+			if (!scanDigits()) {
+				return 0;
+			}
+			kind = 2;
+		}
+		return kind;
+	}
+
+	private boolean scanDigits() {
+		int start = mPos;
+		while (mPos < mLength && isDigit(mBody.getByte(mPos))) {
+			mPos++;
+		}
+		return mPos > start;
+	}
+
+	/**
+	 * Moves past a string without escape sequences
+	 * @return end (exclusive) of the string content , -1 if it has escapes or control characters
+	 */
+	private int scanPlainString() {
+		while (mPos < mLength) {
+			byte c = mBody.getByte(mPos);
+			if (c == '"') {
+				return mPos++;
+			}
+			if (c == '\\' || (c >= 0 && c < 0x20)) {
+				return -1;
+			}
+			mPos++;
+		}
+		return -1;
+	}
+
+	/**
+	 * Moves past a string , escape sequences are allowed as its content is not needed
+	 */
+	private boolean skipString() {
+		while (mPos < mLength) {
+			byte c = mBody.getByte(mPos++);
+			if (c == '"') {
+				return true;
+			}
+			if (c >= 0 && c < 0x20) {
+				return false;
+			}
+			if (c == '\\') {
+				if (mPos >= mLength) {
+					return false;
+				}
+				byte escaped = mBody.getByte(mPos++);
+				if (escaped == 'u') {
+					for (int i = 0; i < 4; i++) {
+						if (mPos >= mLength || Character.digit(mBody.getByte(mPos++), 16) < 0) {
+							return false;
+						}
+					}
+				} else if ("\"\\/bfnrt".indexOf(escaped) < 0) {
+					return false;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Json numbers behave like the legacy path , where integers were read as Integer/Long and decimals as Double
+	 * before being printed and parsed again
+	 */
+	private void assignFromNumber(int field, int start, int end, boolean integer) {
+		if (field == AMOUNT_FIELD) {
+			if (integer && end - start <= MAX_SIGNIFICANT_DIGITS) {
+				mAmount = parseLong(start, end);
+			} else {
+				mAmount = parseDouble(start, end);
+			}
+			mAmountValid = true;
+		} else if (field == TIMESTAMP_FIELD) {
+			mTimestampValid = integer && parseTimestamp(start, end);
+		} else if (field == KEY_FIELD) {
+			mKeyValid = false;
+		}
+	}
+
+	/**
+	 * String values behave like Double.parseDouble / Long.parseLong on the string content
+	 */
+	private void assignFromString(int field, int start, int end) {
+		if (field == AMOUNT_FIELD) {
+			try {
+				mAmount = parseDouble(start, end);
+				mAmountValid = true;
+			} catch (NumberFormatException e) {
+				mAmountValid = false;
+			}
+		} else if (field == TIMESTAMP_FIELD) {
+			int digitsStart = start < end && (mBody.getByte(start) == '-' || mBody.getByte(start) == '+') ? start + 1 : start;
+			boolean digitsOnly = digitsStart < end;
+			for (int i = digitsStart; i < end && digitsOnly; i++) {
+				digitsOnly = isDigit(mBody.getByte(i));
+			}
+			mTimestampValid = digitsOnly && parseTimestamp(start, end);
+		} else if (field == KEY_FIELD) {
+			mKey = mBody.getString(start, end);
+			mKeyValid = TransactionFactory.isValidKey(mKey);
+		}
+	}
+
+	private void invalidate(int field) {
+		if (field == AMOUNT_FIELD) {
+			mAmountValid = false;
+		} else if (field == TIMESTAMP_FIELD) {
+			mTimestampValid = false;
+		} else if (field == KEY_FIELD) {
+			mKeyValid = false;
+		}
+	}
+
+	/**
+	 * @param start - optional sign followed by digits only
+	 * @return false if the value does not fit into a long
+	 */
+	private boolean parseTimestamp(int start, int end) {
+		boolean negative = mBody.getByte(start) == '-';
+		int i = mBody.getByte(start) == '-' || mBody.getByte(start) == '+' ? start + 1 : start;
+		long value = 0;
+		for (; i < end; i++) {
+			int digit = mBody.getByte(i) - '0';
+			if (value < (Long.MIN_VALUE + digit) / 10) {
+				return false;
+			}
+			// accumulate negatively , so that Long.MIN_VALUE can be represented
+			value = value * 10 - digit;
+		}
+		if (!negative && value == Long.MIN_VALUE) {
+			return false;
+		}
+		mTimestamp = negative ? value : -value;
+		return true;
+	}
+
+	/**
+	 * @param start - integer token of at most 18 digits
+	 */
+	private long parseLong(int start, int end) {
+		boolean negative = mBody.getByte(start) == '-';
+		long value = 0;
+		for (int i = negative ? start + 1 : start; i < end; i++) {
+			value = value * 10 + (mBody.getByte(i) - '0');
+		}
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Decimal number with at most 18 significant digits and a power of ten up to 22 is exactly representable
+	 * as mantissa and power , so a single multiplication / division gives the correctly rounded double
+	 * (Clinger's fast path). Everything else goes through Double.parseDouble.
+	 */
+	private double parseDouble(int start, int end) {
+		int i = start;
+		boolean negative = false;
+		if (i < end && (mBody.getByte(i) == '-' || mBody.getByte(i) == '+')) {
+			negative = mBody.getByte(i) == '-';
+			i++;
+		}
+		long mantissa = 0;
+		int significantDigits = 0;
+		int exponent = 0;
+		int integerDigits = 0;
+		// every digit after the first non zero one counts , also those beyond the range of the mantissa
+		for (; i < end && isDigit(mBody.getByte(i)); i++, integerDigits++) {
+			significantDigits += significantDigits > 0 || mBody.getByte(i) != '0' ? 1 : 0;
+			if (significantDigits <= MAX_SIGNIFICANT_DIGITS) {
+				mantissa = mantissa * 10 + (mBody.getByte(i) - '0');
+			}
+		}
+		int fractionDigits = 0;
+		if (i < end && mBody.getByte(i) == '.') {
+			for (i++; i < end && isDigit(mBody.getByte(i)); i++, fractionDigits++) {
+				significantDigits += significantDigits > 0 || mBody.getByte(i) != '0' ? 1 : 0;
+				if (significantDigits <= MAX_SIGNIFICANT_DIGITS) {
+					mantissa = mantissa * 10 + (mBody.getByte(i) - '0');
+				}
+				exponent--;
+			}
+		}
+		boolean fastPath = integerDigits > 0 && significantDigits <= MAX_SIGNIFICANT_DIGITS
+				&& (fractionDigits > 0 || i == end || mBody.getByte(i - 1) != '.');
+		if (fastPath && i < end && (mBody.getByte(i) == 'e' || mBody.getByte(i) == 'E')) {
+			i++;
+			boolean negativeExponent = false;
+			if (i < end && (mBody.getByte(i) == '-' || mBody.getByte(i) == '+')) {
+				negativeExponent = mBody.getByte(i) == '-';
+				i++;
+			}
+			int exponentStart = i;
+			int explicitExponent = 0;
+			for (; i < end && isDigit(mBody.getByte(i)) && explicitExponent < 1000; i++) {
+				explicitExponent = explicitExponent * 10 + (mBody.getByte(i) - '0');
+			}
+			fastPath = i > exponentStart;
+			exponent += negativeExponent ? -explicitExponent : explicitExponent;
+		}
+		if (fastPath && i == end) {
+			if (mantissa == 0) {
+				return negative ? -0.0d : 0.0d;
+			}
+			if (mantissa <= MAX_EXACT_MANTISSA && exponent >= -22 && exponent <= 22) {
+				double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+				return negative ? -value : value;
+			}
+		}
+		return Double.parseDouble(mBody.getString(start, end, "ISO-8859-1"));
+	}
+
+	private boolean matches(int start, int end, byte[] expected) {
+		if (end - start != expected.length) {
+			return false;
+		}
+		for (int i = 0; i < expected.length; i++) {
+			if (mBody.getByte(start + i) != expected[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean consumeLiteral(byte[] literal) {
+		if (mPos + literal.length > mLength || !matches(mPos, mPos + literal.length, literal)) {
+			return false;
+		}
+		mPos += literal.length;
+		return true;
+	}
+
+	private boolean consume(int expected) {
+		if (mPos < mLength && mBody.getByte(mPos) == expected) {
+			mPos++;
+			return true;
+		}
+		return false;
+	}
+
+	private void skipWhitespace() {
+		while (mPos < mLength) {
+			byte c = mBody.getByte(mPos);
+			if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+				return;
+			}
+			mPos++;
+		}
+	}
+
+	private static boolean isDigit(byte c) {
+		return c >= '0' && c <= '9';
+	}
+}
@@ -0,0 +1,169 @@
+package com.stats.restverticle;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.stats.restservice.internal.metrics.ServiceMetrics;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Limits shared by all RestAPIVerticle instances , so that a burst is shed early with 429 / 503 instead of buffering
+ * bodies and queueing statistics requests until the heap runs out. Every limit is a lock free counter.
+ *
+ * The rate limit of POST requests is a token bucket , implemented as the equivalent generic cell rate algorithm
+ * (a single theoretical arrival time instead of a token count and a refill timestamp).
+ */
+public class AdmissionControl {
+
+	/**
+	 * Maximum number of requests in progress (body being received , waiting for or on a worker thread) over all
+	 * instances , beyond they are answered with 503. Long lived statistics streams and /metrics are not counted
+	 */
+	public static final String HTTP_MAX_IN_FLIGHT = "HTTP_MAX_IN_FLIGHT";
+	/**
+	 * Maximum number of statistics requests handed to executeBlocking and not completed yet , beyond 503
+	 */
+	public static final String HTTP_MAX_BLOCKING_QUEUE = "HTTP_MAX_BLOCKING_QUEUE";
+	/**
+	 * Maximum size of a POST body , larger ones are answered with 413 while they are received
+	 */
+	public static final String HTTP_MAX_BODY_BYTES = "HTTP_MAX_BODY_BYTES";
+	/**
+	 * POST requests per second over all instances , beyond 429 , not limited by default
+	 */
+	public static final String INGEST_RATE_LIMIT = "INGEST_RATE_LIMIT";
+	/**
+	 * POST requests admitted at once above the rate , defaults to one second of the rate
+	 */
+	public static final String INGEST_RATE_BURST = "INGEST_RATE_BURST";
+
+	static final int DEFAULT_MAX_IN_FLIGHT = 10000;
+	static final int DEFAULT_MAX_BLOCKING_QUEUE = 1000;
+	static final long DEFAULT_MAX_BODY_BYTES = 1024 * 1024;
+	/**
+	 * Retry-After of a request shed because of the in flight or blocking queue limits
+	 */
+	static final long OVERLOAD_RETRY_AFTER_SECONDS = 1;
+	static final int UNLIMITED = 0;
+
+	private final int mMaxInFlight;
+	private final int mMaxBlockingQueue;
+	private final long mMaxBodyBytes;
+	private final long mEmissionIntervalNanos;
+	private final long mBurstToleranceNanos;
+	private final AtomicInteger mInFlight = new AtomicInteger();
+	private final AtomicInteger mBlockingQueue = new AtomicInteger();
+	/**
+	 * Time at which the bucket is full again (in System.nanoTime) , every admitted request moves it by one interval
+	 */
+	private final AtomicLong mTheoreticalArrival = new AtomicLong(System.nanoTime());
+
+	/**
+	 * Without limits
+	 */
+	public AdmissionControl() {
+		this(UNLIMITED, UNLIMITED, UNLIMITED, UNLIMITED, UNLIMITED);
+	}
+
+	/**
+	 * Reads the limits from the configuration and exposes the in flight requests and the
+	 * blocking queue depth as gauges
+	 * @param config
+	 * @param metrics
+	 */
+	public AdmissionControl(JsonObject config, ServiceMetrics metrics) {
+		this(config.getInteger(HTTP_MAX_IN_FLIGHT, DEFAULT_MAX_IN_FLIGHT),
+				config.getInteger(HTTP_MAX_BLOCKING_QUEUE, DEFAULT_MAX_BLOCKING_QUEUE),
+				config.getLong(HTTP_MAX_BODY_BYTES, DEFAULT_MAX_BODY_BYTES),
+				config.getInteger(INGEST_RATE_LIMIT, UNLIMITED),
+				config.getInteger(INGEST_RATE_BURST, UNLIMITED));
+		metrics.registerGauge("stats_http_in_flight_requests", "Requests in progress", mInFlight::get);
+		metrics.registerGauge("stats_execute_blocking_queue_depth", "Statistics requests handed to executeBlocking and not completed",
+				mBlockingQueue::get);
+	}
+
+	/**
+	 * @param maxInFlight - 0 for no limit
+	 * @param maxBlockingQueue - 0 for no limit
+	 * @param maxBodyBytes - 0 for no limit
+	 * @param rateLimit - POST requests per second , 0 for no limit
+	 * @param burst - POST requests admitted at once , 0 for one second of the rate
+	 */
+	public AdmissionControl(int maxInFlight, int maxBlockingQueue, long maxBodyBytes, int rateLimit, int burst) {
+		mMaxInFlight = maxInFlight;
+		mMaxBlockingQueue = maxBlockingQueue;
+		mMaxBodyBytes = maxBodyBytes;
+		mEmissionIntervalNanos = rateLimit > 0 ? TimeUnit.SECONDS.toNanos(1) / rateLimit : 0;
+		// a burst of n fits if the arrival time may run n - 1 intervals ahead
+		mBurstToleranceNanos = mEmissionIntervalNanos * (Math.max(burst > 0 ? burst : rateLimit, 1) - 1);
+	}
+
+	/**
+	 * @return false if the in flight limit is reached , otherwise the request has to be released once it ended
+	 */
+	public boolean tryAcquire() {
+		return tryAcquire(mInFlight, mMaxInFlight);
+	}
+
+	public void release() {
+		mInFlight.decrementAndGet();
+	}
+
+	/**
+	 * @return false if the blocking queue is full , otherwise the task has to be released once it completed
+	 */
+	public boolean tryAcquireBlocking() {
+		return tryAcquire(mBlockingQueue, mMaxBlockingQueue);
+	}
+
+	public void releaseBlocking() {
+		mBlockingQueue.decrementAndGet();
+	}
+
+	/**
+	 * Takes a token of the ingest rate limit
+	 * @return 0 if the request is admitted , otherwise the nanos until a token is available
+	 */
+	public long tryAcquireIngest() {
+		if (mEmissionIntervalNanos == 0) {
+			return 0;
+		}
+		while (true) {
+			long now = System.nanoTime();
+			long arrival = mTheoreticalArrival.get();
+			long earliest = arrival - mBurstToleranceNanos;
+			if (now - earliest < 0) {
+				return earliest - now;
+			}
+			long next = (now - arrival > 0 ? now : arrival) + mEmissionIntervalNanos;
+			if (mTheoreticalArrival.compareAndSet(arrival, next)) {
+				return 0;
+			}
+		}
+	}
+
+	/**
+	 * @return maximum size of a POST body , 0 for no limit
+	 */
+	public long getMaxBodyBytes() {
+		return mMaxBodyBytes;
+	}
+
+	public int getInFlight() {
+		return mInFlight.get();
+	}
+
+	public int getBlockingQueueDepth() {
+		return mBlockingQueue.get();
+	}
+
+	private static boolean tryAcquire(AtomicInteger counter, int limit) {
+		if (counter.incrementAndGet() > limit && limit != UNLIMITED) {
+			counter.decrementAndGet();
+			return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,58 @@
+package com.stats.restverticle;
+
+import java.util.function.Supplier;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+/**
+ * Runs the blocking work of a RestAPIVerticle (computing and encoding statistics , scraping the metrics) off its
+ * event loop and hands the result back to it
+ */
+interface BlockingExecutor {
+
+	/**
+	 * Configuration key of the executor , "worker" (default) for the Vert.x worker pool or "virtual" for a virtual
+	 * thread per task , which falls back to the worker pool on a JDK without virtual threads (before 21)
+	 */
+	String STATS_BLOCKING_EXECUTOR = "STATS_BLOCKING_EXECUTOR";
+	String WORKER = "worker";
+	String VIRTUAL = "virtual";
+
+	/**
+	 * @param task - run off the event loop , may block
+	 * @param handler - called on the context that called this method with the result or the failure of the task
+	 */
+	<T> void execute(Supplier<T> task, Handler<AsyncResult<T>> handler);
+
+	/**
+	 * @return WORKER or VIRTUAL
+	 */
+	String getName();
+
+	/**
+	 * Stops accepting tasks , running ones complete
+	 */
+	void close();
+
+	/**
+	 * @param vertx
+	 * @param name - WORKER or VIRTUAL
+	 * @return the executor , the worker pool if virtual threads are not available
+	 */
+	static BlockingExecutor create(Vertx vertx, String name) {
+		if (VIRTUAL.equals(name)) {
+			if (VirtualThreadExecutor.isAvailable()) {
+				return new VirtualThreadExecutor(vertx);
+			}
+			Logger logger = LoggerFactory.getLogger(BlockingExecutor.class);
+			logger.warn("Virtual threads need JDK 21 or newer , running blocking work on the worker pool");
+		} else if (!WORKER.equals(name)) {
+			throw new IllegalArgumentException("Unknown " + STATS_BLOCKING_EXECUTOR + " " + name);
+		}
+		return new WorkerPoolExecutor(vertx);
+	}
+}
@@ -0,0 +1,87 @@
+package com.stats.restverticle;
+
+import java.util.UUID;
+
+import com.stats.restservice.internal.aggregator.ClusterWindowAggregator;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+/**
+ * Verticle that exchanges the partials of the statistics window with the other nodes of the cluster. Every interval
+ * the buckets of this node (a few KB , independent of the transaction rate , plus with STATS_QUANTILES up to 12 bytes
+ * per non empty sketch bin , at most 2 * 692 bins per bucket at 1%) are published on the event bus and the
+ * partials published by the other nodes are handed to the ClusterWindowAggregator.
+ */
+public class ClusterStatisticsVerticle extends AbstractVerticle {
+
+	/**
+	 * Event bus address of the partials , every node publishes to and consumes from it
+	 */
+	public static final String PARTIALS_ADDRESS = "statistics.partials";
+	static final String NODE_HEADER = "node";
+
+	private static final Logger logger = LoggerFactory.getLogger(ClusterStatisticsVerticle.class);
+
+	private final ClusterWindowAggregator mAggregator;
+	private final long mInterval;
+	private final String mNodeId = UUID.randomUUID().toString();
+	private MessageConsumer<Buffer> mConsumer;
+	private long mID;
+
+	/**
+	 * @param aggregator - aggregator of the statistics service of this node
+	 * @param interval - publish interval in millis
+	 */
+	public ClusterStatisticsVerticle(ClusterWindowAggregator aggregator, long interval) {
+		mAggregator = aggregator;
+		mInterval = interval;
+	}
+
+	/**
+	 * Invoked when this verticle is deployed. (Life cycle method to start the verticle)
+	 */
+	@Override
+	public void start() throws Exception {
+		mConsumer = vertx.eventBus().consumer(PARTIALS_ADDRESS, this::mergePartials);
+		// encoding is a walk over a fixed number of buckets , cheap enough for the event loop
+		mID = vertx.setPeriodic(mInterval, id -> {
+			try {
+				vertx.eventBus().publish(PARTIALS_ADDRESS, Buffer.buffer(mAggregator.encodePartials()),
+						new DeliveryOptions().addHeader(NODE_HEADER, mNodeId));
+			} catch (Exception e) {
+				logger.error("Encountered exception while publishing statistics partials " + e);
+			}
+		});
+	}
+
+	@Override
+	public void stop() throws Exception {
+		vertx.cancelTimer(mID);
+		mConsumer.unregister();
+	}
+
+	private void mergePartials(Message<Buffer> message) {
+		String node = message.headers().get(NODE_HEADER);
+		if (node == null || mNodeId.equals(node)) {
+			return;
+		}
+		try {
+			mAggregator.mergePartials(node, message.body().getBytes());
+		} catch (Exception e) {
+			logger.warn("Ignoring statistics partials of node " + node + " " + e);
+		}
+	}
+
+	/**
+	 * @return id of this node in the published partials
+	 */
+	String getNodeId() {
+		return mNodeId;
+	}
+}
@@ -1,13 +1,17 @@
 package com.stats.restverticle;
 
 import com.stats.restservice.external.services.IStatisticsService;
+import com.stats.restservice.internal.metrics.ServiceMetrics;
+import com.stats.restservice.internal.services.StatisticsOptions;
 
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
 
 /**
- * Verticle that periodically removes the transactions that are older than 60 seconds 
+ * Verticle that periodically removes the transactions that are older than 60 seconds.
+ * Expiry is incremental , every tick only drops the buckets that fell out of the window since the previous tick ,
+ * so ticking once per bucket (the default) keeps every tick O(1) and short enough for the event loop.
  */
 public class PeriodicCleanerVerticle extends AbstractVerticle{
 
@@ -15,24 +19,42 @@ public class PeriodicCleanerVerticle extends AbstractVerticle{
 	private static final Logger logger = LoggerFactory.getLogger(PeriodicCleanerVerticle.class);
 	
 	/**
-	 * Currently being used for junit purpose, depending on requirements we can consider
-	 * custom delay at later point of time
+	 * Configuration key of the tick interval , defaults to the length of one bucket of the window
 	 */
-	private int mDelay = 8000;
+	public static final String STATS_CLEANER_INTERVAL_MS = "STATS_CLEANER_INTERVAL_MS";
+	
+	/**
+	 * Explicit delay , used for junit purpose , otherwise the configured interval
+	 */
+	private int mDelay = -1;
 	private long mID;
+	private final ServiceMetrics mMetrics;
 	
 	public PeriodicCleanerVerticle(IStatisticsService statisticsService ) {
 		this(statisticsService , -1);
 	}
 	
+	/**
+	 * @param statisticsService
+	 * @param metrics - the duration of every run is recorded to
+	 */
+	public PeriodicCleanerVerticle(IStatisticsService statisticsService , ServiceMetrics metrics) {
+		this(statisticsService , -1 , metrics);
+	}
+	
 	/**
 	 * To be used in conjunction with junit tests
 	 * @param statisticsService
 	 * @param delay
 	 */
 	PeriodicCleanerVerticle(IStatisticsService statisticsService  , int delay) {
+		this(statisticsService , delay , new ServiceMetrics());
+	}
+	
+	private PeriodicCleanerVerticle(IStatisticsService statisticsService  , int delay , ServiceMetrics metrics) {
 		mStatService = statisticsService;
-		mDelay = delay > 0 ? delay : mDelay;
+		mDelay = delay;
+		mMetrics = metrics;
 	}
 	
 	/**
@@ -40,14 +62,17 @@ public class PeriodicCleanerVerticle extends AbstractVerticle{
 	 */
 	@Override
 	public void start() throws Exception {
-		//This timer will be caller every 12 seconds - log error and ignore any exceptions so that event loop will be intact
-		mID = vertx.setPeriodic(mDelay, id -> {
+		long interval = mDelay > 0 ? mDelay : config().getLong(STATS_CLEANER_INTERVAL_MS, StatisticsOptions.DEFAULT_RESOLUTION_MS);
+		logger.info("Removing stale transactions every " + interval + " ms");
+		//log error and ignore any exceptions so that event loop will be intact
+		mID = vertx.setPeriodic(interval, id -> {
+				long start = System.nanoTime();
 				try {
-					logger.info("About to removeStaleTransactions");
 					mStatService.removeStaleTransactions();
 				}catch(Exception e) {
 					logger.error("Encountered exception while removing stale transactions" +e);
 				}
+				mMetrics.recordCleanerRun(System.nanoTime() - start);
 			});
 	}
 	
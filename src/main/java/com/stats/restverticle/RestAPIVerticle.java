@@ -1,15 +1,28 @@
 package com.stats.restverticle;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Supplier;
 
 import com.stats.restservice.external.services.IStatisticsService;
 import com.stats.restservice.external.services.ITransactionService;
+import com.stats.restservice.internal.metrics.ServiceMetrics;
+import com.stats.restservice.internal.metrics.ServiceMetrics.Route;
+import com.stats.restservice.internal.metrics.ServiceMetrics.ShedReason;
+import com.stats.restservice.internal.services.IdempotencyKeys;
+import com.stats.restservice.transaction.TransactionBatch;
+import com.stats.restservice.transaction.TransactionFactory;
+import com.stats.restservice.utils.CustomDateTimeUtils;
 
-import io.vertx.config.ConfigRetriever;
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpMethod;
 import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.DecodeException;
 import io.vertx.core.json.Json;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.logging.Logger;
@@ -21,17 +34,62 @@ import io.vertx.ext.web.handler.BodyHandler;
 public class RestAPIVerticle extends AbstractVerticle {  
 	
 	static final String ADD_TRANSACTION_END_POINT = "/transactions";
+	static final String ADD_TRANSACTION_BATCH_END_POINT = "/transactions/batch";
 	static final String GET_STATS_END_POINT = "/statistics";
 	static final String CONTENT_TYPE = "content-type";
 	static final String APPLICATION_JSON_CHARSET_UTF_8 = "application/json; charset=utf-8";
+	static final String ACCEPTED = "accepted";
+	static final String REJECTED = "rejected";
+	static final String WINDOW_PARAM = "window";
+	static final String KEY_PARAM = "key";
+	static final String GET_KEYED_STATS_END_POINT = GET_STATS_END_POINT + "/:" + KEY_PARAM;
+	static final String GET_STATS_STREAM_END_POINT = GET_STATS_END_POINT + "/stream";
+	static final String TEXT_EVENT_STREAM = "text/event-stream";
+	static final String METRICS_END_POINT = "/metrics";
+	static final String RETRY_AFTER = "retry-after";
+	static final String IDEMPOTENCY_KEY = "idempotency-key";
+	/**
+	 * Failure of a statistics computation that was not started because the blocking queue is full
+	 */
+	private static final Exception BLOCKING_QUEUE_FULL = new IllegalStateException("Blocking queue full");
+	/**
+	 * Consecutive frames a subscriber may miss because its connection does not drain , before it is closed
+	 */
+	static final int MAX_DROPPED_FRAMES = 10;
 	private ITransactionService mTransactionService ;
 	private IStatisticsService mStatistcsService;
+	private StatisticsSnapshot mSnapshot;
+	private StatisticsStream mStream;
+	private final ServiceMetrics mMetrics;
+	private final AdmissionControl mAdmission;
+	/**
+	 * Shared by all admitted requests , so that releasing them does not allocate
+	 */
+	private final Handler<Void> mRelease;
+	private StatisticsCoalescer mCoalescer;
+	private BlockingExecutor mBlockingExecutor;
+	/**
+	 * Subscribers of GET /statistics/stream connected to this instance , only used on its event loop
+	 */
+	private final List<Subscriber> mSubscribers = new ArrayList<>();
 	 private static final Logger logger = LoggerFactory.getLogger(RestAPIVerticle.class);
 
     
 	public RestAPIVerticle(ITransactionService transactionService , IStatisticsService statisticsService) {
-		mTransactionService = transactionService;
-		mStatistcsService = statisticsService;
+		this(new RestVerticleOptions(transactionService, statisticsService));
+	}
+	
+	/**
+	 * @param options - services , snapshot , stream , metrics and admission control shared by all instances
+	 */
+	public RestAPIVerticle(RestVerticleOptions options) {
+		mTransactionService = options.getTransactionService();
+		mStatistcsService = options.getStatisticsService();
+		mSnapshot = options.getSnapshot();
+		mStream = options.getStream();
+		mMetrics = options.getMetrics();
+		mAdmission = options.getAdmission();
+		mRelease = v -> mAdmission.release();
 	}
 
 	/**
@@ -39,6 +97,9 @@ public class RestAPIVerticle extends AbstractVerticle {
 	 */
 	@Override
 	public void start(Future<Void> fut) {
+		mCoalescer = new StatisticsCoalescer(config().getLong(StatisticsCoalescer.STATS_COALESCE_MAX_AGE_MS, 0l));
+		mBlockingExecutor = BlockingExecutor.create(vertx, config().getString(BlockingExecutor.STATS_BLOCKING_EXECUTOR,
+				BlockingExecutor.WORKER));
 	
 	    // Create a router object.
 	    Router router = Router.router(vertx);
@@ -51,76 +112,339 @@ public class RestAPIVerticle extends AbstractVerticle {
 	            .end("<h1>Welcome to statistics application</h1>");
 	    });
 	    
-	    //Bind body handler to fetch the json body of post requests
-	    router.route().handler(BodyHandler.create());
+	    // admission control first , an overloaded instance must not even buffer the body
+	    router.route().handler(this::admit);
+	
+	    //Bind body handler to fetch the json body of post requests , GET requests have no body to buffer
+	    router.post().handler(BodyHandler.create().setBodyLimit(mAdmission.getMaxBodyBytes() > 0 ? mAdmission.getMaxBodyBytes() : -1));
+	    router.post().failureHandler(routingContext -> {
+	    	if (routingContext.statusCode() == 413) {
+	    		mMetrics.requestShed(ShedReason.BODY_TOO_LARGE);
+	    	}
+	    	routingContext.next();
+	    });
 	
 	    // Bind respective end points 
 	    router.get(GET_STATS_END_POINT).handler(this::getStats);
+	    router.get(METRICS_END_POINT).handler(this::getMetrics);
+	    if (mStream != null) {
+	    	// before the keyed statistics , which would take "stream" for a key
+	    	router.get(GET_STATS_STREAM_END_POINT).handler(this::subscribe);
+	    	// unregistered along with the verticle
+	    	vertx.eventBus().localConsumer(StatisticsStream.TICK_ADDRESS, message -> pushFrames());
+	    }
+	    router.get(GET_KEYED_STATS_END_POINT).handler(this::getKeyedStats);
 	    router.post(ADD_TRANSACTION_END_POINT).handler(this::addTransaction);
+	    router.post(ADD_TRANSACTION_BATCH_END_POINT).handler(this::addTransactionBatch);
 	
-	    ConfigRetriever retriever = ConfigRetriever.create(vertx);
-	    retriever.getConfig(
-	        config -> {
-	            if (config.failed()) {
-	                fut.fail(config.cause());
-	            } else {
-	                // Create the HTTP server and pass the "accept" method to the request handler.
-	                vertx
-	                    .createHttpServer()
-	                    .requestHandler(router::accept)
-	                    .listen(
-	                        // Retrieve the port from the configuration,
-	                        // default to 8080.
-	                        config.result().getInteger("HTTP_PORT", 8080),
-	                        result -> {
-	                            if (result.succeeded()) {
-	                                fut.complete();
-	                            } else {
-	                                fut.fail(result.cause());
-	                            }
-	                        }
-	                    );
+	    // Create the HTTP server and pass the "accept" method to the request handler.
+	    vertx
+	        .createHttpServer()
+	        .requestHandler(router::accept)
+	        .listen(
+	            // Retrieve the port from the configuration the application resolved , default to 8080.
+	            StatisticsApplication.getPort(config()),
+	            result -> {
+	                if (result.succeeded()) {
+	                    fut.complete();
+	                } else {
+	                    fut.fail(result.cause());
+	                }
 	            }
-	        }
-	    );
+	        );
+	}
+	
+	@Override
+	public void stop() throws Exception {
+		mBlockingExecutor.close();
+	}
+	
+	/**
+	 * Sheds the request with 503 if too many are in progress and a POST with 429 beyond the ingest rate limit ,
+	 * both with a Retry-After header. Admitted requests are released when their response ended or the connection closed
+	 * @param routingContext
+	 */
+	private void admit(RoutingContext routingContext) {
+		String path = routingContext.request().path();
+		if (GET_STATS_STREAM_END_POINT.equals(path) || METRICS_END_POINT.equals(path)) {
+			// long lived or needed to see the overload , never shed
+			routingContext.next();
+			return;
+		}
+		if (!mAdmission.tryAcquire()) {
+			shed(routingContext, 503, ShedReason.IN_FLIGHT, AdmissionControl.OVERLOAD_RETRY_AFTER_SECONDS);
+			return;
+		}
+		routingContext.response().endHandler(mRelease);
+		if (routingContext.request().method() == HttpMethod.POST) {
+			long waitNanos = mAdmission.tryAcquireIngest();
+			if (waitNanos > 0) {
+				shed(routingContext, 429, ShedReason.RATE_LIMIT, (waitNanos + 999_999_999) / 1_000_000_000);
+				return;
+			}
+		}
+		routingContext.next();
+	}
+	
+	private void shed(RoutingContext routingContext, int statusCode, ShedReason reason, long retryAfterSeconds) {
+		mMetrics.requestShed(reason);
+		routingContext.response().putHeader(RETRY_AFTER, Long.toString(retryAfterSeconds));
+		sendResponeWithStatus(routingContext, statusCode);
 	}
 	
 	/**
-	 * Blocking call to fetch the statistics in case if there is humungous input traffic, avoid blocking the event loop thread
+	 * Blocking call to fetch the statistics in case if there is humungous input traffic, avoid blocking the event loop thread.
+	 * The optional window parameter (e.g 10s , 5m) selects one of the configured windows , default is 60 seconds.
+	 * Concurrent requests of a window are coalesced into one computation , see StatisticsCoalescer
 	 * @param routingContext
 	 */
 	private void getStats(RoutingContext routingContext) {
-		vertx.executeBlocking(future -> {
-		    future.complete(mStatistcsService.getStatistics());
-		}, res -> {
-		    if (res.succeeded()) {
-		    	Object result = res.result();
+		long start = System.nanoTime();
+		long windowMillis = getRequestedWindow(routingContext);
+		if (windowMillis < 0) {
+			sendResponeWithStatus(routingContext, 400);
+			mMetrics.recordRequest(Route.STATISTICS, System.nanoTime() - start);
+			return;
+		}
+		if (mSnapshot != null) {
+			// snapshot mode - already encoded , nothing to compute on the request path
+			routingContext.response()
+	        .putHeader(CONTENT_TYPE, APPLICATION_JSON_CHARSET_UTF_8)
+	        .end(mSnapshot.get(windowMillis));
+			mMetrics.recordRequest(Route.STATISTICS, System.nanoTime() - start);
+			return;
+		}
+		// requests that arrive while the window is computed share that computation
+		Handler<AsyncResult<String>> waiter = result -> sendStatistics(routingContext, Route.STATISTICS, start, result);
+		if (mCoalescer.join(windowMillis, waiter)) {
+			computeStatistics(() -> mStatistcsService.getStatistics(windowMillis), result -> {
+				if (result.succeeded()) {
+					mMetrics.statisticsComputed();
+				}
+				mCoalescer.complete(windowMillis, result);
+			});
+		} else {
+			mMetrics.statisticsCoalesced();
+		}
+	}
+	
+	/**
+	 * Counters and latency histograms in the Prometheus text format , the gauges of the windows are computed off
+	 * the event loop like the statistics
+	 * @param routingContext
+	 */
+	private void getMetrics(RoutingContext routingContext) {
+		long start = System.nanoTime();
+		// the window counts are computed like GET /statistics , so they take a place in the blocking queue
+		if (!mAdmission.tryAcquireBlocking()) {
+			// the counters are still served , they are what shows the overload
+			routingContext.response()
+			.putHeader(CONTENT_TYPE, ServiceMetrics.CONTENT_TYPE)
+			.end(mMetrics.scrape(null));
+			mMetrics.recordRequest(Route.METRICS, System.nanoTime() - start);
+			return;
+		}
+		mBlockingExecutor.<String>execute(() -> mMetrics.scrape(mStatistcsService), res -> {
+			mAdmission.releaseBlocking();
+			if (res.succeeded()) {
 				routingContext.response()
-		        .putHeader(CONTENT_TYPE, APPLICATION_JSON_CHARSET_UTF_8)
-		        .end(Json.encodePrettily(result));
-		    } else {
-		    	logger.info("Future completion of Get request encountered error");
-		    	routingContext.response()
-		        .putHeader(CONTENT_TYPE, APPLICATION_JSON_CHARSET_UTF_8)
-		        .setStatusCode(500)
-		        .end();
-		    }
+				.putHeader(CONTENT_TYPE, ServiceMetrics.CONTENT_TYPE)
+				.end(res.result());
+			} else {
+				logger.info("Future completion of metrics request encountered error");
+				routingContext.response().setStatusCode(500).end();
+			}
+			mMetrics.recordRequest(Route.METRICS, System.nanoTime() - start);
+		});
+	}
+	
+	/**
+	 * Server-Sent Events stream of the statistics , the current frame is sent right away and then one per tick of
+	 * StatisticsStreamVerticle. Same window parameter as {@link #getStats(RoutingContext)}
+	 * @param routingContext
+	 */
+	private void subscribe(RoutingContext routingContext) {
+		long windowMillis = getRequestedWindow(routingContext);
+		if (windowMillis < 0) {
+			sendResponeWithStatus(routingContext, 400);
+			return;
+		}
+		HttpServerResponse response = routingContext.response();
+		response.setChunked(true)
+		.putHeader(CONTENT_TYPE, TEXT_EVENT_STREAM)
+		.putHeader("cache-control", "no-cache")
+		.write(mStream.get(windowMillis));
+		Subscriber subscriber = new Subscriber(response, windowMillis);
+		mSubscribers.add(subscriber);
+		response.closeHandler(v -> mSubscribers.remove(subscriber));
+	}
+	
+	/**
+	 * Writes the frames of the last tick to every subscriber. A subscriber whose connection does not drain misses
+	 * frames instead of buffering them , the next frame carries the complete statistics anyway , and is closed
+	 * after MAX_DROPPED_FRAMES consecutive misses
+	 */
+	private void pushFrames() {
+		// backwards , so that closed subscribers can be removed on the way
+		for (int i = mSubscribers.size() - 1; i >= 0; i--) {
+			Subscriber subscriber = mSubscribers.get(i);
+			if (subscriber.mResponse.writeQueueFull()) {
+				if (++subscriber.mDroppedFrames > MAX_DROPPED_FRAMES) {
+					logger.info("Closing statistics stream of a subscriber that does not keep up");
+					mSubscribers.remove(i);
+					subscriber.mResponse.close();
+				}
+				continue;
+			}
+			subscriber.mDroppedFrames = 0;
+			subscriber.mResponse.write(mStream.get(subscriber.mWindowMillis));
+		}
+	}
+	
+	/**
+	 * Statistics of the transactions computed with the given key , same window parameter as {@link #getStats(RoutingContext)}
+	 * @param routingContext
+	 */
+	private void getKeyedStats(RoutingContext routingContext) {
+		long start = System.nanoTime();
+		String key = routingContext.request().getParam(KEY_PARAM);
+		long windowMillis = getRequestedWindow(routingContext);
+		if (windowMillis < 0 || !TransactionFactory.isValidKey(key)) {
+			sendResponeWithStatus(routingContext, 400);
+			mMetrics.recordRequest(Route.KEYED_STATISTICS, System.nanoTime() - start);
+			return;
+		}
+		computeStatistics(() -> mStatistcsService.getStatistics(key, windowMillis),
+				result -> sendStatistics(routingContext, Route.KEYED_STATISTICS, start, result));
+	}
+	
+	/**
+	 * @return the window in millis , -1 if the window parameter is malformed or not configured
+	 */
+	private long getRequestedWindow(RoutingContext routingContext) {
+		String window = routingContext.request().getParam(WINDOW_PARAM);
+		long windowMillis;
+		try {
+			windowMillis = window == null ? CustomDateTimeUtils.DEFAULT_WINDOW_MILLIS : CustomDateTimeUtils.parseDuration(window);
+		} catch (IllegalArgumentException e) {
+			windowMillis = -1;
+		}
+		if (!mStatistcsService.getWindows().contains(windowMillis)) {
+			logger.debug("Statistics requested for unknown window " + window);
+			return -1;
+		}
+		return windowMillis;
+	}
+	
+	/**
+	 * Computes and encodes the statistics on the blocking executor , fails with BLOCKING_QUEUE_FULL right away if too many
+	 * computations are queued already
+	 * @param statistics
+	 * @param handler - called on the event loop of this verticle
+	 */
+	private void computeStatistics(Supplier<Map<String, Number>> statistics, Handler<AsyncResult<String>> handler) {
+		if (!mAdmission.tryAcquireBlocking()) {
+			handler.handle(Future.failedFuture(BLOCKING_QUEUE_FULL));
+			return;
+		}
+		long submitted = System.nanoTime();
+		mBlockingExecutor.<String>execute(() -> {
+			mMetrics.recordBlockingWait(System.nanoTime() - submitted);
+		    return Json.encodePrettily(statistics.get());
+		}, res -> {
+			mAdmission.releaseBlocking();
+			handler.handle(res);
 		});
 	}
 	
+	private void sendStatistics(RoutingContext routingContext, Route route, long start, AsyncResult<String> result) {
+	    if (result.succeeded()) {
+			routingContext.response()
+	        .putHeader(CONTENT_TYPE, APPLICATION_JSON_CHARSET_UTF_8)
+	        .end(result.result());
+	    } else if (result.cause() == BLOCKING_QUEUE_FULL) {
+	    	shed(routingContext, 503, ShedReason.BLOCKING_QUEUE, AdmissionControl.OVERLOAD_RETRY_AFTER_SECONDS);
+	    } else {
+	    	logger.info("Future completion of Get request encountered error");
+	    	routingContext.response()
+	        .putHeader(CONTENT_TYPE, APPLICATION_JSON_CHARSET_UTF_8)
+	        .setStatusCode(500)
+	        .end();
+	    }
+	    mMetrics.recordRequest(route, System.nanoTime() - start);
+	}
+	
+	/**
+	 * Adds a transaction , answered with 201 if accepted and 204 otherwise. A retry with the Idempotency-Key of an
+	 * accepted transaction is answered with 201 again without adding it twice , a malformed key with 400
+	 * @param routingContext
+	 */
 	private void addTransaction(RoutingContext routingContext) {
-		Supplier<JsonObject> jsonData =  () -> routingContext.getBodyAsJson();
-	    Optional<Boolean> status = mTransactionService.unMarshallTransactionData(jsonData);
+		long start = System.nanoTime();
+		String idempotencyKey = routingContext.request().getHeader(IDEMPOTENCY_KEY);
+		if (idempotencyKey != null && !IdempotencyKeys.isValidKey(idempotencyKey)) {
+			sendResponeWithStatus(routingContext, 400);
+			mMetrics.recordRequest(Route.TRANSACTIONS, System.nanoTime() - start);
+			return;
+		}
+	    Optional<Boolean> status = mTransactionService.unMarshallTransactionData(routingContext.getBody(), idempotencyKey);
 			if (status.isPresent()) {
 				sendResponeWithStatus(routingContext,201); 
 			} else {
 				sendResponeWithStatus(routingContext,204); 
 			}
+			mMetrics.recordRequest(Route.TRANSACTIONS, System.nanoTime() - start);
+	}
+
+	/**
+	 * Accepts a json array or newline delimited json of transactions , responds with the accepted / rejected counts
+	 * @param routingContext
+	 */
+	private void addTransactionBatch(RoutingContext routingContext) {
+		long start = System.nanoTime();
+		TransactionBatch batch;
+		try {
+			batch = mTransactionService.unMarshallTransactionBatch(routingContext.getBody());
+		} catch (DecodeException e) {
+			logger.info("Malformed transaction batch received " + e.getMessage());
+			sendResponeWithStatus(routingContext, 400);
+			mMetrics.recordRequest(Route.TRANSACTIONS_BATCH, System.nanoTime() - start);
+			return;
+		}
+		routingContext.response()
+		.putHeader(CONTENT_TYPE, APPLICATION_JSON_CHARSET_UTF_8)
+		.end(new JsonObject()
+				.put(ACCEPTED, batch.getAcceptedCount())
+				.put(REJECTED, batch.getRejectedCount())
+				.encode());
+		mMetrics.recordRequest(Route.TRANSACTIONS_BATCH, System.nanoTime() - start);
 	}
 
 	private void sendResponeWithStatus(RoutingContext routingContext , int statusCode) {
 		routingContext.response().setStatusCode(statusCode).putHeader(CONTENT_TYPE, APPLICATION_JSON_CHARSET_UTF_8)
 				.end();
 	}
+	
+	/**
+	 * @return number of subscribers of the statistics stream connected to this instance
+	 */
+	int getSubscriberCount() {
+		return mSubscribers.size();
+	}
+	
+	/**
+	 * Open GET /statistics/stream response and the window it subscribed to
+	 */
+	private static final class Subscriber {
+		
+		private final HttpServerResponse mResponse;
+		private final long mWindowMillis;
+		private int mDroppedFrames;
+		
+		Subscriber(HttpServerResponse response, long windowMillis) {
+			mResponse = response;
+			mWindowMillis = windowMillis;
+		}
+	}
 
 }
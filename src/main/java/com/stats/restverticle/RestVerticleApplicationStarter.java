@@ -1,12 +1,9 @@
 package com.stats.restverticle;
 
 import com.stats.restservice.external.services.IStatisticsService;
-import com.stats.restservice.external.services.ITransactionService;
-import com.stats.restservice.internal.services.StatisticsServiceImpl;
-import com.stats.restservice.internal.services.TransactionServiceImpl;
 
 import io.vertx.core.AbstractVerticle;
-import io.vertx.core.Vertx;
+import io.vertx.core.Future;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
 
@@ -16,26 +13,35 @@ import io.vertx.core.logging.LoggerFactory;
  */
 public class RestVerticleApplicationStarter extends AbstractVerticle {
 	
+	private static final Logger logger = LoggerFactory.getLogger(RestVerticleApplicationStarter.class);
+	
+	private IStatisticsService mStatService;
+	
 	/**
 	 * Invoked when this verticle is deployed. (Life cycle method to start the verticle) 
+	 * Deploys the application into the Vert.x instance of the launcher , completed once the HTTP port is served
+	 */
+	@Override
+	public void start(Future<Void> startFuture) {
+		StatisticsApplication.deploy(vertx, StatisticsApplication.resolveConfig(config()), ready -> {
+			if (ready.succeeded()) {
+				mStatService = ready.result();
+				startFuture.complete();
+			} else {
+				logger.error("Failed to deploy the application " + ready.cause());
+				startFuture.fail(ready.cause());
+			}
+		});
+	}
+	
+	/**
+	 * Invoked once the verticles deployed from {@link #start(Future)} are undeployed , nothing ingests or reads any more
+	 * and the service is closed , which saves its state if a state file is configured
 	 */
 	@Override
-	public void start() {
-		Vertx vertx = Vertx.vertx();
-		Logger logger = LoggerFactory.getLogger(RestVerticleApplicationStarter.class);
-		
-		IStatisticsService statService = new StatisticsServiceImpl();
-		ITransactionService transactionService = new TransactionServiceImpl(statService);
-		logger.info("Transaction and Statistics Services initialized successfully");
-		
-		RestAPIVerticle restVerticle = new RestAPIVerticle(transactionService , statService);
-		logger.info("deploying RestAPIVerticle - Event loop initiating...");
-		
-		PeriodicCleanerVerticle cleanerVerticle = new PeriodicCleanerVerticle(statService);
-		logger.info("deploying PeriodicCleanerVerticle - Periodic Event loop initiating...");
-		
-		vertx.deployVerticle(restVerticle);
-		vertx.deployVerticle(cleanerVerticle);
-		logger.info("Successfully deployed all verticles at localhost:8080");
+	public void stop() {
+		if (mStatService != null) {
+			mStatService.close();
+		}
 	}
 }
@@ -0,0 +1,87 @@
+package com.stats.restverticle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.stats.restservice.external.services.IStatisticsService;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+/**
+ * Deploys several RestAPIVerticle instances that share the same (thread safe) services. Every instance gets its own
+ * event loop and Vert.x spreads the connections of the shared HTTP port over them.
+ */
+public class RestVerticleDeployer {
+
+	public static final String HTTP_INSTANCES = "HTTP_INSTANCES";
+
+	static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+	private static final Logger logger = LoggerFactory.getLogger(RestVerticleDeployer.class);
+
+	/**
+	 * Number of instances from the configuration , defaults to the number of cores
+	 * @param config
+	 * @return
+	 */
+	public static int getInstances(JsonObject config) {
+		int instances = config.getInteger(HTTP_INSTANCES, Runtime.getRuntime().availableProcessors());
+		return Math.max(instances, 1);
+	}
+
+	/**
+	 * Closes Vert.x when the JVM shuts down (SIGTERM of a rolling deploy etc) , so that every verticle is undeployed
+	 * gracefully , and then the statistics service , so that it gets to save its state once nothing ingests any more
+	 * @param vertx
+	 * @param statisticsService - closed once Vert.x is closed
+	 */
+	public static void closeOnShutdown(Vertx vertx, IStatisticsService statisticsService) {
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			CountDownLatch closed = new CountDownLatch(1);
+			vertx.close(result -> closed.countDown());
+			try {
+				closed.await(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			statisticsService.close();
+		}, "vertx-shutdown"));
+	}
+
+	/**
+	 * Deploys the given number of RestAPIVerticle instances
+	 * @param vertx
+	 * @param instances
+	 * @param verticleOptions - services and shared state of all instances , the limits of its admission control hold
+	 *        for the application and not per event loop
+	 * @param options - deployment options of every instance (config with HTTP_PORT etc)
+	 * @param completionHandler - completed once all instances are listening
+	 */
+	public static void deployRestVerticles(Vertx vertx, int instances, RestVerticleOptions verticleOptions,
+			DeploymentOptions options, Handler<AsyncResult<Void>> completionHandler) {
+		List<Future> deployments = new ArrayList<>();
+		for (int i = 0; i < instances; i++) {
+			Future<String> deployment = Future.future();
+			vertx.deployVerticle(new RestAPIVerticle(verticleOptions), options, deployment.completer());
+			deployments.add(deployment);
+		}
+		CompositeFuture.all(deployments).setHandler(result -> {
+			if (result.succeeded()) {
+				logger.info("Deployed " + instances + " RestAPIVerticle instance(s)");
+				completionHandler.handle(Future.succeededFuture());
+			} else {
+				completionHandler.handle(Future.failedFuture(result.cause()));
+			}
+		});
+	}
+}
@@ -0,0 +1,93 @@
+package com.stats.restverticle;
+
+import com.stats.restservice.external.services.IStatisticsService;
+import com.stats.restservice.external.services.ITransactionService;
+import com.stats.restservice.internal.metrics.ServiceMetrics;
+
+/**
+ * Services and shared state of the RestAPIVerticle instances , one object is handed to every instance of a deployment
+ * so that they all serve from the same services , snapshot , stream , metrics and admission control
+ */
+public class RestVerticleOptions {
+
+	private final ITransactionService mTransactionService;
+	private final IStatisticsService mStatisticsService;
+	private StatisticsSnapshot mSnapshot;
+	private StatisticsStream mStream;
+	private ServiceMetrics mMetrics = new ServiceMetrics();
+	private AdmissionControl mAdmission = new AdmissionControl();
+
+	/**
+	 * Without snapshot , stream and limits
+	 * @param transactionService
+	 * @param statisticsService
+	 */
+	public RestVerticleOptions(ITransactionService transactionService, IStatisticsService statisticsService) {
+		mTransactionService = transactionService;
+		mStatisticsService = statisticsService;
+	}
+
+	public ITransactionService getTransactionService() {
+		return mTransactionService;
+	}
+
+	public IStatisticsService getStatisticsService() {
+		return mStatisticsService;
+	}
+
+	public StatisticsSnapshot getSnapshot() {
+		return mSnapshot;
+	}
+
+	/**
+	 * Pre-encoded statistics to serve GET requests from , refreshed by StatisticsSnapshotVerticle
+	 * @param snapshot - null to compute the statistics on every request
+	 * @return this for chaining
+	 */
+	public RestVerticleOptions setSnapshot(StatisticsSnapshot snapshot) {
+		mSnapshot = snapshot;
+		return this;
+	}
+
+	public StatisticsStream getStream() {
+		return mStream;
+	}
+
+	/**
+	 * Frames pushed to the subscribers of GET /statistics/stream , refreshed by StatisticsStreamVerticle
+	 * @param stream - null to not serve the stream
+	 * @return this for chaining
+	 */
+	public RestVerticleOptions setStream(StatisticsStream stream) {
+		mStream = stream;
+		return this;
+	}
+
+	public ServiceMetrics getMetrics() {
+		return mMetrics;
+	}
+
+	/**
+	 * Metrics the request latencies are recorded to and GET /metrics is served from , shared with the services
+	 * @param metrics
+	 * @return this for chaining
+	 */
+	public RestVerticleOptions setMetrics(ServiceMetrics metrics) {
+		mMetrics = metrics;
+		return this;
+	}
+
+	public AdmissionControl getAdmission() {
+		return mAdmission;
+	}
+
+	/**
+	 * Limits of all instances together , requests beyond are shed with 429 / 503 / 413
+	 * @param admission
+	 * @return this for chaining
+	 */
+	public RestVerticleOptions setAdmission(AdmissionControl admission) {
+		mAdmission = admission;
+		return this;
+	}
+}
@@ -0,0 +1,230 @@
+package com.stats.restverticle;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import com.stats.restservice.external.services.IStatisticsService;
+import com.stats.restservice.internal.metrics.ServiceMetrics;
+import com.stats.restservice.internal.services.IdempotencyKeys;
+import com.stats.restservice.internal.services.StatisticsOptions;
+import com.stats.restservice.internal.services.StatisticsServiceImpl;
+import com.stats.restservice.internal.services.TransactionServiceImpl;
+import com.stats.restservice.transaction.TransactionFactory;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Verticle;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+/**
+ * Single bootstrap of the application , used by RestVerticleApplicationStarter (fat jar , vertx run) and
+ * RestVerticleStandAlone (IDE). Creates the services and deploys every verticle into the given Vert.x instance ,
+ * all from one configuration , and reports the time from the start of the JVM until the HTTP port is served.
+ *
+ * With STATS_TRAINING_RUN the application answers one request of every kind to itself and exits , so that a class
+ * data sharing archive recorded by the JVM at exit (-XX:ArchiveClassesAtExit) also has the classes of the request path.
+ */
+public final class StatisticsApplication {
+
+	/**
+	 * Configuration key , true to serve one request of every kind and exit once started
+	 */
+	public static final String STATS_TRAINING_RUN = "STATS_TRAINING_RUN";
+
+	/**
+	 * System properties and environment variables with these prefixes are taken into the configuration
+	 */
+	static final String[] CONFIG_PREFIXES = { "HTTP_", "STATS_", "INGEST_", "IDEMPOTENCY_" };
+
+	static final int DEFAULT_HTTP_PORT = 8080;
+
+	/**
+	 * Only plain numbers are converted , durations like 10s or 1d stay strings
+	 */
+	private static final Pattern INTEGER = Pattern.compile("-?\\d+");
+	private static final Pattern DECIMAL = Pattern.compile("-?\\d*\\.\\d+");
+
+	private static final Logger logger = LoggerFactory.getLogger(StatisticsApplication.class);
+
+	private StatisticsApplication() {
+	}
+
+	/**
+	 * The configuration of the application , the given one (e.g -conf of the launcher) before system properties before
+	 * environment variables. Values that are numbers or booleans are converted , so every key can be given in any source
+	 * @param config
+	 * @return a new json object
+	 */
+	public static JsonObject resolveConfig(JsonObject config) {
+		JsonObject resolved = new JsonObject();
+		putAll(resolved, System.getenv());
+		for (String name : System.getProperties().stringPropertyNames()) {
+			putIfConfigKey(resolved, name, System.getProperty(name));
+		}
+		return resolved.mergeIn(config);
+	}
+
+	/**
+	 * Creates the services and deploys all verticles of the application into the given Vert.x instance
+	 * @param vertx - clustered if the configuration enables STATS_CLUSTER
+	 * @param config - as returned by {@link #resolveConfig(JsonObject)} , handed to every verticle
+	 * @param readyHandler - completed with the statistics service once all verticles are deployed and the HTTP port is
+	 *        served , the caller closes the service once all verticles are undeployed (which saves its state)
+	 */
+	public static void deploy(Vertx vertx, JsonObject config, Handler<AsyncResult<IStatisticsService>> readyHandler) {
+		long deployStart = System.currentTimeMillis();
+		StatisticsOptions statisticsOptions = new StatisticsOptions(config);
+		if (statisticsOptions.isCluster() && !vertx.isClustered()) {
+			readyHandler.handle(Future.failedFuture(new IllegalStateException(StatisticsOptions.STATS_CLUSTER
+					+ " needs a clustered Vert.x instance , run the launcher with -cluster")));
+			return;
+		}
+		int instances = RestVerticleDeployer.getInstances(config);
+		if (!config.containsKey(StatisticsOptions.INGEST_STRIPES)) {
+			// one ingest stripe per event loop that serves requests
+			statisticsOptions.setIngestStripes(instances);
+		}
+		StatisticsServiceImpl statService = new StatisticsServiceImpl(statisticsOptions);
+		// shared by the services and all verticles , served on GET /metrics
+		ServiceMetrics metrics = new ServiceMetrics();
+		// retries with the idempotency key of an accepted transaction are answered without adding it again
+		TransactionServiceImpl transactionService = new TransactionServiceImpl(statService, metrics,
+				new IdempotencyKeys(config, statService.getRetentionMillis()));
+		logger.info("Transaction and Statistics Services initialized successfully");
+
+		DeploymentOptions options = new DeploymentOptions().setConfig(config);
+		List<Future> deployments = new ArrayList<>();
+		if (statService.getClusterAggregator() != null) {
+			logger.info("deploying ClusterStatisticsVerticle - partials published every "
+					+ statisticsOptions.getClusterIntervalMillis() + " ms");
+			deployments.add(deploy(vertx, new ClusterStatisticsVerticle(statService.getClusterAggregator(),
+					statisticsOptions.getClusterIntervalMillis()), options));
+		}
+
+		StatisticsSnapshot snapshot = null;
+		long snapshotInterval = config.getLong(StatisticsSnapshotVerticle.STATS_SNAPSHOT_INTERVAL_MS, 0l);
+		if (snapshotInterval > 0) {
+			snapshot = new StatisticsSnapshot(statService);
+			logger.info("deploying StatisticsSnapshotVerticle - statistics refreshed every " + snapshotInterval + " ms");
+			deployments.add(deploy(vertx, new StatisticsSnapshotVerticle(snapshot, snapshotInterval), options));
+		}
+
+		StatisticsStream stream = null;
+		long streamInterval = config.getLong(StatisticsStreamVerticle.STATS_STREAM_INTERVAL_MS, 0l);
+		if (streamInterval > 0) {
+			stream = new StatisticsStream(statService);
+			logger.info("deploying StatisticsStreamVerticle - statistics pushed every " + streamInterval + " ms");
+			deployments.add(deploy(vertx, new StatisticsStreamVerticle(stream, streamInterval), options));
+		}
+
+		// the cleaner runs once per bucket unless configured otherwise
+		JsonObject cleanerConfig = config.copy();
+		if (!cleanerConfig.containsKey(PeriodicCleanerVerticle.STATS_CLEANER_INTERVAL_MS)) {
+			cleanerConfig.put(PeriodicCleanerVerticle.STATS_CLEANER_INTERVAL_MS, statisticsOptions.getResolutionMillis());
+		}
+		logger.info("deploying PeriodicCleanerVerticle - Periodic Event loop initiating...");
+		deployments.add(deploy(vertx, new PeriodicCleanerVerticle(statService, metrics), new DeploymentOptions().setConfig(cleanerConfig)));
+
+		// limits of all instances together , requests beyond are shed with 429 / 503
+		AdmissionControl admission = new AdmissionControl(config, metrics);
+		logger.info("deploying " + instances + " RestAPIVerticle instance(s) - Event loops initiating...");
+		Future<Void> restVerticles = Future.future();
+		RestVerticleOptions restVerticleOptions = new RestVerticleOptions(transactionService, statService).setSnapshot(snapshot)
+				.setStream(stream).setMetrics(metrics).setAdmission(admission);
+		RestVerticleDeployer.deployRestVerticles(vertx, instances, restVerticleOptions, options, restVerticles.completer());
+		deployments.add(restVerticles);
+
+		CompositeFuture.all(deployments).setHandler(result -> {
+			if (result.failed()) {
+				statService.close();
+				readyHandler.handle(Future.failedFuture(result.cause()));
+				return;
+			}
+			long now = System.currentTimeMillis();
+			long sinceJvmStart = now - ManagementFactory.getRuntimeMXBean().getStartTime();
+			metrics.registerGauge("stats_startup_ready_millis", "Time from the start of the JVM until the HTTP port was served",
+					() -> sinceJvmStart);
+			logger.info("Serving localhost:" + getPort(config) + " " + sinceJvmStart + " ms after the start of the JVM ("
+					+ (now - deployStart) + " ms to deploy)");
+			readyHandler.handle(Future.succeededFuture(statService));
+			if (config.getBoolean(STATS_TRAINING_RUN, false)) {
+				trainingRun(vertx, getPort(config));
+			}
+		});
+	}
+
+	static int getPort(JsonObject config) {
+		return config.getInteger("HTTP_PORT", DEFAULT_HTTP_PORT);
+	}
+
+	/**
+	 * Posts a transaction and gets the statistics and the metrics , logs the time until the first response and exits
+	 */
+	private static void trainingRun(Vertx vertx, int port) {
+		HttpClient client = vertx.createHttpClient();
+		String transaction = Json.encode(TransactionFactory.getTransaction(10.5, System.currentTimeMillis()));
+		client.post(port, "localhost", RestAPIVerticle.ADD_TRANSACTION_END_POINT, posted -> {
+			logger.info("First request answered " + (System.currentTimeMillis()
+					- ManagementFactory.getRuntimeMXBean().getStartTime()) + " ms after the start of the JVM");
+			client.getNow(port, "localhost", RestAPIVerticle.GET_STATS_END_POINT, statistics -> statistics.bodyHandler(
+					statisticsBody -> client.getNow(port, "localhost", RestAPIVerticle.METRICS_END_POINT, metrics -> metrics.bodyHandler(
+							metricsBody -> {
+								logger.info("Training run done , exiting");
+								// the shutdown hooks close Vert.x and the JVM writes the class data sharing archive
+								new Thread(() -> System.exit(0), "training-run-exit").start();
+							}))));
+		}).putHeader(RestAPIVerticle.IDEMPOTENCY_KEY, "training-run").end(transaction);
+	}
+
+	private static Future<String> deploy(Vertx vertx, Verticle verticle, DeploymentOptions options) {
+		Future<String> deployment = Future.future();
+		vertx.deployVerticle(verticle, options, deployment.completer());
+		return deployment;
+	}
+
+	private static void putAll(JsonObject config, Map<String, String> values) {
+		for (Map.Entry<String, String> entry : values.entrySet()) {
+			putIfConfigKey(config, entry.getKey(), entry.getValue());
+		}
+	}
+
+	private static void putIfConfigKey(JsonObject config, String name, String value) {
+		for (String prefix : CONFIG_PREFIXES) {
+			if (name.startsWith(prefix)) {
+				config.put(name, parseValue(value));
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @return a Boolean , Long or Double if the value is one , otherwise the string
+	 */
+	static Object parseValue(String value) {
+		if ("true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value)) {
+			return Boolean.valueOf(value);
+		}
+		try {
+			if (INTEGER.matcher(value).matches()) {
+				return Long.parseLong(value);
+			}
+			if (DECIMAL.matcher(value).matches()) {
+				return Double.parseDouble(value);
+			}
+		} catch (NumberFormatException e) {
+			// beyond the range of a long , keep the string
+		}
+		return value;
+	}
+}
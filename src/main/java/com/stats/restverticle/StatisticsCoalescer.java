@@ -0,0 +1,89 @@
+package com.stats.restverticle;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+
+/**
+ * Single flight computation of the statistics of a window for one RestAPIVerticle instance. Requests that arrive while
+ * the statistics of their window are computed wait for that computation instead of queueing their own , so a read
+ * storm costs one scan per window at a time instead of one per request. Optionally a result is also served for a
+ * while after it was computed.
+ *
+ * Only used on the event loop of its verticle , so nothing is synchronized.
+ */
+class StatisticsCoalescer {
+
+	/**
+	 * Configuration key of the time a computed result is served to new requests , defaults to 0 (only requests that
+	 * arrive while it is computed share it)
+	 */
+	static final String STATS_COALESCE_MAX_AGE_MS = "STATS_COALESCE_MAX_AGE_MS";
+
+	private final long mMaxAgeNanos;
+	private final Map<Long, Flight> mFlights = new HashMap<>();
+
+	/**
+	 * @param maxAgeMillis - time a computed result is served to new requests , 0 to always compute anew once done
+	 */
+	StatisticsCoalescer(long maxAgeMillis) {
+		mMaxAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxAgeMillis);
+	}
+
+	/**
+	 * @param windowMillis
+	 * @param waiter - handed the encoded statistics , right away if a fresh enough result is at hand
+	 * @return true if the caller has to start a computation of the window and hand its result to {@link #complete}
+	 */
+	boolean join(long windowMillis, Handler<AsyncResult<String>> waiter) {
+		Flight flight = mFlights.get(windowMillis);
+		if (flight == null) {
+			flight = new Flight();
+			mFlights.put(windowMillis, flight);
+		}
+		if (flight.mResult != null && System.nanoTime() - flight.mCompletedNanos <= mMaxAgeNanos) {
+			waiter.handle(Future.succeededFuture(flight.mResult));
+			return false;
+		}
+		flight.mWaiters.add(waiter);
+		if (flight.mRunning) {
+			return false;
+		}
+		flight.mRunning = true;
+		return true;
+	}
+
+	/**
+	 * Hands the result of a computation started by {@link #join} to every request that waits for it
+	 * @param windowMillis
+	 * @param result
+	 */
+	void complete(long windowMillis, AsyncResult<String> result) {
+		Flight flight = mFlights.get(windowMillis);
+		flight.mRunning = false;
+		flight.mResult = result.succeeded() ? result.result() : null;
+		flight.mCompletedNanos = System.nanoTime();
+		List<Handler<AsyncResult<String>>> waiters = new ArrayList<>(flight.mWaiters);
+		flight.mWaiters.clear();
+		for (Handler<AsyncResult<String>> waiter : waiters) {
+			waiter.handle(result);
+		}
+	}
+
+	/**
+	 * Computation of a window , running or done
+	 */
+	private static final class Flight {
+
+		private final List<Handler<AsyncResult<String>>> mWaiters = new ArrayList<>();
+		private boolean mRunning;
+		private String mResult;
+		private long mCompletedNanos;
+	}
+}
@@ -0,0 +1,44 @@
+package com.stats.restverticle;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.stats.restservice.external.services.IStatisticsService;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.Json;
+
+/**
+ * Ready to send , pre-encoded statistics response. Refreshed on a short tick by StatisticsSnapshotVerticle ,
+ * so serving GET /statistics is a volatile read on the event loop , shared by all RestAPIVerticle instances.
+ * Every configured window is encoded on each refresh , the set of windows is small and fixed.
+ */
+public class StatisticsSnapshot {
+
+	private final IStatisticsService mStatService;
+	private volatile Map<Long, Buffer> mEncoded;
+
+	public StatisticsSnapshot(IStatisticsService statisticsService) {
+		mStatService = statisticsService;
+		refresh();
+	}
+
+	/**
+	 * Recomputes and encodes the statistics of every configured window
+	 */
+	public void refresh() {
+		Map<Long, Buffer> encoded = new HashMap<>();
+		for (long window : mStatService.getWindows()) {
+			encoded.put(window, Buffer.buffer(Json.encodePrettily(mStatService.getStatistics(window))));
+		}
+		mEncoded = encoded;
+	}
+
+	/**
+	 * @param windowMillis - one of the configured windows
+	 * @return the encoded statistics of the last refresh , the same buffer may be written to many responses
+	 */
+	public Buffer get(long windowMillis) {
+		return mEncoded.get(windowMillis);
+	}
+}
@@ -0,0 +1,51 @@
+package com.stats.restverticle;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+/**
+ * Verticle that periodically refreshes the pre-encoded StatisticsSnapshot 
+ */
+public class StatisticsSnapshotVerticle extends AbstractVerticle {
+
+	/**
+	 * Refresh interval of the snapshot in millis , 0 (default) serves every GET /statistics with a fresh computation
+	 */
+	public static final String STATS_SNAPSHOT_INTERVAL_MS = "STATS_SNAPSHOT_INTERVAL_MS";
+
+	private static final Logger logger = LoggerFactory.getLogger(StatisticsSnapshotVerticle.class);
+
+	private StatisticsSnapshot mSnapshot;
+	private long mInterval;
+	private long mID;
+
+	public StatisticsSnapshotVerticle(StatisticsSnapshot snapshot, long interval) {
+		mSnapshot = snapshot;
+		mInterval = interval;
+	}
+
+	/**
+	 * Invoked when this verticle is deployed. (Life cycle method to start the verticle) 
+	 */
+	@Override
+	public void start() throws Exception {
+		mSnapshot.refresh();
+		// window summary is a merge of a fixed number of buckets , cheap enough for the event loop
+		mID = vertx.setPeriodic(mInterval, id -> {
+			try {
+				mSnapshot.refresh();
+			} catch (Exception e) {
+				logger.error("Encountered exception while refreshing statistics snapshot" + e);
+			}
+		});
+	}
+
+	/**
+	 * To be used only for junit to cancel the periodic timers
+	 * @return
+	 */
+	long getPeriodicVerticleId() {
+		return mID;
+	}
+}
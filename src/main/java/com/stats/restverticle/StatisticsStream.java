@@ -0,0 +1,50 @@
+package com.stats.restverticle;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.stats.restservice.external.services.IStatisticsService;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.Json;
+
+/**
+ * Pre-encoded Server-Sent Events frames of the statistics , one per configured window. Refreshed once per tick by
+ * StatisticsStreamVerticle , which then signals every RestAPIVerticle instance to push the same frames to its
+ * subscribers , so the statistics are computed once per tick whatever the number of subscribers.
+ */
+public class StatisticsStream {
+
+	/**
+	 * Local event bus address of the tick signal , published after every refresh
+	 */
+	public static final String TICK_ADDRESS = "statistics.stream.tick";
+
+	private final IStatisticsService mStatService;
+	private volatile Map<Long, Buffer> mFrames;
+
+	public StatisticsStream(IStatisticsService statisticsService) {
+		mStatService = statisticsService;
+		refresh();
+	}
+
+	/**
+	 * Recomputes and encodes the frames of every configured window
+	 */
+	public void refresh() {
+		Map<Long, Buffer> frames = new HashMap<>();
+		for (long window : mStatService.getWindows()) {
+			// single line json , a frame ends with an empty line
+			frames.put(window, Buffer.buffer("data: " + Json.encode(mStatService.getStatistics(window)) + "\n\n"));
+		}
+		mFrames = frames;
+	}
+
+	/**
+	 * @param windowMillis - one of the configured windows
+	 * @return the frame of the last refresh , the same buffer is written to every subscriber
+	 */
+	public Buffer get(long windowMillis) {
+		return mFrames.get(windowMillis);
+	}
+}
@@ -0,0 +1,51 @@
+package com.stats.restverticle;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+/**
+ * Verticle that refreshes the StatisticsStream once per tick and signals the RestAPIVerticle instances to push it
+ */
+public class StatisticsStreamVerticle extends AbstractVerticle {
+
+	/**
+	 * Tick of GET /statistics/stream in millis , 0 (default) disables the stream
+	 */
+	public static final String STATS_STREAM_INTERVAL_MS = "STATS_STREAM_INTERVAL_MS";
+
+	private static final Logger logger = LoggerFactory.getLogger(StatisticsStreamVerticle.class);
+
+	private StatisticsStream mStream;
+	private long mInterval;
+	private long mID;
+
+	public StatisticsStreamVerticle(StatisticsStream stream, long interval) {
+		mStream = stream;
+		mInterval = interval;
+	}
+
+	/**
+	 * Invoked when this verticle is deployed. (Life cycle method to start the verticle) 
+	 */
+	@Override
+	public void start() throws Exception {
+		mID = vertx.setPeriodic(mInterval, id -> {
+			try {
+				mStream.refresh();
+				// local only , the subscribers of other cluster nodes get the frames of their own node
+				vertx.eventBus().publish(StatisticsStream.TICK_ADDRESS, null);
+			} catch (Exception e) {
+				logger.error("Encountered exception while refreshing statistics stream" + e);
+			}
+		});
+	}
+
+	/**
+	 * To be used only for junit to cancel the periodic timers
+	 * @return
+	 */
+	long getPeriodicVerticleId() {
+		return mID;
+	}
+}
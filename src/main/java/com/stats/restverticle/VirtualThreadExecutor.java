@@ -0,0 +1,84 @@
+package com.stats.restverticle;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+
+/**
+ * Blocking work on a new virtual thread per task , so slow computations are not capped by the size of a pool.
+ * The executor is looked up by reflection , the application still compiles and runs on Java 8
+ */
+class VirtualThreadExecutor implements BlockingExecutor {
+
+	private final Vertx mVertx;
+	private final ExecutorService mExecutor;
+
+	VirtualThreadExecutor(Vertx vertx) {
+		mVertx = vertx;
+		mExecutor = newVirtualThreadPerTaskExecutor();
+		if (mExecutor == null) {
+			throw new IllegalStateException("Virtual threads are not available");
+		}
+	}
+
+	/**
+	 * @return true if the JDK has virtual threads
+	 */
+	static boolean isAvailable() {
+		ExecutorService executor = newVirtualThreadPerTaskExecutor();
+		if (executor == null) {
+			return false;
+		}
+		executor.shutdown();
+		return true;
+	}
+
+	@Override
+	public <T> void execute(Supplier<T> task, Handler<AsyncResult<T>> handler) {
+		Context context = mVertx.getOrCreateContext();
+		try {
+			mExecutor.execute(() -> {
+				AsyncResult<T> result;
+				try {
+					result = Future.succeededFuture(task.get());
+				} catch (Throwable e) {
+					// errors as well , like executeBlocking , otherwise the handler never runs and its caller waits forever
+					result = Future.failedFuture(e);
+				}
+				AsyncResult<T> completed = result;
+				context.runOnContext(v -> handler.handle(completed));
+			});
+		} catch (RejectedExecutionException e) {
+			// closed along with the verticle
+			handler.handle(Future.failedFuture(e));
+		}
+	}
+
+	@Override
+	public String getName() {
+		return VIRTUAL;
+	}
+
+	@Override
+	public void close() {
+		mExecutor.shutdown();
+	}
+
+	/**
+	 * @return Executors.newVirtualThreadPerTaskExecutor() , null before JDK 21
+	 */
+	private static ExecutorService newVirtualThreadPerTaskExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+}
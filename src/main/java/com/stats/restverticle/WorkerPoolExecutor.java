@@ -0,0 +1,35 @@
+package com.stats.restverticle;
+
+import java.util.function.Supplier;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+
+/**
+ * Blocking work on the Vert.x worker pool (WORKER_POOL_SIZE threads , 20 by default). Tasks are not ordered , so
+ * the tasks of one verticle run in parallel instead of one after the other
+ */
+class WorkerPoolExecutor implements BlockingExecutor {
+
+	private final Vertx mVertx;
+
+	WorkerPoolExecutor(Vertx vertx) {
+		mVertx = vertx;
+	}
+
+	@Override
+	public <T> void execute(Supplier<T> task, Handler<AsyncResult<T>> handler) {
+		mVertx.<T>executeBlocking(future -> future.complete(task.get()), false, handler);
+	}
+
+	@Override
+	public String getName() {
+		return WORKER;
+	}
+
+	@Override
+	public void close() {
+		// the pool belongs to the Vertx instance
+	}
+}
@@ -0,0 +1,51 @@
+package com.stats.restservice.internal.aggregator;
+
+import static com.stats.restservice.internal.aggregator.SlidingWindowAggregator.FLOATING_POINT;
+import static com.stats.restservice.internal.aggregator.SlidingWindowAggregator.NO_QUANTILES;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+/**
+ * Test class to ascertain the merge of the partials of several nodes by ClusterWindowAggregator
+ */
+public class TestClusterWindowAggregator {
+
+	private final AtomicLong mClock = new AtomicLong(1_000_000_000l);
+
+	/**
+	 * Given - two nodes that exchanged their partials
+	 * When  - one node stops publishing for longer than the node timeout
+	 * Then  - Assert the summaries combine both nodes until the timeout and only the local node afterwards
+	 */
+	@Test
+	public void whenPartialsExchanged_assertSummaryOfBothNodesUntilTimeout() throws IOException {
+		ClusterWindowAggregator first = createNode();
+		ClusterWindowAggregator second = createNode();
+		for (int i = 0; i < 100; i++) {
+			first.add(mClock.get() - i * 100, 1);
+			second.add(mClock.get() - i * 500, 2);
+		}
+		first.mergePartials("second", second.encodePartials());
+		// the latest partials replace the previous ones of the node
+		first.mergePartials("second", second.encodePartials());
+
+		assertEquals(200, first.summary().getCount());
+		assertEquals(300.0, first.summary().getSum(), 0.0);
+		// the 10 newest buckets hold the offsets 0 .. 9000 ms
+		assertEquals(91 + 19, first.summary(10000).getCount());
+
+		mClock.addAndGet(3001);
+		first.expire();
+		assertEquals(0, first.getRemoteNodeCount());
+		assertEquals(100, first.summary().getCount());
+	}
+
+	private ClusterWindowAggregator createNode() {
+		return new ClusterWindowAggregator(new SlidingWindowAggregator(60000, 1000, mClock::get), 60000, 1000, NO_QUANTILES,
+				FLOATING_POINT, 3000, mClock::get);
+	}
+}
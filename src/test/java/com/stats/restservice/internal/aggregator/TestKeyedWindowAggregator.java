@@ -0,0 +1,186 @@
+package com.stats.restservice.internal.aggregator;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+/**
+ * Test class to ascertain the per key windows and the eviction of KeyedWindowAggregator 
+ */
+public class TestKeyedWindowAggregator {
+
+	private final AtomicLong mClock = new AtomicLong(1_000_000_000l);
+
+	/**
+	 * Given - keyed aggregator with a window of 60 buckets of 1 second
+	 * When  - transactions of several keys arrive out of order while the clock moves on
+	 * Then  - Assert the summary of every key and window matches a brute force computation
+	 */
+	@Test
+	public void whenTransactionsOfSeveralKeys_assertSummaryPerKey() {
+		KeyedWindowAggregator aggregator = new KeyedWindowAggregator(60000, 1000, 1000, mClock::get);
+		Random random = new Random(11);
+		String[] keys = { "merchant-1", "merchant-2", "EUR" };
+		long[] timestamps = new long[3000];
+		double[] amounts = new double[3000];
+		for (int step = 0; step < 300; step++) {
+			for (int i = 0; i < 10; i++) {
+				int index = step * 10 + i;
+				timestamps[index] = mClock.get() - random.nextInt(random.nextBoolean() ? 2000 : 59000);
+				amounts[index] = random.nextDouble() * 100;
+				aggregator.add(keys[index % keys.length], timestamps[index], amounts[index]);
+			}
+			mClock.addAndGet(random.nextInt(1500));
+
+			for (int key = 0; key < keys.length; key++) {
+				for (long window : new long[] { 10000, 60000 }) {
+					WindowSummary expected = new WindowSummary();
+					long oldestEpoch = mClock.get() / 1000 - window / 1000 + 1;
+					for (int index = key; index < (step + 1) * 10; index += keys.length) {
+						if (timestamps[index] / 1000 >= oldestEpoch) {
+							expected.accept(amounts[index]);
+						}
+					}
+					WindowSummary summary = aggregator.summary(keys[key], window);
+					assertEquals(expected.getCount(), summary.getCount());
+					assertEquals(expected.getSum(), summary.getSum(), 0.0001);
+					assertEquals(expected.getMin(), summary.getMin(), 0.0);
+					assertEquals(expected.getMax(), summary.getMax(), 0.0);
+				}
+			}
+		}
+		assertEquals(0, aggregator.summary("unknown", 60000).getCount());
+	}
+
+	/**
+	 * Given - keyed aggregator bounded to 64 keys
+	 * When  - many more keys are added
+	 * Then  - Assert the number of keys stays bounded and the most recent key is kept
+	 */
+	@Test
+	public void whenMoreKeysThanMax_assertLeastRecentlyUsedEvicted() {
+		KeyedWindowAggregator aggregator = new KeyedWindowAggregator(60000, 1000, 64, mClock::get);
+		for (int i = 0; i < 10000; i++) {
+			aggregator.add("key-" + i, mClock.get(), i);
+		}
+		assertEquals(64, aggregator.size());
+		assertEquals(1, aggregator.summary("key-9999", 60000).getCount());
+		assertEquals(0, aggregator.summary("key-0", 60000).getCount());
+	}
+
+	/**
+	 * Given - keyed aggregators bounded to a number of keys that is no multiple of the number of segments
+	 * When  - many more keys are added
+	 * Then  - Assert every one of them keeps exactly its bound of keys
+	 */
+	@Test
+	public void whenMaxKeysNotPowerOfTwo_assertMaxKeysKept() {
+		for (int maxKeys : new int[] { 1, 15, 100, 1000, 100_001 }) {
+			KeyedWindowAggregator aggregator = new KeyedWindowAggregator(60000, 1000, maxKeys, mClock::get);
+			for (int i = 0; i < maxKeys * 20; i++) {
+				aggregator.add("key-" + i, mClock.get(), i);
+			}
+			assertEquals(maxKeys, aggregator.size());
+		}
+	}
+
+	/**
+	 * Given - keyed aggregator with a key in use and a key used after it with an out of order timestamp
+	 * When  - the window of the out of order key passes and later the window of the other key
+	 * Then  - Assert the out of order key has an empty summary at once and is evicted together with the other key
+	 */
+	@Test
+	public void whenKeyUsedOutOfOrder_assertEvictedWithinOneWindow() {
+		// a single segment , so that both keys share one order of use
+		KeyedWindowAggregator aggregator = new KeyedWindowAggregator(60000, 1000, 16, mClock::get);
+		aggregator.add("current", mClock.get(), 1);
+		aggregator.add("late", mClock.get() - 58000, 1);
+		mClock.addAndGet(2000);
+
+		assertEquals(0, aggregator.expire(Integer.MAX_VALUE));
+		assertEquals(1, aggregator.summary("current", 60000).getCount());
+		assertEquals(0, aggregator.summary("late", 60000).getCount());
+
+		mClock.addAndGet(58000);
+		assertEquals(2, aggregator.expire(Integer.MAX_VALUE));
+		assertEquals(0, aggregator.size());
+	}
+
+	/**
+	 * Given - keyed aggregator with idle and active keys
+	 * When  - the window of the idle keys passes and expire() is executed
+	 * Then  - Assert only the idle keys are evicted
+	 */
+	@Test
+	public void whenKeysIdle_assertEvictedOnExpire() {
+		KeyedWindowAggregator aggregator = new KeyedWindowAggregator(60000, 1000, 1000, mClock::get);
+		for (int i = 0; i < 100; i++) {
+			aggregator.add("idle-" + i, mClock.get(), i);
+		}
+		mClock.addAndGet(30000);
+		aggregator.add("active", mClock.get(), 1);
+		mClock.addAndGet(31000);
+
+		aggregator.expire();
+		assertEquals(1, aggregator.size());
+		assertEquals(1, aggregator.summary("active", 60000).getCount());
+	}
+
+	/**
+	 * Given - keyed aggregator with many idle keys
+	 * When  - the window passes and the bounded expire(int) is executed repeatedly
+	 * Then  - Assert every call evicts at most its budget and all idle keys are gone eventually
+	 */
+	@Test
+	public void whenBoundedExpire_assertIdleKeysEvictedOverSeveralCalls() {
+		KeyedWindowAggregator aggregator = new KeyedWindowAggregator(60000, 1000, 1000, mClock::get);
+		for (int i = 0; i < 500; i++) {
+			aggregator.add("idle-" + i, mClock.get(), i);
+		}
+		mClock.addAndGet(61000);
+
+		int calls = 0;
+		int evicted;
+		do {
+			evicted = aggregator.expire(100);
+			assertEquals(true, evicted <= 100);
+			calls++;
+		} while (evicted > 0);
+		assertEquals(0, aggregator.size());
+		assertEquals(true, calls > 5);
+	}
+
+	/**
+	 * Given - keyed aggregator with fixed point sums and several keys
+	 * When  - its windows are written and read into a new aggregator
+	 * Then  - Assert every key has the same summary
+	 */
+	@Test
+	public void whenWindowsWrittenAndRead_assertSameSummaries() throws IOException {
+		KeyedWindowAggregator original = new KeyedWindowAggregator(60000, 1000, 1000, 2, mClock::get);
+		for (int i = 0; i < 3000; i++) {
+			original.add("key-" + i % 30, mClock.get() - i * 17, i * 0.01);
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		original.writeTo(new DataOutputStream(bytes));
+
+		KeyedWindowAggregator restored = new KeyedWindowAggregator(60000, 1000, 1000, 2, mClock::get);
+		assertEquals(30, restored.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))));
+		for (int key = 0; key < 30; key++) {
+			WindowSummary expected = original.summary("key-" + key, 60000);
+			WindowSummary summary = restored.summary("key-" + key, 60000);
+			assertEquals(expected.getCount(), summary.getCount());
+			assertEquals(expected.getSum(), summary.getSum(), 0.0);
+			assertEquals(expected.getMin(), summary.getMin(), 0.0);
+			assertEquals(expected.getMax(), summary.getMax(), 0.0);
+		}
+	}
+}
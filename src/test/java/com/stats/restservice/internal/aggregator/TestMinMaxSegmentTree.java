@@ -0,0 +1,100 @@
+package com.stats.restservice.internal.aggregator;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test class to ascertain the root extremes of MinMaxSegmentTree 
+ */
+public class TestMinMaxSegmentTree {
+
+	/**
+	 * Given - tree over a number of slots that is not a power of two 
+	 * When  - slots are set and cleared
+	 * Then  - Assert the root always holds the extremes of the remaining slots
+	 */
+	@Test
+	public void whenSlotsSetAndCleared_assertRootExtremes() {
+		MinMaxSegmentTree tree = new MinMaxSegmentTree(60);
+		assertEquals(Double.POSITIVE_INFINITY, tree.min(), 0.0);
+		assertEquals(Double.NEGATIVE_INFINITY, tree.max(), 0.0);
+
+		tree.set(0, 5.0, 7.0);
+		tree.set(59, -3.0, 4.0);
+		tree.set(31, 6.0, 90.0);
+		assertEquals(-3.0, tree.min(), 0.0);
+		assertEquals(90.0, tree.max(), 0.0);
+
+		tree.clear(59);
+		assertEquals(5.0, tree.min(), 0.0);
+		tree.clear(31);
+		assertEquals(7.0, tree.max(), 0.0);
+		tree.clear(0);
+		assertEquals(Double.POSITIVE_INFINITY, tree.min(), 0.0);
+	}
+
+	/**
+	 * Given - tree over 64 slots and 8 writer threads that own 8 slots each , like the buckets locked by their writers
+	 * When  - every thread sets and clears its slots with random extremes concurrently
+	 * Then  - Assert the root and every range hold the extremes of the final slots
+	 */
+	@Test
+	public void whenSlotsSetConcurrently_assertExtremesOfFinalSlots() throws InterruptedException {
+		MinMaxSegmentTree tree = new MinMaxSegmentTree(64);
+		double[] mins = new double[64];
+		double[] maxs = new double[64];
+		List<Thread> writers = new ArrayList<>();
+		for (int t = 0; t < 8; t++) {
+			final int writer = t;
+			writers.add(new Thread(() -> {
+				Random random = new Random(writer);
+				for (int i = 0; i < 20000; i++) {
+					int slot = writer * 8 + random.nextInt(8);
+					if (random.nextInt(10) == 0) {
+						tree.clear(slot);
+						mins[slot] = Double.POSITIVE_INFINITY;
+						maxs[slot] = Double.NEGATIVE_INFINITY;
+					} else {
+						double min = random.nextInt(100000);
+						double max = min + random.nextInt(100000);
+						tree.set(slot, min, max);
+						mins[slot] = min;
+						maxs[slot] = max;
+					}
+				}
+			}));
+		}
+		writers.forEach(Thread::start);
+		for (Thread writer : writers) {
+			writer.join();
+		}
+
+		for (int from = 0; from < 64; from += 7) {
+			for (int to = from; to < 64; to += 5) {
+				double min = Double.POSITIVE_INFINITY;
+				double max = Double.NEGATIVE_INFINITY;
+				for (int slot = from; slot <= to; slot++) {
+					min = Math.min(min, mins[slot]);
+					max = Math.max(max, maxs[slot]);
+				}
+				WindowSummary summary = new WindowSummary();
+				tree.combineInto(summary, from, to);
+				assertEquals(min, summary.getMin(), 0.0);
+				assertEquals(max, summary.getMax(), 0.0);
+			}
+		}
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		for (int slot = 0; slot < 64; slot++) {
+			min = Math.min(min, mins[slot]);
+			max = Math.max(max, maxs[slot]);
+		}
+		assertEquals(min, tree.min(), 0.0);
+		assertEquals(max, tree.max(), 0.0);
+	}
+}
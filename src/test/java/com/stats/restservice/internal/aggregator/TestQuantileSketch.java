@@ -0,0 +1,115 @@
+package com.stats.restservice.internal.aggregator;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class to ascertain the error bound and merging of QuantileSketch 
+ */
+public class TestQuantileSketch {
+
+	private static final double[] QUANTILES = { 0, 0.1, 0.5, 0.9, 0.95, 0.99, 0.999, 1 };
+
+	/**
+	 * Given - sketch with 1% relative accuracy
+	 * When  - log normal amounts of both signs and zeros are added
+	 * Then  - Assert every quantile is within 1% of the exact amount of that rank
+	 */
+	@Test
+	public void whenAmountsAdded_assertQuantilesWithinRelativeAccuracy() {
+		QuantileSketch sketch = new QuantileSketch();
+		Random random = new Random(50);
+		double[] amounts = new double[20000];
+		for (int i = 0; i < amounts.length; i++) {
+			amounts[i] = i % 50 == 0 ? 0 : Math.exp(random.nextGaussian() * 3) * (i % 7 == 0 ? -1 : 1);
+			sketch.accept(amounts[i]);
+		}
+		assertQuantiles(amounts, sketch);
+	}
+
+	/**
+	 * Given - amounts split into several sketches
+	 * When  - the sketches are merged
+	 * Then  - Assert the merge answers like a single sketch of all amounts
+	 */
+	@Test
+	public void whenSketchesMerged_assertSameAsSingleSketch() {
+		QuantileSketch single = new QuantileSketch();
+		QuantileSketch merged = new QuantileSketch();
+		QuantileSketch[] parts = new QuantileSketch[60];
+		Random random = new Random(51);
+		double[] amounts = new double[6000];
+		for (int i = 0; i < amounts.length; i++) {
+			amounts[i] = random.nextDouble() * 10000;
+			single.accept(amounts[i]);
+			if (parts[i % 60] == null) {
+				parts[i % 60] = new QuantileSketch();
+			}
+			parts[i % 60].accept(amounts[i]);
+		}
+		for (QuantileSketch part : parts) {
+			merged.merge(part);
+		}
+		assertEquals(single.getCount(), merged.getCount());
+		for (double quantile : QUANTILES) {
+			assertEquals(single.getQuantile(quantile), merged.getQuantile(quantile), 0.0);
+		}
+		assertQuantiles(amounts, merged);
+	}
+
+	/**
+	 * Given - sketch limited to 100 bins
+	 * When  - amounts spanning far more than 100 bins are added
+	 * Then  - Assert the high quantiles keep their accuracy and only the lowest amounts are collapsed
+	 */
+	@Test
+	public void whenBinsExceeded_assertLowestCollapsed() {
+		QuantileSketch sketch = new QuantileSketch(0.01, 100);
+		for (int i = 0; i < 1000; i++) {
+			sketch.accept(Math.pow(1.1, i % 100));
+		}
+		sketch.accept(1e-6);
+		double top = Math.pow(1.1, 99);
+		assertEquals(top, sketch.getQuantile(1), top * 0.01);
+		Assert.assertTrue(sketch.getQuantile(0) > 1e-6);
+		assertEquals(1001, sketch.getCount());
+
+		sketch.clear();
+		assertEquals(0, sketch.getCount());
+		assertEquals(0.0, sketch.getQuantile(0.5), 0.0);
+		sketch.accept(42);
+		assertEquals(42, sketch.getQuantile(0.5), 0.42);
+	}
+
+	/**
+	 * Given - default sketches of several accuracies
+	 * When  - amounts spanning MAGNITUDE_SPAN are added
+	 * Then  - Assert the bins are sized from the accuracy and the smallest amount keeps its relative accuracy
+	 */
+	@Test
+	public void whenSpanCovered_assertBinsSizedFromAccuracy() {
+		assertEquals(692, QuantileSketch.maxBinsOf(0.01));
+		assertEquals(6909, QuantileSketch.maxBinsOf(0.001));
+		for (double accuracy : new double[] { 0.05, 0.01, 0.001 }) {
+			QuantileSketch sketch = new QuantileSketch(accuracy);
+			sketch.accept(10000);
+			sketch.accept(0.01);
+			assertEquals(0.01, sketch.getQuantile(0), 0.01 * accuracy);
+			assertEquals(10000, sketch.getQuantile(1), 10000 * accuracy);
+		}
+	}
+
+	private static void assertQuantiles(double[] amounts, QuantileSketch sketch) {
+		double[] sorted = amounts.clone();
+		Arrays.sort(sorted);
+		for (double quantile : QUANTILES) {
+			double exact = sorted[(int) (quantile * (sorted.length - 1))];
+			assertEquals("q" + quantile, exact, sketch.getQuantile(quantile), Math.abs(exact) * 0.01 + 1e-12);
+		}
+	}
+}
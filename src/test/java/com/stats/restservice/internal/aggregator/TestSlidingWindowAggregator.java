@@ -0,0 +1,263 @@
+package com.stats.restservice.internal.aggregator;
+
+import static com.stats.restservice.internal.aggregator.SlidingWindowAggregator.NO_QUANTILES;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.DoubleSummaryStatistics;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test class to ascertain the bucketing and expiry of SlidingWindowAggregator 
+ */
+public class TestSlidingWindowAggregator {
+
+	private final AtomicLong mClock = new AtomicLong(1_000_000_000l);
+
+	/**
+	 * Given - aggregator with 60 buckets of 1 second 
+	 * When  - transactions spread over the window are added
+	 * Then  - Assert the summary matches the added amounts
+	 */
+	@Test
+	public void whenTransactionsInsideWindow_assertSummary() {
+		SlidingWindowAggregator aggregator = new SlidingWindowAggregator(60000, 1000, mClock::get);
+		DoubleSummaryStatistics expected = new DoubleSummaryStatistics();
+		for (int i = 0; i < 600; i++) {
+			double amount = 1.5 * i;
+			Assert.assertTrue(aggregator.add(mClock.get() - i * 98, amount));
+			expected.accept(amount);
+		}
+
+		WindowSummary summary = aggregator.summary();
+		assertEquals(expected.getCount(), summary.getCount());
+		assertEquals(expected.getSum(), summary.getSum(), 0.0001);
+		assertEquals(expected.getMin(), summary.getMin(), 0.0);
+		assertEquals(expected.getMax(), summary.getMax(), 0.0);
+	}
+
+	/**
+	 * Given - aggregator with 60 buckets of 1 second 
+	 * When  - a transaction older than the window is added
+	 * Then  - Assert it is rejected and not counted
+	 */
+	@Test
+	public void whenTransactionOlderThanWindow_assertRejected() {
+		SlidingWindowAggregator aggregator = new SlidingWindowAggregator(60000, 1000, mClock::get);
+		Assert.assertFalse(aggregator.add(mClock.get() - 61000, 10.0));
+		assertEquals(0, aggregator.summary().getCount());
+	}
+
+	/**
+	 * Given - aggregator with transactions in it 
+	 * When  - the clock moves past the window
+	 * Then  - Assert the buckets drop out of the summary and expire() clears them
+	 */
+	@Test
+	public void whenClockMovesPastWindow_assertBucketsExpire() {
+		SlidingWindowAggregator aggregator = new SlidingWindowAggregator(60000, 1000, mClock::get);
+		aggregator.add(mClock.get() - 30000, 10.0);
+		aggregator.add(mClock.get(), 20.0);
+
+		mClock.addAndGet(31000);
+		WindowSummary summary = aggregator.summary();
+		assertEquals(1, summary.getCount());
+		assertEquals(20.0, summary.getSum(), 0.0);
+
+		mClock.addAndGet(30000);
+		aggregator.expire();
+		assertEquals(0, aggregator.summary().getCount());
+	}
+
+	/**
+	 * Given - aggregator with 60 buckets of 1 second 
+	 * When  - a transaction with a future timestamp is added
+	 * Then  - Assert it is counted in the current bucket
+	 */
+	@Test
+	public void whenFutureTimestamp_assertCountedInCurrentBucket() {
+		SlidingWindowAggregator aggregator = new SlidingWindowAggregator(60000, 1000, mClock::get);
+		Assert.assertTrue(aggregator.add(mClock.get() + 120000, 10.0));
+		assertEquals(1, aggregator.summary().getCount());
+
+		mClock.addAndGet(60000);
+		assertEquals(0, aggregator.summary().getCount());
+	}
+
+	/**
+	 * Given - aggregator where the extremes sit in the oldest buckets 
+	 * When  - those buckets age out of the window
+	 * Then  - Assert min and max fall back to the extremes of the surviving buckets
+	 */
+	@Test
+	public void whenExtremesExpire_assertMinMaxOfSurvivors() {
+		SlidingWindowAggregator aggregator = new SlidingWindowAggregator(60000, 1000, mClock::get);
+		aggregator.add(mClock.get() - 50000, 1.0);
+		aggregator.add(mClock.get() - 50000, 100.0);
+		aggregator.add(mClock.get() - 40000, 2.0);
+		aggregator.add(mClock.get() - 30000, 50.0);
+
+		WindowSummary summary = aggregator.summary();
+		assertEquals(1.0, summary.getMin(), 0.0);
+		assertEquals(100.0, summary.getMax(), 0.0);
+
+		mClock.addAndGet(15000);
+		summary = aggregator.summary();
+		assertEquals(2, summary.getCount());
+		assertEquals(2.0, summary.getMin(), 0.0);
+		assertEquals(50.0, summary.getMax(), 0.0);
+
+		mClock.addAndGet(10000);
+		summary = aggregator.summary();
+		assertEquals(50.0, summary.getMin(), 0.0);
+		assertEquals(50.0, summary.getMax(), 0.0);
+	}
+
+	/**
+	 * Given - aggregator and transactions arriving out of timestamp order 
+	 * When  - the clock moves so that only part of them stay in the window
+	 * Then  - Assert count , min and max match a brute force computation at every step
+	 */
+	@Test
+	public void whenOutOfOrderTimestamps_assertMatchesBruteForce() {
+		SlidingWindowAggregator aggregator = new SlidingWindowAggregator(60000, 1000, mClock::get);
+		Random random = new Random(42);
+		long[] timestamps = new long[5000];
+		double[] amounts = new double[5000];
+		for (int step = 0; step < 120; step++) {
+			for (int i = 0; i < 5000 / 120; i++) {
+				int index = step * (5000 / 120) + i;
+				timestamps[index] = mClock.get() - random.nextInt(59000);
+				amounts[index] = random.nextDouble() * 1000;
+				aggregator.add(timestamps[index], amounts[index]);
+			}
+			mClock.addAndGet(1000);
+
+			WindowSummary expected = new WindowSummary();
+			long oldestEpoch = mClock.get() / 1000 - 59;
+			for (int index = 0; index < (step + 1) * (5000 / 120); index++) {
+				if (timestamps[index] / 1000 >= oldestEpoch) {
+					expected.accept(amounts[index]);
+				}
+			}
+			WindowSummary summary = aggregator.summary();
+			assertEquals(expected.getCount(), summary.getCount());
+			assertEquals(expected.getMin(), summary.getMin(), 0.0);
+			assertEquals(expected.getMax(), summary.getMax(), 0.0);
+		}
+	}
+
+	/**
+	 * Given - aggregator with a ring of 5 minutes
+	 * When  - the clock moves on while random transactions are added , wrapping around the ring
+	 * Then  - Assert the summaries of the 1s / 10s / 60s / 5m windows match a brute force computation
+	 */
+	@Test
+	public void whenShorterWindowsQueried_assertSummaryOfNewestBuckets() {
+		SlidingWindowAggregator aggregator = new SlidingWindowAggregator(300000, 1000, mClock::get);
+		Random random = new Random(9);
+		long[] windows = { 1000, 10000, 60000, 300000 };
+		long[] timestamps = new long[4000];
+		double[] amounts = new double[4000];
+		for (int step = 0; step < 400; step++) {
+			for (int i = 0; i < 10; i++) {
+				int index = step * 10 + i;
+				timestamps[index] = mClock.get() - random.nextInt(20000);
+				amounts[index] = random.nextDouble() * 1000;
+				aggregator.add(timestamps[index], amounts[index]);
+			}
+			mClock.addAndGet(random.nextInt(2000));
+
+			for (long window : windows) {
+				WindowSummary expected = new WindowSummary();
+				long oldestEpoch = mClock.get() / 1000 - window / 1000 + 1;
+				for (int index = 0; index < (step + 1) * 10; index++) {
+					if (timestamps[index] / 1000 >= oldestEpoch) {
+						expected.accept(amounts[index]);
+					}
+				}
+				WindowSummary summary = aggregator.summary(window);
+				assertEquals(expected.getCount(), summary.getCount());
+				assertEquals(expected.getSum(), summary.getSum(), 0.0001);
+				assertEquals(expected.getMin(), summary.getMin(), 0.0);
+				assertEquals(expected.getMax(), summary.getMax(), 0.0);
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void whenWindowLongerThanRing_assertException() {
+		new SlidingWindowAggregator(60000, 1000, mClock::get).summary(120000);
+	}
+
+	/**
+	 * Given - aggregators with fixed point sums in cents
+	 * When  - the same amounts are added in different orders , with more decimals than the scale
+	 * Then  - Assert the sums are exact and identical , and amounts are rounded to cents
+	 */
+	@Test
+	public void whenFixedPointScale_assertExactReproducibleSums() {
+		SlidingWindowAggregator forward = new SlidingWindowAggregator(60000, 1000, NO_QUANTILES, 2, mClock::get);
+		SlidingWindowAggregator backward = new SlidingWindowAggregator(60000, 1000, NO_QUANTILES, 2, mClock::get);
+		for (int i = 0; i < 100000; i++) {
+			forward.add(mClock.get() - i % 50000, 0.1);
+			backward.add(mClock.get() - (99999 - i) % 50000, 0.1);
+		}
+		forward.add(mClock.get(), 1e6 + 0.004);
+		backward.add(mClock.get(), 1e6 + 0.004);
+
+		assertEquals(1e6 + 10000.0, forward.summary().getSum(), 0.0);
+		assertEquals(forward.summary().getSum(), backward.summary().getSum(), 0.0);
+		assertEquals(1e6, forward.summary().getMax(), 0.0);
+		// 30 buckets hold the offsets 0 .. 29000 ms , every offset was added twice
+		assertEquals(1005800.2, forward.summary(30000).getSum(), 0.0);
+	}
+
+	/**
+	 * Given - striped aggregator with quantiles and transactions spread over the window
+	 * When  - its buckets are written and read into a single ring after part of the window passed
+	 * Then  - Assert the restored summary equals the original one of the remaining buckets , including quantiles
+	 */
+	@Test
+	public void whenBucketsWrittenAndRead_assertSameSummary() throws IOException {
+		StripedWindowAggregator original = new StripedWindowAggregator(4, 60000, 1000, 0.01, mClock::get);
+		Random random = new Random(15);
+		for (int i = 0; i < 10000; i++) {
+			original.add(mClock.get() - random.nextInt(60000), random.nextGaussian() * 100);
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		original.writeTo(new DataOutputStream(bytes));
+
+		mClock.addAndGet(20000);
+		SlidingWindowAggregator restored = new SlidingWindowAggregator(60000, 1000, 0.01, mClock::get);
+		restored.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+		WindowSummary expected = original.summary();
+		WindowSummary summary = restored.summary();
+		assertEquals(expected.getCount(), summary.getCount());
+		assertEquals(expected.getSum(), summary.getSum(), 1e-9);
+		assertEquals(expected.getMin(), summary.getMin(), 0.0);
+		assertEquals(expected.getMax(), summary.getMax(), 0.0);
+		assertEquals(expected.getSketch().getQuantile(0.99), summary.getSketch().getQuantile(0.99), 0.0);
+
+		try {
+			new SlidingWindowAggregator(60000, 500, mClock::get)
+					.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+			Assert.fail("buckets of another resolution restored");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void whenWindowNotMultipleOfResolution_assertException() {
+		new SlidingWindowAggregator(60500, 1000, mClock::get);
+	}
+}
@@ -0,0 +1,78 @@
+package com.stats.restservice.internal.aggregator;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+/**
+ * Test class to ascertain that StripedWindowAggregator merges the stripes of concurrent writers 
+ */
+public class TestStripedWindowAggregator {
+
+	private final AtomicLong mClock = new AtomicLong(1_000_000_000l);
+
+	/**
+	 * Given - striped aggregator and 8 writer threads 
+	 * When  - every thread adds the same set of transactions concurrently
+	 * Then  - Assert the merged summary accounts for all the threads
+	 */
+	@Test
+	public void whenConcurrentWriters_assertMergedSummary() throws InterruptedException {
+		StripedWindowAggregator aggregator = new StripedWindowAggregator(8, 60000, 1000, mClock::get);
+		List<Thread> writers = new ArrayList<>();
+		for (int t = 0; t < 8; t++) {
+			final int offset = t;
+			writers.add(new Thread(() -> {
+				for (int i = 1; i <= 10000; i++) {
+					aggregator.add(mClock.get() - (i % 50000), i + offset);
+				}
+			}));
+		}
+		writers.forEach(Thread::start);
+		for (Thread writer : writers) {
+			writer.join();
+		}
+
+		WindowSummary summary = aggregator.summary();
+		assertEquals(80000, summary.getCount());
+		assertEquals(8 * (10000 * 10001 / 2) + 10000 * 28, summary.getSum(), 0.0);
+		assertEquals(1.0, summary.getMin(), 0.0);
+		assertEquals(10007.0, summary.getMax(), 0.0);
+	}
+
+	/**
+	 * Given - striped aggregator with 4 stripes
+	 * When  - 4 threads with ids that are not consecutive add one transaction each
+	 * Then  - Assert every thread wrote to a stripe of its own
+	 */
+	@Test
+	public void whenThreadIdsNotConsecutive_assertOneStripePerThread() throws InterruptedException {
+		StripedWindowAggregator aggregator = new StripedWindowAggregator(4, 60000, 1000, mClock::get);
+		for (int t = 0; t < 4; t++) {
+			// threads that never write take ids in between
+			new Thread(() -> { });
+			Thread writer = new Thread(() -> aggregator.add(mClock.get(), 1));
+			writer.start();
+			writer.join();
+		}
+
+		for (int stripe = 0; stripe < 4; stripe++) {
+			assertEquals(1, aggregator.stripeSummary(stripe).getCount());
+		}
+	}
+
+	/**
+	 * Given - stripe count that is not a power of two 
+	 * When  - the aggregator is created
+	 * Then  - Assert the stripe count is rounded up
+	 */
+	@Test
+	public void whenStripesNotPowerOfTwo_assertRoundedUp() {
+		assertEquals(8, new StripedWindowAggregator(5, 60000, 1000, mClock::get).getStripeCount());
+		assertEquals(1, new StripedWindowAggregator(1, 60000, 1000, mClock::get).getStripeCount());
+	}
+}
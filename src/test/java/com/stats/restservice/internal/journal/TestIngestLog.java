@@ -0,0 +1,139 @@
+package com.stats.restservice.internal.journal;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test class to ascertain the append , replay and truncation of IngestLog
+ */
+public class TestIngestLog {
+
+	private static final int SEGMENT_BYTES = 4096;
+
+	@Rule
+	public TemporaryFolder mFolder = new TemporaryFolder();
+
+	private final AtomicLong mClock = new AtomicLong(1_000_000_000l);
+
+	/**
+	 * Given - log with small segments and records with and without keys
+	 * When  - the log is reopened
+	 * Then  - Assert every record is replayed in order , across several segments
+	 */
+	@Test
+	public void whenReopened_assertRecordsReplayed() throws IOException {
+		File directory = mFolder.newFolder();
+		IngestLog log = new IngestLog(directory, 60000, SEGMENT_BYTES, 0, mClock::get);
+		List<String> expected = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			String key = i % 3 == 0 ? null : "caf\u00e9-" + i;
+			log.append(mClock.get() - i, i / 7.0, key);
+			expected.add((mClock.get() - i) + " " + i / 7.0 + " " + key);
+		}
+		log.close();
+		assertEquals(true, directory.list().length > 2);
+
+		assertEquals(expected, replay(new IngestLog(directory, 60000, SEGMENT_BYTES, 0, mClock::get)));
+	}
+
+	/**
+	 * Given - log with small segments
+	 * When  - 4 threads append at the same time and the log is reopened
+	 * Then  - Assert every record is replayed once , none was torn by a concurrent append or a roll
+	 */
+	@Test
+	public void whenAppendedConcurrently_assertRecordsReplayed() throws IOException, InterruptedException {
+		File directory = mFolder.newFolder();
+		IngestLog log = new IngestLog(directory, 60000, SEGMENT_BYTES, 0, mClock::get);
+		List<String> expected = Collections.synchronizedList(new ArrayList<>());
+		List<Thread> writers = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			int writer = t;
+			writers.add(new Thread(() -> {
+				for (int i = 0; i < 1000; i++) {
+					String key = i % 2 == 0 ? null : "writer-" + writer;
+					log.append(mClock.get() - i, writer, key);
+					expected.add((mClock.get() - i) + " " + (double) writer + " " + key);
+				}
+			}));
+		}
+		for (Thread thread : writers) {
+			thread.start();
+		}
+		for (Thread thread : writers) {
+			thread.join();
+		}
+		log.close();
+
+		List<String> replayed = replay(new IngestLog(directory, 60000, SEGMENT_BYTES, 0, mClock::get));
+		Collections.sort(expected);
+		Collections.sort(replayed);
+		assertEquals(expected, replayed);
+	}
+
+	/**
+	 * Given - log whose last record was only partly written when the process stopped
+	 * When  - the log is reopened
+	 * Then  - Assert the records before the torn one are replayed
+	 */
+	@Test
+	public void whenTornRecord_assertReplayStopsBeforeIt() throws IOException {
+		File directory = mFolder.newFolder();
+		IngestLog log = new IngestLog(directory, 60000, SEGMENT_BYTES, 0, mClock::get);
+		for (int i = 0; i < 10; i++) {
+			log.append(mClock.get(), i, null);
+		}
+		log.close();
+		try (RandomAccessFile file = new RandomAccessFile(directory.listFiles()[0], "rw")) {
+			// corrupt the amount of the last record , its CRC does not match any more
+			file.seek(9 * 24 + 16);
+			file.writeLong(42);
+		}
+
+		assertEquals(9, replay(new IngestLog(directory, 60000, SEGMENT_BYTES, 0, mClock::get)).size());
+	}
+
+	/**
+	 * Given - log with segments of several periods
+	 * When  - the retention period passes and maintain() is executed
+	 * Then  - Assert the expired segments are deleted and not replayed
+	 */
+	@Test
+	public void whenRetentionPassed_assertSegmentsTruncated() throws IOException {
+		File directory = mFolder.newFolder();
+		IngestLog log = new IngestLog(directory, 60000, SEGMENT_BYTES, 0, mClock::get);
+		log.append(mClock.get(), 1, "old");
+		mClock.addAndGet(60000);
+		log.maintain();
+		log.append(mClock.get(), 2, "new");
+		assertEquals(2, directory.list().length);
+
+		// the old segment holds transactions received until the new one was created , kept a window longer
+		mClock.addAndGet(60001);
+		log.maintain();
+		assertEquals(2, directory.list().length);
+		log.close();
+
+		List<String> replayed = replay(new IngestLog(directory, 60000, SEGMENT_BYTES, 0, mClock::get));
+		assertEquals(1, replayed.size());
+		assertEquals(mClock.get() - 60001 + " 2.0 new", replayed.get(0));
+	}
+
+	private static List<String> replay(IngestLog log) throws IOException {
+		List<String> records = new ArrayList<>();
+		log.replay((timestamp, amount, key) -> records.add(timestamp + " " + amount + " " + key));
+		log.close();
+		return records;
+	}
+}
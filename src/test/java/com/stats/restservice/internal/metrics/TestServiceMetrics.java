@@ -0,0 +1,71 @@
+package com.stats.restservice.internal.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import com.stats.restservice.internal.metrics.ServiceMetrics.RejectReason;
+import com.stats.restservice.internal.metrics.ServiceMetrics.Route;
+
+/**
+ * Test class to ascertain the recording of ServiceMetrics and its Prometheus text format
+ */
+public class TestServiceMetrics {
+
+	/**
+	 * Given - durations of 50 micros , 2 millis and 20 seconds
+	 * When  - the histogram is written
+	 * Then  - Assert the buckets are cumulative , the 20 seconds only count in +Inf , and sum and count match
+	 */
+	@Test
+	public void whenDurationsRecorded_assertCumulativeBuckets() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(TimeUnit.MICROSECONDS.toNanos(50));
+		histogram.record(TimeUnit.MILLISECONDS.toNanos(2));
+		histogram.record(TimeUnit.SECONDS.toNanos(20));
+		StringBuilder out = new StringBuilder();
+		histogram.writeTo(out, "latency", "route=\"/x\"");
+		String text = out.toString();
+
+		assertTrue(text.contains("latency_bucket{route=\"/x\",le=\"1.0E-4\"} 1\n"));
+		assertTrue(text.contains("latency_bucket{route=\"/x\",le=\"0.001\"} 1\n"));
+		assertTrue(text.contains("latency_bucket{route=\"/x\",le=\"0.0025\"} 2\n"));
+		assertTrue(text.contains("latency_bucket{route=\"/x\",le=\"10.0\"} 2\n"));
+		assertTrue(text.contains("latency_bucket{route=\"/x\",le=\"+Inf\"} 3\n"));
+		assertTrue(text.contains("latency_sum{route=\"/x\"} 20.00205\n"));
+		assertTrue(text.contains("latency_count{route=\"/x\"} 3\n"));
+	}
+
+	/**
+	 * Given - counters incremented from several threads
+	 * When  - the metrics are scraped
+	 * Then  - Assert no increment is lost and every metric has HELP and TYPE lines
+	 */
+	@Test
+	public void whenRecordedConcurrently_assertScrapeHasAllCounts() {
+		ServiceMetrics metrics = new ServiceMetrics();
+		IntStream.range(0, 10000).parallel().forEach(i -> {
+			metrics.transactionAccepted();
+			metrics.transactionRejected(i % 2 == 0 ? RejectReason.TOO_OLD : RejectReason.INVALID);
+			metrics.recordRequest(Route.TRANSACTIONS, i);
+		});
+		metrics.parseFailure();
+
+		assertEquals(10000, metrics.getAccepted());
+		assertEquals(5000, metrics.getRejected(RejectReason.TOO_OLD));
+		assertEquals(10000, metrics.getRequestLatency(Route.TRANSACTIONS).getCount());
+		String text = metrics.scrape(null);
+		assertTrue(text.contains("stats_transactions_accepted_total 10000\n"));
+		assertTrue(text.contains("stats_transactions_rejected_total{reason=\"invalid\"} 5000\n"));
+		assertTrue(text.contains("stats_transactions_rejected_total{reason=\"amount_out_of_range\"} 0\n"));
+		assertTrue(text.contains("stats_parse_failures_total 1\n"));
+		assertTrue(text.contains("# TYPE http_request_duration_seconds histogram\n"));
+		assertTrue(text.contains("http_request_duration_seconds_count{route=\"/transactions\"} 10000\n"));
+		assertTrue(text.contains("http_request_duration_seconds_count{route=\"/statistics\"} 0\n"));
+		assertTrue(text.contains("# HELP stats_cleaner_run_seconds "));
+	}
+}
@@ -0,0 +1,70 @@
+package com.stats.restservice.internal.services;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.stats.restservice.internal.services.IdempotencyKeys.Outcome;
+
+public class TestIdempotencyKeys {
+
+	/**
+	 * Given - an exact capacity of 2 keys
+	 * When  - keys within and beyond the capacity are added twice
+	 * Then  - Assert every second add is taken for a retry
+	 */
+	@Test
+	public void whenKeyAddedTwice_assertRetryDetected() {
+		IdempotencyKeys keys = new IdempotencyKeys(60000, 2, 1000);
+		Assert.assertEquals(Outcome.NEW, keys.add("a"));
+		Assert.assertEquals(Outcome.NEW, keys.add("b"));
+		// beyond the exact capacity , Bloom filter only
+		Assert.assertEquals(Outcome.NEW, keys.add("c"));
+		Assert.assertEquals(Outcome.RETRY, keys.add("a"));
+		Assert.assertEquals(Outcome.RETRY, keys.add("b"));
+		Assert.assertEquals(Outcome.RETRY, keys.add("c"));
+	}
+
+	/**
+	 * Given - no exact capacity and a Bloom filter sized for 1000 keys
+	 * When  - 10 times as many distinct keys are added
+	 * Then  - Assert none is taken for a retry , the keys beyond the capacity of the filter are not tracked
+	 */
+	@Test
+	public void whenFilterOverfilled_assertKeysUntracked() {
+		IdempotencyKeys keys = new IdempotencyKeys(60000, 0, 1000);
+		int untracked = 0;
+		for (int i = 0; i < 10000; i++) {
+			Outcome outcome = keys.add("transaction-" + i);
+			Assert.assertNotEquals("transaction-" + i, Outcome.RETRY, outcome);
+			if (outcome == Outcome.UNTRACKED) {
+				untracked++;
+			}
+		}
+		Assert.assertEquals(9000, untracked);
+		// the keys taken by the filter are still recognized
+		Assert.assertEquals(Outcome.RETRY, keys.add("transaction-0"));
+		Assert.assertEquals(28800, keys.getFilterBits());
+	}
+
+	/**
+	 * Given - a retention of 200 ms
+	 * When  - a key is added again after one and after two retentions
+	 * Then  - Assert it is remembered for one retention and forgotten after two
+	 */
+	@Test
+	public void whenRetentionPassed_assertKeyForgotten() throws InterruptedException {
+		IdempotencyKeys keys = new IdempotencyKeys(200, 10, 10);
+		Assert.assertEquals(Outcome.NEW, keys.add("a"));
+		Thread.sleep(250);
+		Assert.assertEquals(Outcome.RETRY, keys.add("a"));
+		Thread.sleep(450);
+		Assert.assertEquals(Outcome.NEW, keys.add("a"));
+	}
+
+	@Test
+	public void whenKeyMalformed_assertInvalid() {
+		Assert.assertTrue(IdempotencyKeys.isValidKey("3f2c9a4e-1b7d-4c55-9e1a-2f6d8b0c7e21"));
+		Assert.assertFalse(IdempotencyKeys.isValidKey(""));
+		Assert.assertFalse(IdempotencyKeys.isValidKey(new String(new char[IdempotencyKeys.MAX_KEY_LENGTH + 1])));
+	}
+}
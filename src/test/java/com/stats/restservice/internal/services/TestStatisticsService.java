@@ -4,9 +4,14 @@ import static com.stats.restservice.internal.services.StatisticsServiceImpl.AVER
 import static com.stats.restservice.internal.services.StatisticsServiceImpl.COUNT;
 import static com.stats.restservice.internal.services.StatisticsServiceImpl.MAX;
 import static com.stats.restservice.internal.services.StatisticsServiceImpl.MIN;
+import static com.stats.restservice.internal.services.StatisticsServiceImpl.P50;
+import static com.stats.restservice.internal.services.StatisticsServiceImpl.P99;
 import static com.stats.restservice.internal.services.StatisticsServiceImpl.SUM;
 import static org.junit.Assert.assertEquals;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.DoubleSummaryStatistics;
 import java.util.List;
 import java.util.Map;
@@ -15,7 +20,9 @@ import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 
 import com.stats.restservice.external.services.IStatisticsService;
@@ -26,6 +33,9 @@ import com.stats.restservice.transaction.TransactionFactory;
  * Test class to ascertain the functionality of StatisticsServiceImpl 
  */
 public class TestStatisticsService {
+
+	@Rule
+	public TemporaryFolder mFolder = new TemporaryFolder();
 	
 	/**
 	 * Given - StatisticsService object and some valid transaction , older transactions 
@@ -96,6 +106,119 @@ public class TestStatisticsService {
 	    }
 	    
 	    
+	    /**
+		 * Given - StatisticsService object 
+		 * When  - transactions are computed through the primitive api , including one older than 60 seconds
+		 * Then  - Assert only the valid ones are part of the statistics
+		 */
+	    @Test
+	    public void whenPrimitiveTransactions_computeTransaction(){
+			IStatisticsService statisticsService = new StatisticsServiceImpl();
+	        statisticsService.computeTransaction(5.5, System.currentTimeMillis() - 10000);
+	        statisticsService.computeTransaction(15.5, System.currentTimeMillis() - 5000);
+	        statisticsService.computeTransaction(99.9, System.currentTimeMillis() - 70000);
+
+	        Map<String, Number> summary = statisticsService.getStatistics();
+	        assertEquals((Double)summary.get(SUM), 21.0 , 0.0);
+	        assertEquals((Double)summary.get(MIN), 5.5 , 0.0);
+	        assertEquals((Double)summary.get(MAX), 15.5 , 0.0);
+	        assertEquals(summary.get(COUNT), 2l);
+	    }
+	    
+	    /**
+		 * Given - StatisticsService with quantiles enabled and one without
+		 * When  - amounts 1 to 1000 are computed
+		 * Then  - Assert p50 / p99 are within the relative accuracy and absent when not enabled
+		 */
+	    @Test
+	    public void whenQuantilesEnabled_assertPercentilesInStatistics(){
+			IStatisticsService statisticsService = new StatisticsServiceImpl(new StatisticsOptions().setQuantiles(true));
+			IStatisticsService plainStatisticsService = new StatisticsServiceImpl();
+			for (int i = 1; i <= 1000; i++) {
+				statisticsService.computeTransaction(i, System.currentTimeMillis() - i);
+				plainStatisticsService.computeTransaction(i, System.currentTimeMillis() - i);
+			}
+
+	        Map<String, Number> summary = statisticsService.getStatistics();
+	        assertEquals((Double)summary.get(P50), 500.0 , 5.0);
+	        assertEquals((Double)summary.get(P99), 990.0 , 9.9);
+	        Assert.assertFalse(plainStatisticsService.getStatistics().containsKey(P50));
+	    }
+	    
+	    /**
+		 * Given - StatisticsService with fixed point sums in cents
+		 * When  - keyed and unkeyed amounts are computed
+		 * Then  - Assert exact sums for both and that amounts beyond the scale are not supported
+		 */
+	    @Test
+	    public void whenFixedPointScale_assertExactSums(){
+			IStatisticsService statisticsService = new StatisticsServiceImpl(new StatisticsOptions().setAmountScale(2));
+			for (int i = 0; i < 1000; i++) {
+				statisticsService.computeTransaction(0.01, System.currentTimeMillis() - i, "EUR");
+			}
+	        assertEquals((Double)statisticsService.getStatistics().get(SUM), 10.0 , 0.0);
+	        assertEquals((Double)statisticsService.getStatistics("EUR", 60000).get(SUM), 10.0 , 0.0);
+	        Assert.assertTrue(statisticsService.isAmountSupported(1e12));
+	        Assert.assertFalse(statisticsService.isAmountSupported(1e14));
+	        Assert.assertFalse(statisticsService.isAmountSupported(Double.NaN));
+	    }
+	    
+	    /**
+		 * Given - StatisticsService with an ingest log and some keyed / unkeyed transactions
+		 * When  - the service is closed and a new one is created on the same directory
+		 * Then  - Assert the new service starts with the same statistics
+		 */
+	    @Test
+	    public void whenIngestLogConfigured_assertStatisticsRecoveredAfterRestart() throws IOException{
+	    	StatisticsOptions options = new StatisticsOptions().setIngestLogDirectory(mFolder.newFolder().getPath());
+			IStatisticsService statisticsService = new StatisticsServiceImpl(options);
+			for (int i = 0; i < 1000; i++) {
+				statisticsService.computeTransaction(i, System.currentTimeMillis() - i, i % 2 == 0 ? "EUR" : null);
+			}
+			// older than the window , neither logged nor replayed
+			statisticsService.computeTransaction(5000, System.currentTimeMillis() - 61000, "EUR");
+			Map<String, Number> expected = statisticsService.getStatistics();
+			Map<String, Number> expectedKeyed = statisticsService.getStatistics("EUR", 60000);
+			statisticsService.close();
+
+			IStatisticsService recoveredService = new StatisticsServiceImpl(options);
+	        assertEquals(expected, recoveredService.getStatistics());
+	        assertEquals(expectedKeyed, recoveredService.getStatistics("EUR", 60000));
+	        assertEquals(500l, expectedKeyed.get(COUNT));
+	        recoveredService.close();
+	    }
+	    
+	    /**
+		 * Given - StatisticsService with a state file and some keyed / unkeyed transactions
+		 * When  - the service is closed and new ones are created on the same file
+		 * Then  - Assert the state is restored once , and a corrupt file is skipped
+		 */
+	    @Test
+	    public void whenStateFileConfigured_assertStatisticsRestoredAfterRestart() throws IOException{
+	    	File stateFile = new File(mFolder.newFolder(), "state.bin");
+	    	StatisticsOptions options = new StatisticsOptions().setStateFile(stateFile.getPath()).setQuantiles(true);
+			IStatisticsService statisticsService = new StatisticsServiceImpl(options);
+			for (int i = 0; i < 1000; i++) {
+				statisticsService.computeTransaction(i, System.currentTimeMillis() - i * 50, i % 2 == 0 ? "EUR" : null);
+			}
+			Map<String, Number> expected = statisticsService.getStatistics();
+			Map<String, Number> expectedKeyed = statisticsService.getStatistics("EUR", 60000);
+			statisticsService.close();
+
+			IStatisticsService restoredService = new StatisticsServiceImpl(options);
+	        assertEquals(expected.get(COUNT), restoredService.getStatistics().get(COUNT));
+	        assertEquals((Double) expected.get(SUM), (Double) restoredService.getStatistics().get(SUM), 1e-9);
+	        assertEquals(expected.get(P99), restoredService.getStatistics().get(P99));
+	        assertEquals(expectedKeyed, restoredService.getStatistics("EUR", 60000));
+	        Assert.assertFalse(stateFile.exists());
+	        restoredService.close();
+
+	        byte[] bytes = Files.readAllBytes(stateFile.toPath());
+	        bytes[bytes.length / 2] ^= 1;
+	        Files.write(stateFile.toPath(), bytes);
+	        assertEquals(0l, new StatisticsServiceImpl(options).getStatistics().get(COUNT));
+	    }
+	    
 	    /**
 		 * Given - StatisticsService object and some valid transaction , older transactions 
 		 * When  - removeStaleEntries is executed
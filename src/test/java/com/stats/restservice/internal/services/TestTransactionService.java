@@ -1,5 +1,6 @@
 package com.stats.restservice.internal.services;
 
+import java.util.Arrays;
 import java.util.Date;
 import java.util.Optional;
 import java.util.function.Supplier;
@@ -9,8 +10,12 @@ import org.junit.Test;
 import org.mockito.Mockito;
 
 import com.stats.restservice.external.services.ITransactionService;
-import com.stats.restservice.transaction.ITransaction;
+import com.stats.restservice.internal.metrics.ServiceMetrics;
+import com.stats.restservice.transaction.TransactionBatch;
 
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 
 
@@ -33,7 +38,7 @@ public class TestTransactionService {
 		  status = transactionService.unMarshallTransactionData((getTransactionJson(12.5, System.currentTimeMillis() - 60000)));
 		  Assert.assertEquals(Optional.empty(), status);
 
-	      Mockito.verify(spiedStatisticsService, Mockito.never()).computeTransaction(Mockito.any(ITransaction.class));
+	      Mockito.verify(spiedStatisticsService, Mockito.never()).computeTransaction(Mockito.anyDouble(), Mockito.anyLong());
 	  }
 	  
 	  
@@ -53,7 +58,7 @@ public class TestTransactionService {
 			  status = transactionService.unMarshallTransactionData((getTransactionJson(12.5, new Date().getTime())));
 			  Assert.assertEquals(true, status.get().booleanValue());
 			  
-		      Mockito.verify(spiedStatisticsService, Mockito.times(2)).computeTransaction(Mockito.any(ITransaction.class));
+		      Mockito.verify(spiedStatisticsService, Mockito.times(2)).computeTransaction(Mockito.anyDouble(), Mockito.anyLong());
 		  }
 		  
 		  /**
@@ -73,6 +78,141 @@ public class TestTransactionService {
 				  
 			  }
 	  
+			  /**
+			   * Given - Statistics Service spied object and Transactionservice 
+			   * When  - a json array batch with valid , older and malformed items is unmarshalled
+			   * Then  - Assert the accepted / rejected counts and that the batch is stored in a single call
+			   */
+			  @Test
+			  public void whenJsonArrayBatch_assertAcceptedAndRejectedCounts(){
+				  StatisticsServiceImpl spiedStatisticsService = Mockito.spy(new StatisticsServiceImpl());
+				  ITransactionService transactionService = new TransactionServiceImpl(spiedStatisticsService);
+				  long now = System.currentTimeMillis();
+				  JsonArray items = new JsonArray()
+						  .add(new JsonObject().put("amount", 10.5).put("timestamp", now))
+						  .add(new JsonObject().put("amount", "12.5").put("timestamp", now - 1000))
+						  .add(new JsonObject().put("amount", 12.5).put("timestamp", now - 70000))
+						  .add(new JsonObject().put("amount", "abc").put("timestamp", now))
+						  .add("not an object");
+				  
+				  TransactionBatch batch = transactionService.unMarshallTransactionBatch(items.toBuffer());
+				  Assert.assertEquals(2, batch.getAcceptedCount());
+				  Assert.assertEquals(3, batch.getRejectedCount());
+				  Assert.assertEquals(12.5, batch.getAmount(1), 0.0);
+				  Mockito.verify(spiedStatisticsService, Mockito.times(1)).computeTransactions(batch);
+				  Assert.assertEquals(2l, spiedStatisticsService.getStatistics().get(StatisticsServiceImpl.COUNT));
+			  }
+			  
+			  /**
+			   * Given - Statistics Service and Transactionservice 
+			   * When  - a newline delimited json batch with a malformed line is unmarshalled
+			   * Then  - Assert the malformed line is rejected and the others accepted
+			   */
+			  @Test
+			  public void whenNdjsonBatch_assertAcceptedAndRejectedCounts(){
+				  ITransactionService transactionService = new TransactionServiceImpl(new StatisticsServiceImpl());
+				  long now = System.currentTimeMillis();
+				  String body = new JsonObject().put("amount", 1.5).put("timestamp", now).encode() + "\r\n"
+						  + "{\"amount\": 2.5 , \n"
+						  + new JsonObject().put("amount", 3.5).put("timestamp", now).encode() + "\n\n";
+				  
+				  TransactionBatch batch = transactionService.unMarshallTransactionBatch(Buffer.buffer(body));
+				  Assert.assertEquals(2, batch.getAcceptedCount());
+				  Assert.assertEquals(1, batch.getRejectedCount());
+			  }
+			  
+			  @Test(expected = DecodeException.class)
+			  public void whenMalformedJsonArrayBatch_assertDecodeException(){
+				  ITransactionService transactionService = new TransactionServiceImpl(new StatisticsServiceImpl());
+				  transactionService.unMarshallTransactionBatch(Buffer.buffer("[{\"amount\": 2.5 ,"));
+			  }
+	  
+	  /**
+	   * Given - Statistics Service spied object and Transactionservice
+	   * When  - a transaction is posted twice with the same idempotency key , a rejected one with another key
+	   * Then  - Assert both posts of the first are accepted but it is computed once , the rejected key is not remembered
+	   */
+	  @Test
+	  public void whenTransactionRetriedWithIdempotencyKey_assertComputedOnce() {
+		  StatisticsServiceImpl spiedStatisticsService = Mockito.spy(new StatisticsServiceImpl());
+		  ServiceMetrics metrics = new ServiceMetrics();
+		  ITransactionService transactionService = new TransactionServiceImpl(spiedStatisticsService, metrics);
+		  Buffer body = new JsonObject().put("amount", 10.5).put("timestamp", System.currentTimeMillis()).toBuffer();
+
+		  Assert.assertEquals(true, transactionService.unMarshallTransactionData(body, "payment-1").get().booleanValue());
+		  Assert.assertEquals(true, transactionService.unMarshallTransactionData(body, "payment-1").get().booleanValue());
+		  Mockito.verify(spiedStatisticsService, Mockito.times(1)).computeTransaction(Mockito.anyDouble(), Mockito.anyLong());
+		  Assert.assertEquals(1, metrics.getDuplicates());
+
+		  Buffer tooOld = new JsonObject().put("amount", 10.5).put("timestamp", System.currentTimeMillis() - 70000).toBuffer();
+		  Assert.assertEquals(Optional.empty(), transactionService.unMarshallTransactionData(tooOld, "payment-2"));
+		  Assert.assertEquals(true, transactionService.unMarshallTransactionData(body, "payment-2").get().booleanValue());
+		  Mockito.verify(spiedStatisticsService, Mockito.times(2)).computeTransaction(Mockito.anyDouble(), Mockito.anyLong());
+	  }
+	  
+	  /**
+	   * Given - Transactionservice whose idempotency keys have room for 100 keys
+	   * When  - 101 transactions are posted with different keys
+	   * Then  - Assert all are computed and the key that was not remembered is counted
+	   */
+	  @Test
+	  public void whenIdempotencyKeysFull_assertTransactionAcceptedUntracked() {
+		  StatisticsServiceImpl spiedStatisticsService = Mockito.spy(new StatisticsServiceImpl());
+		  ServiceMetrics metrics = new ServiceMetrics();
+		  ITransactionService transactionService = new TransactionServiceImpl(spiedStatisticsService, metrics,
+				  new IdempotencyKeys(60000, 0, 100));
+		  Buffer body = new JsonObject().put("amount", 10.5).put("timestamp", System.currentTimeMillis()).toBuffer();
+
+		  for (int i = 0; i <= 100; i++) {
+			  Assert.assertEquals(true, transactionService.unMarshallTransactionData(body, "payment-" + i).get().booleanValue());
+		  }
+		  Mockito.verify(spiedStatisticsService, Mockito.times(101)).computeTransaction(Mockito.anyDouble(), Mockito.anyLong());
+		  Assert.assertEquals(0, metrics.getDuplicates());
+		  Assert.assertEquals(1, metrics.getUntrackedKeys());
+	  }
+	  
+	  /**
+	   * Given - Statistics Service with a 5 minute window besides the 60 seconds one
+	   * When  - a transaction of 61 seconds ago is posted , with and without idempotency key
+	   * Then  - Assert it is answered like one older than 60 seconds but counted in the 5 minute window
+	   */
+	  @Test
+	  public void whenTransactionOlderThanDefaultWindow_assertStoredForLongerWindow() {
+		  StatisticsServiceImpl statisticsService = new StatisticsServiceImpl(new StatisticsOptions()
+				  .setWindows(Arrays.asList(60000l, 300000l)));
+		  ITransactionService transactionService = new TransactionServiceImpl(statisticsService);
+		  Buffer body = new JsonObject().put("amount", 10.5).put("timestamp", System.currentTimeMillis() - 61000).toBuffer();
+
+		  Assert.assertEquals(Optional.empty(), transactionService.unMarshallTransactionData(body));
+		  Assert.assertEquals(Optional.empty(), transactionService.unMarshallTransactionData(body, "payment-1"));
+		  Assert.assertEquals(Optional.empty(), transactionService.unMarshallTransactionData(body, "payment-1"));
+		  Assert.assertEquals(0l, statisticsService.getStatistics(60000).get("count").longValue());
+		  Assert.assertEquals(2l, statisticsService.getStatistics(300000).get("count").longValue());
+	  }
+	  
+	  /**
+	   * Given - Statistics Service with a 5 minute window besides the 60 seconds one
+	   * When  - a batch with a current item , an item of 61 seconds ago and one older than 5 minutes is unmarshalled
+	   * Then  - Assert the item of 61 seconds ago is counted as rejected like a single post but stored for the 5 minute window
+	   */
+	  @Test
+	  public void whenBatchItemOlderThanDefaultWindow_assertCountedLikeSingleTransaction() {
+		  StatisticsServiceImpl statisticsService = new StatisticsServiceImpl(new StatisticsOptions()
+				  .setWindows(Arrays.asList(60000l, 300000l)));
+		  ITransactionService transactionService = new TransactionServiceImpl(statisticsService);
+		  long now = System.currentTimeMillis();
+		  JsonArray items = new JsonArray()
+				  .add(new JsonObject().put("amount", 10.5).put("timestamp", now))
+				  .add(new JsonObject().put("amount", 12.5).put("timestamp", now - 61000))
+				  .add(new JsonObject().put("amount", 14.5).put("timestamp", now - 310000));
+
+		  TransactionBatch batch = transactionService.unMarshallTransactionBatch(items.toBuffer());
+		  Assert.assertEquals(1, batch.getAcceptedCount());
+		  Assert.assertEquals(2, batch.getRejectedCount());
+		  Assert.assertEquals(1l, statisticsService.getStatistics(60000).get("count").longValue());
+		  Assert.assertEquals(2l, statisticsService.getStatistics(300000).get("count").longValue());
+	  }
+	  
 	  private Supplier<JsonObject> getTransactionJson(Double doubleValue, Long time) {
 		  JsonObject jsonData = new JsonObject();
 		  jsonData.put("amount", doubleValue);
@@ -0,0 +1,181 @@
+package com.stats.restservice.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.stats.restservice.transaction.TransactionFactory;
+import com.stats.restservice.utils.TransactionParser.Result;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Compatibility / fuzz test of TransactionParser against the legacy JsonObject + String.valueOf parsing.
+ * Whenever the streaming parser decides (PARSED / INVALID) the legacy path must come to the same result ,
+ * UNSUPPORTED bodies are handed over to the legacy path by the service.
+ */
+public class TestTransactionParser {
+
+	private static final String[] AMOUNTS = { "12.3", "0", "-0", "-0.0", "1e3", "1E-3", "2.5e+2", "123456789012345678",
+			"1234567890123456789012", "0.1", "3.141592653589793", "9007199254740993", "1e400", "4.9e-324", "1.7976931348623157e308",
+			"9999999999999999999", "-9999999999999999999", "99999999999999999999", "12345678901234567890", "0.00012345678901234567891",
+			"\"9999999999999999999\"", "\"-9999999999999999999\"", "\"99999999999999999999\"", "\"12345678901234567890\"",
+			"\"12.3\"", "\"-0\"", "\" 12.3 \"", "\"1.\"", "\".5\"", "\"NaN\"", "\"Infinity\"", "\"1d\"", "\"0x1p3\"", "\"abc\"",
+			"\"\"", "\"+7\"", "\"1e5\"", "\"\\u0031\"", "null", "true", "false", "{}", "[1,2]", "{\"a\":[1,{\"b\":null}]}" };
+
+	private static final String[] TIMESTAMPS = { "1478192204000", "0", "-0", "-12", "1.5e12", "1478192204000.0", "9223372036854775807",
+			"-9223372036854775808", "9223372036854775808", "99999999999999999999", "\"1478192204000\"", "\"+5\"", "\"-5\"",
+			"\"1.0\"", "\" 5\"", "\"\"", "\"-\"", "\"\\u0035\"", "null", "true", "[]", "{\"x\":1}" };
+
+	private static final String[] KEYS = { "\"merchant-1\"", "\"EUR\"", "\"caf\u00e9\"", "\"\"", "\"m\\\"1\"", "null", "12", "true",
+			"[]", "{\"id\":1}" };
+
+	private static final String[] OTHERS = { "\"text\"", "\"esc\\\"aped\\n\"", "\"\\u00e9t\u00e9\"", "12", "-3.5e-7", "null", "true",
+			"false", "[]", "[1,\"a\",[null]]", "{\"nested\":{\"deeper\":[true,false]}}" };
+
+	private final TransactionParser mParser = new TransactionParser();
+
+	/**
+	 * Given - well formed bodies built from every combination of amount / timestamp representations
+	 * When  - parsed by the streaming and the legacy parser
+	 * Then  - Assert both agree and that plain bodies never need the fallback
+	 */
+	@Test
+	public void whenWellFormedBodies_assertSameResultAsLegacy() {
+		for (String amount : AMOUNTS) {
+			for (String timestamp : TIMESTAMPS) {
+				String body = "{\"amount\":" + amount + ",\"timestamp\":" + timestamp + "}";
+				Result result = assertCompatible(body);
+				if (!body.contains("\\")) {
+					assertEquals(body, false, result == Result.UNSUPPORTED);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Given - typical request bodies
+	 * When  - parsed by the streaming parser
+	 * Then  - Assert the values are read without falling back
+	 */
+	@Test
+	public void whenTypicalBody_assertParsedValues() {
+		Assert.assertEquals(Result.PARSED, mParser.parse(Buffer.buffer("{\n  \"amount\" : 12.3,\n  \"timestamp\" : 1478192204000\n}")));
+		assertEquals(12.3, mParser.getAmount(), 0.0);
+		assertEquals(1478192204000l, mParser.getTimestamp());
+
+		Assert.assertEquals(Result.PARSED, mParser.parse(Buffer.buffer("{\"timestamp\":\"1478192204001\",\"note\":\"x\\\"y\",\"amount\":\"7\"}")));
+		assertEquals(7.0, mParser.getAmount(), 0.0);
+		assertEquals(1478192204001l, mParser.getTimestamp());
+
+		Assert.assertEquals(Result.PARSED, mParser.parse(Buffer.buffer("{\"amount\":1,\"timestamp\":2,\"key\":\"merchant-1\"}")));
+		assertEquals("merchant-1", mParser.getKey());
+		Assert.assertEquals(Result.INVALID, mParser.parse(Buffer.buffer("{\"amount\":1,\"timestamp\":2,\"key\":7}")));
+		Assert.assertEquals(Result.INVALID, mParser.parse(Buffer.buffer("{\"amount\":12.3}")));
+		Assert.assertEquals(Result.INVALID, mParser.parse(Buffer.buffer("{\"amount\":12.3,\"timestamp\":1,\"amount\":null}")));
+		Assert.assertEquals(Result.UNSUPPORTED, mParser.parse(Buffer.buffer("{\"amount\":12.3,\"timestamp\":1} trailing")));
+		Assert.assertEquals(Result.UNSUPPORTED, mParser.parse(Buffer.buffer("")));
+	}
+
+	/**
+	 * Given - randomly generated bodies with shuffled / duplicated members , whitespace and random byte mutations
+	 * When  - parsed by the streaming and the legacy parser
+	 * Then  - Assert both agree whenever the streaming parser decides
+	 */
+	@Test
+	public void whenRandomBodies_assertSameResultAsLegacy() {
+		Random random = new Random(26);
+		int decided = 0;
+		for (int i = 0; i < 20000; i++) {
+			String body = randomBody(random);
+			if (random.nextInt(3) == 0) {
+				body = mutate(random, body);
+			}
+			if (assertCompatible(body) != Result.UNSUPPORTED) {
+				decided++;
+			}
+		}
+		Assert.assertTrue("fast path used for " + decided + " bodies", decided > 10000);
+	}
+
+	private Result assertCompatible(String body) {
+		Result result = mParser.parse(Buffer.buffer(body));
+		Object[] legacy = legacyParse(body);
+		if (result == Result.PARSED) {
+			Assert.assertNotNull("legacy rejected " + body, legacy);
+			assertEquals(body, Double.doubleToRawLongBits((Double) legacy[0]), Double.doubleToRawLongBits(mParser.getAmount()));
+			assertEquals(body, legacy[1], mParser.getTimestamp());
+			assertEquals(body, legacy[2], mParser.getKey());
+		} else if (result == Result.INVALID) {
+			Assert.assertNull("legacy accepted " + body, legacy);
+		}
+		return result;
+	}
+
+	/**
+	 * Parsing as done by TransactionServiceImpl before the streaming parser
+	 */
+	private static Object[] legacyParse(String body) {
+		try {
+			JsonObject jsonData = new JsonObject(body);
+			Double amount = Double.parseDouble(String.valueOf(jsonData.getValue("amount")));
+			Long timestamp = Long.parseLong(String.valueOf(jsonData.getValue("timestamp")));
+			Object key = jsonData.getValue("key");
+			if (key != null && !(key instanceof String && TransactionFactory.isValidKey((String) key))) {
+				return null;
+			}
+			return new Object[] { amount, timestamp, key };
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	private static String randomBody(Random random) {
+		List<String> members = new ArrayList<>();
+		if (random.nextInt(10) > 0) {
+			members.add("\"amount\"" + space(random) + ":" + space(random) + AMOUNTS[random.nextInt(AMOUNTS.length)]);
+		}
+		if (random.nextInt(10) > 0) {
+			members.add("\"timestamp\"" + space(random) + ":" + space(random) + TIMESTAMPS[random.nextInt(TIMESTAMPS.length)]);
+		}
+		if (random.nextInt(3) == 0) {
+			members.add("\"key\"" + space(random) + ":" + space(random) + KEYS[random.nextInt(KEYS.length)]);
+		}
+		for (int i = random.nextInt(3); i > 0; i--) {
+			String name = random.nextBoolean() ? "\"other" + i + "\"" : random.nextBoolean() ? "\"amount\"" : "\"amo\\u0075nt\"";
+			members.add(name + ":" + OTHERS[random.nextInt(OTHERS.length)]);
+		}
+		Collections.shuffle(members, random);
+		StringBuilder body = new StringBuilder(space(random)).append('{');
+		for (int i = 0; i < members.size(); i++) {
+			body.append(i > 0 ? "," : "").append(space(random)).append(members.get(i)).append(space(random));
+		}
+		return body.append('}').append(space(random)).toString();
+	}
+
+	private static String mutate(Random random, String body) {
+		int position = random.nextInt(body.length());
+		switch (random.nextInt(4)) {
+		case 0:
+			return body.substring(0, position);
+		case 1:
+			return body.substring(0, position) + body.substring(position + 1);
+		case 2:
+			return body.substring(0, position) + "{}[]\",:-+.eE0 /*x\\"
+					.charAt(random.nextInt(18)) + body.substring(position);
+		default:
+			return body + (random.nextBoolean() ? " // comment" : "x");
+		}
+	}
+
+	private static String space(Random random) {
+		return random.nextInt(4) == 0 ? " \n\t\r".substring(random.nextInt(4)) : "";
+	}
+}
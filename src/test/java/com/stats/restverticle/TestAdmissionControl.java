@@ -0,0 +1,175 @@
+package com.stats.restverticle;
+
+import static com.stats.restverticle.RestAPIVerticle.ADD_TRANSACTION_BATCH_END_POINT;
+import static com.stats.restverticle.RestAPIVerticle.ADD_TRANSACTION_END_POINT;
+import static com.stats.restverticle.RestAPIVerticle.METRICS_END_POINT;
+import static com.stats.restverticle.RestAPIVerticle.RETRY_AFTER;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.stats.restservice.internal.metrics.ServiceMetrics;
+import com.stats.restservice.internal.metrics.ServiceMetrics.ShedReason;
+import com.stats.restservice.internal.services.StatisticsServiceImpl;
+import com.stats.restservice.internal.services.TransactionServiceImpl;
+import com.stats.restservice.transaction.TransactionFactory;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+/**
+ * Test class to ascertain that requests beyond the limits of AdmissionControl are shed with 429 / 503 / 413
+ */
+@RunWith(VertxUnitRunner.class)
+public class TestAdmissionControl {
+
+	private Vertx vertx;
+	private int port;
+	private ServiceMetrics mMetrics;
+
+	@Before
+	public void setUp() throws IOException {
+		vertx = Vertx.vertx();
+
+		// Pick an available and random
+		ServerSocket socket = new ServerSocket(0);
+		port = socket.getLocalPort();
+		socket.close();
+
+		mMetrics = new ServiceMetrics();
+	}
+
+	@After
+	public void tearDown(TestContext context) {
+		vertx.close(context.asyncAssertSuccess());
+	}
+
+	/**
+	 * Given - a limit of 2 requests in flight
+	 * When  - a third one is acquired before and after one is released
+	 * Then  - Assert it is only admitted after the release
+	 */
+	@Test
+	public void whenInFlightLimitReached_assertAdmittedAfterRelease(TestContext context) {
+		AdmissionControl admission = new AdmissionControl(2, 1, 0, 0, 0);
+		context.assertTrue(admission.tryAcquire());
+		context.assertTrue(admission.tryAcquire());
+		context.assertFalse(admission.tryAcquire());
+		admission.release();
+		context.assertTrue(admission.tryAcquire());
+		context.assertEquals(2, admission.getInFlight());
+
+		context.assertTrue(admission.tryAcquireBlocking());
+		context.assertFalse(admission.tryAcquireBlocking());
+		admission.releaseBlocking();
+		context.assertEquals(0, admission.getBlockingQueueDepth());
+	}
+
+	/**
+	 * Given - a rate limit of 1 per second with a burst of 3
+	 * When  - 4 requests arrive at once
+	 * Then  - Assert the burst is admitted and the fourth has to wait at most a second
+	 */
+	@Test
+	public void whenBurstExhausted_assertWaitUntilNextToken(TestContext context) {
+		AdmissionControl admission = new AdmissionControl(0, 0, 0, 1, 3);
+		for (int i = 0; i < 3; i++) {
+			context.assertEquals(0l, admission.tryAcquireIngest());
+		}
+		long waitNanos = admission.tryAcquireIngest();
+		context.assertTrue(waitNanos > 0 && waitNanos <= TimeUnit.SECONDS.toNanos(1));
+	}
+
+	/**
+	 * Given RestAPIVerticle with an ingest rate limit of 1 per second
+	 * When two transactions are posted right after each other
+	 * Then Assert the second is answered with 429 and Retry-After and counted as shed
+	 * @param context
+	 */
+	@Test
+	public void checkThatIngestBeyondRateIsRejected(TestContext context) {
+		deploy(context, new AdmissionControl(0, 0, 0, 1, 1));
+		Async async = context.async();
+		HttpClient client = vertx.createHttpClient();
+		String json = Json.encode(TransactionFactory.getTransaction(10.5, System.currentTimeMillis()));
+		client.post(port, "localhost", ADD_TRANSACTION_END_POINT, first -> {
+			context.assertEquals(first.statusCode(), 201);
+			client.post(port, "localhost", ADD_TRANSACTION_END_POINT, second -> {
+				context.assertEquals(second.statusCode(), 429);
+				context.assertEquals(second.headers().get(RETRY_AFTER), "1");
+				context.assertEquals(mMetrics.getShed(ShedReason.RATE_LIMIT), 1l);
+				async.complete();
+			}).end(json);
+		}).end(json);
+	}
+
+	/**
+	 * Given RestAPIVerticle with a body limit of 100 bytes
+	 * When a larger transaction batch is posted
+	 * Then Assert it is answered with 413 and counted as shed
+	 * @param context
+	 */
+	@Test
+	public void checkThatBodyBeyondLimitIsRejected(TestContext context) {
+		deploy(context, new AdmissionControl(0, 0, 100, 0, 0));
+		Async async = context.async();
+		StringBuilder batch = new StringBuilder();
+		for (int i = 0; i < 10; i++) {
+			batch.append(Json.encode(TransactionFactory.getTransaction(i + 0.5, System.currentTimeMillis()))).append('\n');
+		}
+		vertx.createHttpClient().post(port, "localhost", ADD_TRANSACTION_BATCH_END_POINT, response -> {
+			context.assertEquals(response.statusCode(), 413);
+			context.assertEquals(mMetrics.getShed(ShedReason.BODY_TOO_LARGE), 1l);
+			async.complete();
+		}).end(batch.toString());
+	}
+
+	/**
+	 * Given RestAPIVerticle with a blocking queue of 1 that is taken
+	 * When the metrics are requested , and again once the queue is free
+	 * Then Assert the counters are served right away without the window counts , which are back once the queue is free
+	 * @param context
+	 */
+	@Test
+	public void checkThatMetricsSkipWindowCountsWhenBlockingQueueFull(TestContext context) {
+		AdmissionControl admission = new AdmissionControl(0, 1, 0, 0, 0);
+		deploy(context, admission);
+		context.assertTrue(admission.tryAcquireBlocking());
+		Async async = context.async();
+		HttpClient client = vertx.createHttpClient();
+		client.getNow(port, "localhost", METRICS_END_POINT, full -> full.bodyHandler(fullBody -> {
+			context.assertEquals(full.statusCode(), 200);
+			context.assertTrue(fullBody.toString().contains("stats_transactions_accepted_total"));
+			context.assertFalse(fullBody.toString().contains("stats_window_transactions"));
+			admission.releaseBlocking();
+			client.getNow(port, "localhost", METRICS_END_POINT, free -> free.bodyHandler(freeBody -> {
+				context.assertTrue(freeBody.toString().contains("stats_window_transactions{window_ms=\"60000\"} 0"));
+				async.complete();
+			}));
+		}));
+	}
+
+	/**
+	 * Deploys RestAPIVerticle with the given admission control and waits until it listens
+	 */
+	private void deploy(TestContext context, AdmissionControl admission) {
+		StatisticsServiceImpl statisticsService = new StatisticsServiceImpl();
+		Async deployed = context.async();
+		vertx.deployVerticle(new RestAPIVerticle(new RestVerticleOptions(new TransactionServiceImpl(statisticsService, mMetrics),
+				statisticsService).setMetrics(mMetrics).setAdmission(admission)), new DeploymentOptions().setConfig(new JsonObject().put("HTTP_PORT", port)),
+				context.asyncAssertSuccess(id -> deployed.complete()));
+		deployed.awaitSuccess(10000);
+	}
+}
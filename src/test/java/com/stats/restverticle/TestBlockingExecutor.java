@@ -0,0 +1,90 @@
+package com.stats.restverticle;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+/**
+ * Test class to ascertain that blocking work runs off the event loop and its result is handed back to the caller's context
+ */
+@RunWith(VertxUnitRunner.class)
+public class TestBlockingExecutor {
+
+	private Vertx vertx;
+
+	@Before
+	public void setUp() {
+		vertx = Vertx.vertx();
+	}
+
+	@After
+	public void tearDown(TestContext context) {
+		vertx.close(context.asyncAssertSuccess());
+	}
+
+	/**
+	 * Given - the worker pool executor
+	 * When  - a task , a failing task and a task throwing an error are executed from an event loop
+	 * Then  - Assert the tasks run off the event loop and the results are handled on the calling context
+	 */
+	@Test
+	public void whenWorkerPool_assertResultOnCallingContext(TestContext context) {
+		checkExecutor(context, BlockingExecutor.create(vertx, BlockingExecutor.WORKER));
+	}
+
+	/**
+	 * Given - the virtual thread executor
+	 * When  - it is created on a JDK with or without virtual threads
+	 * Then  - Assert it falls back to the worker pool without them and behaves the same either way
+	 */
+	@Test
+	public void whenVirtualThreads_assertFallbackAndResultOnCallingContext(TestContext context) {
+		BlockingExecutor executor = BlockingExecutor.create(vertx, BlockingExecutor.VIRTUAL);
+		context.assertEquals(VirtualThreadExecutor.isAvailable() ? BlockingExecutor.VIRTUAL : BlockingExecutor.WORKER,
+				executor.getName());
+		checkExecutor(context, executor);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void whenUnknownExecutor_assertRejected() {
+		BlockingExecutor.create(vertx, "fibers");
+	}
+
+	private void checkExecutor(TestContext context, BlockingExecutor executor) {
+		Async async = context.async(3);
+		Context eventLoop = vertx.getOrCreateContext();
+		eventLoop.runOnContext(v -> {
+			executor.<String>execute(() -> {
+				context.assertFalse(Context.isOnEventLoopThread());
+				return "statistics";
+			}, result -> {
+				context.assertEquals("statistics", result.result());
+				context.assertEquals(eventLoop, vertx.getOrCreateContext());
+				async.countDown();
+			});
+			executor.<String>execute(() -> {
+				throw new IllegalStateException("failed");
+			}, result -> {
+				context.assertEquals("failed", result.cause().getMessage());
+				context.assertEquals(eventLoop, vertx.getOrCreateContext());
+				async.countDown();
+			});
+			executor.<String>execute(() -> {
+				throw new StackOverflowError("error");
+			}, result -> {
+				context.assertTrue(result.cause() instanceof StackOverflowError);
+				context.assertEquals(eventLoop, vertx.getOrCreateContext());
+				async.countDown();
+			});
+		});
+		async.awaitSuccess(5000);
+		executor.close();
+	}
+}
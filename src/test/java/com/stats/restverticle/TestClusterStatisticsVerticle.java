@@ -0,0 +1,98 @@
+package com.stats.restverticle;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.stats.restservice.internal.services.StatisticsOptions;
+import com.stats.restservice.internal.services.StatisticsServiceImpl;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.test.fakecluster.FakeClusterManager;
+
+/**
+ * Test class to ascertain that the nodes of a cluster answer with the statistics of all nodes , with several
+ * clustered Vertx instances in one JVM
+ */
+public class TestClusterStatisticsVerticle {
+
+	private static final int NODES = 3;
+	private static final int INTERVAL = 100;
+
+	private final Vertx[] mVertx = new Vertx[NODES];
+	private final StatisticsServiceImpl[] mServices = new StatisticsServiceImpl[NODES];
+
+	@Before
+	public void setUp() throws Exception {
+		for (int i = 0; i < NODES; i++) {
+			CompletableFuture<Vertx> clustered = new CompletableFuture<>();
+			Vertx.clusteredVertx(new VertxOptions().setClusterManager(new FakeClusterManager()), result -> {
+				if (result.succeeded()) {
+					clustered.complete(result.result());
+				} else {
+					clustered.completeExceptionally(result.cause());
+				}
+			});
+			mVertx[i] = clustered.get(10, TimeUnit.SECONDS);
+			mServices[i] = new StatisticsServiceImpl(new StatisticsOptions().setCluster(true).setClusterIntervalMillis(INTERVAL));
+			CompletableFuture<String> deployed = new CompletableFuture<>();
+			mVertx[i].deployVerticle(new ClusterStatisticsVerticle(mServices[i].getClusterAggregator(), INTERVAL), result -> {
+				if (result.succeeded()) {
+					deployed.complete(result.result());
+				} else {
+					deployed.completeExceptionally(result.cause());
+				}
+			});
+			deployed.get(10, TimeUnit.SECONDS);
+		}
+	}
+
+	@After
+	public void tearDown() {
+		for (Vertx vertx : mVertx) {
+			if (vertx != null) {
+				vertx.close();
+			}
+		}
+		FakeClusterManager.reset();
+	}
+
+	/**
+	 * Given - 3 clustered nodes that each ingest a part of the transactions
+	 * When  - the partials were exchanged
+	 * Then  - Assert every node answers with the statistics of all transactions
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void whenEveryNodeIngestsPart_assertEveryNodeAnswersGlobalWindow() throws InterruptedException {
+		long now = System.currentTimeMillis();
+		for (int i = 0; i < 300; i++) {
+			mServices[i % NODES].computeTransaction(i, now - i);
+		}
+		// min 0 on node 0 , max 299 on node 2
+		for (StatisticsServiceImpl service : mServices) {
+			Map<String, Number> statistics = awaitCount(service, 300l);
+			assertEquals(300l, statistics.get("count"));
+			assertEquals(44850.0, (Double) statistics.get("sum"), 0.0);
+			assertEquals(0.0, statistics.get("min"));
+			assertEquals(299.0, statistics.get("max"));
+		}
+		assertEquals(NODES - 1, mServices[0].getClusterAggregator().getRemoteNodeCount());
+	}
+
+	private static Map<String, Number> awaitCount(StatisticsServiceImpl service, long count) throws InterruptedException {
+		Map<String, Number> statistics = service.getStatistics();
+		for (int i = 0; i < 100 && !Long.valueOf(count).equals(statistics.get("count")); i++) {
+			Thread.sleep(INTERVAL / 2);
+			statistics = service.getStatistics();
+		}
+		return statistics;
+	}
+}
@@ -1,8 +1,11 @@
 package com.stats.restverticle;
 
+import static com.stats.restverticle.RestAPIVerticle.ADD_TRANSACTION_BATCH_END_POINT;
 import static com.stats.restverticle.RestAPIVerticle.ADD_TRANSACTION_END_POINT;
 import static com.stats.restverticle.RestAPIVerticle.APPLICATION_JSON_CHARSET_UTF_8;
 import static com.stats.restverticle.RestAPIVerticle.GET_STATS_END_POINT;
+import static com.stats.restverticle.RestAPIVerticle.IDEMPOTENCY_KEY;
+import static com.stats.restverticle.RestAPIVerticle.METRICS_END_POINT;
 
 import java.io.IOException;
 import java.net.ServerSocket;
@@ -20,6 +23,7 @@ import org.mockito.Mockito;
 
 import com.stats.restservice.external.services.IStatisticsService;
 import com.stats.restservice.external.services.ITransactionService;
+import com.stats.restservice.internal.metrics.ServiceMetrics;
 import com.stats.restservice.internal.services.StatisticsServiceImpl;
 import com.stats.restservice.internal.services.TransactionServiceImpl;
 import com.stats.restservice.transaction.ITransaction;
@@ -29,6 +33,7 @@ import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Vertx;
 import io.vertx.core.http.HttpClient;
 import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
@@ -40,6 +45,7 @@ public class TestRestAPIVerticle {
     private int port = 8081;
     IStatisticsService mStatisticsService = null;
     ITransactionService mTransactionService = null;
+    ServiceMetrics mMetrics = new ServiceMetrics();
 	
     @Before
     public void setUp(TestContext context) throws IOException {
@@ -55,12 +61,12 @@ public class TestRestAPIVerticle {
         
         // prepare mocks and spied objects
         IStatisticsService statisticsService = new StatisticsServiceImpl();
-        ITransactionService transactionService = new TransactionServiceImpl(statisticsService);
+        ITransactionService transactionService = new TransactionServiceImpl(statisticsService, mMetrics);
     	
         mStatisticsService = Mockito.spy(statisticsService);
         mTransactionService = Mockito.spy(transactionService);
         
-		vertx.deployVerticle(new RestAPIVerticle(transactionService, statisticsService ), options, context.asyncAssertSuccess());
+		vertx.deployVerticle(new RestAPIVerticle(new RestVerticleOptions(transactionService, statisticsService).setMetrics(mMetrics)), options, context.asyncAssertSuccess());
     }
 
     @After
@@ -163,6 +169,169 @@ public class TestRestAPIVerticle {
             }).end();
     }
 
+    /**
+     * Given the default configuration with only the 60 seconds window
+     * When statistics are requested for the 60s window and for windows that are not configured
+     * Then Assert 200 for the configured window and 400 for the others
+     * @param context
+     */
+    @Test
+    public void checkThatUnknownStatisticsWindowIsRejected(TestContext context) {
+        Async async = context.async(3);
+        HttpClient client = vertx.createHttpClient();
+        client.getNow(port, "localhost", GET_STATS_END_POINT + "?window=60s", response -> {
+            context.assertEquals(response.statusCode(), 200);
+            async.countDown();
+        });
+        client.getNow(port, "localhost", GET_STATS_END_POINT + "?window=5m", response -> {
+            context.assertEquals(response.statusCode(), 400);
+            async.countDown();
+        });
+        client.getNow(port, "localhost", GET_STATS_END_POINT + "?window=ten", response -> {
+            context.assertEquals(response.statusCode(), 400);
+            async.countDown();
+        });
+    }
+
+    /**
+     * Given a transaction with a key
+     * When the statistics of that key and of another key are requested
+     * Then Assert the keyed transaction is only counted for its own key
+     * @param context
+     */
+    @Test
+    public void checkThatWeCanGetKeyedStatistics(TestContext context) {
+        Async async = context.async();
+        final String json = new JsonObject().put("amount", 12.5).put("timestamp", System.currentTimeMillis())
+        		.put("key", "merchant-1").encode();
+        HttpClient client = vertx.createHttpClient();
+        client.post(port, "localhost", ADD_TRANSACTION_END_POINT)
+            .putHeader("Content-Type", "application/json")
+            .putHeader("Content-Length", Integer.toString(json.length()))
+            .handler(response -> {
+                context.assertEquals(response.statusCode(), 201);
+                client.getNow(port, "localhost", GET_STATS_END_POINT + "/merchant-1", keyed ->
+                    keyed.bodyHandler(body -> {
+                        context.assertEquals(keyed.statusCode(), 200);
+                        context.assertEquals(body.toJsonObject().getValue("sum"), 12.5);
+                        client.getNow(port, "localhost", GET_STATS_END_POINT + "/merchant-2", other ->
+                            other.bodyHandler(otherBody -> {
+                                context.assertEquals(String.valueOf(otherBody.toJsonObject().getValue("count")), "0");
+                                async.complete();
+                            }));
+                    }));
+            })
+            .write(json)
+            .end();
+    }
+
+    /**
+     * Given a json array with valid and older transactions
+     * When a rest request to add a transaction batch is performed
+     * Then Assert the response status and the accepted / rejected counts
+     * @param context
+     */
+    @Test
+    public void checkThatWeCanAddTransactionBatch(TestContext context) {
+        Async async = context.async();
+        final String json = new JsonArray()
+        		.add(new JsonObject().put("amount", 10.5).put("timestamp", System.currentTimeMillis()))
+        		.add(new JsonObject().put("amount", 11.5).put("timestamp", System.currentTimeMillis()))
+        		.add(new JsonObject().put("amount", 12.5).put("timestamp", System.currentTimeMillis() - 70000l))
+        		.encode();
+        vertx.createHttpClient().post(port, "localhost", ADD_TRANSACTION_BATCH_END_POINT)
+            .putHeader("Content-Type", "application/json")
+            .putHeader("Content-Length", Integer.toString(json.length()))
+            .handler(response -> {
+                context.assertEquals(response.statusCode(), 200);
+                context.assertTrue(response.headers().get("content-type").equals(APPLICATION_JSON_CHARSET_UTF_8));
+                response.bodyHandler(body -> {
+                	JsonObject counts = body.toJsonObject();
+                	context.assertEquals(counts.getInteger("accepted"), 2);
+                	context.assertEquals(counts.getInteger("rejected"), 1);
+                    async.complete();
+                });
+            })
+            .write(json)
+            .end();
+    }
+    
+    /**
+     * Given a malformed json array
+     * When a rest request to add a transaction batch is performed
+     * Then Assert the response status is 400
+     * @param context
+     */
+    @Test
+    public void checkThatMalformedTransactionBatchIsRejected(TestContext context) {
+        Async async = context.async();
+        final String json = "[{\"amount\": 10.5,";
+        vertx.createHttpClient().post(port, "localhost", ADD_TRANSACTION_BATCH_END_POINT)
+            .putHeader("Content-Type", "application/json")
+            .putHeader("Content-Length", Integer.toString(json.length()))
+            .handler(response -> {
+                context.assertEquals(response.statusCode(), 400);
+                async.complete();
+            })
+            .write(json)
+            .end();
+    }
+
+    /**
+     * Given a transaction that was accepted and one that was too old
+     * When a rest request to get the metrics is performed
+     * Then Assert the Prometheus text has the accepted and rejected counters and the latency of the transactions route
+     * @param context
+     */
+    @Test
+    public void checkThatWeCanGetMetrics(TestContext context) {
+        Async async = context.async();
+        HttpClient client = vertx.createHttpClient();
+        String accepted = Json.encode(TransactionFactory.getTransaction(10.5, System.currentTimeMillis()));
+        String tooOld = Json.encode(TransactionFactory.getTransaction(10.5, System.currentTimeMillis() - 70000l));
+        client.post(port, "localhost", ADD_TRANSACTION_END_POINT, first -> {
+            client.post(port, "localhost", ADD_TRANSACTION_END_POINT, second -> {
+                client.getNow(port, "localhost", METRICS_END_POINT, response -> {
+                    context.assertEquals(response.statusCode(), 200);
+                    context.assertEquals(response.headers().get("content-type"), ServiceMetrics.CONTENT_TYPE);
+                    response.bodyHandler(body -> {
+                        String metrics = body.toString();
+                        context.assertTrue(metrics.contains("stats_transactions_accepted_total 1\n"));
+                        context.assertTrue(metrics.contains("stats_transactions_rejected_total{reason=\"too_old\"} 1\n"));
+                        context.assertTrue(metrics.contains("stats_window_transactions{window_ms=\"60000\"} 1\n"));
+                        context.assertTrue(metrics.contains("http_request_duration_seconds_count{route=\"/transactions\"} 2\n"));
+                        async.complete();
+                    });
+                });
+            }).end(tooOld);
+        }).end(accepted);
+    }
+
+    /**
+     * Given a transaction posted with an Idempotency-Key
+     * When it is posted again with the same key and once with a malformed key
+     * Then Assert the retry is answered with 201 but counted once , the malformed key with 400
+     * @param context
+     */
+    @Test
+    public void checkThatRetryWithIdempotencyKeyIsAddedOnce(TestContext context) {
+        Async async = context.async();
+        HttpClient client = vertx.createHttpClient();
+        String json = Json.encode(TransactionFactory.getTransaction(10.5, System.currentTimeMillis()));
+        client.post(port, "localhost", ADD_TRANSACTION_END_POINT, first -> {
+            context.assertEquals(first.statusCode(), 201);
+            client.post(port, "localhost", ADD_TRANSACTION_END_POINT, retry -> {
+                context.assertEquals(retry.statusCode(), 201);
+                context.assertEquals(mMetrics.getAccepted(), 1l);
+                context.assertEquals(mMetrics.getDuplicates(), 1l);
+                client.post(port, "localhost", ADD_TRANSACTION_END_POINT, malformed -> {
+                    context.assertEquals(malformed.statusCode(), 400);
+                    async.complete();
+                }).putHeader(IDEMPOTENCY_KEY, "").end(json);
+            }).putHeader(IDEMPOTENCY_KEY, "payment-1").end(json);
+        }).putHeader(IDEMPOTENCY_KEY, "payment-1").end(json);
+    }
+
 	private DoubleSummaryStatistics createTestTransactions(TestContext context , HttpClient createHttpClient, int numberOfTransactions) {
         List<ITransaction> transactionList = 
 		IntStream.rangeClosed(1, numberOfTransactions).mapToObj(e -> {
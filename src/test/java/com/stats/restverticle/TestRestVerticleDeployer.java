@@ -0,0 +1,98 @@
+package com.stats.restverticle;
+
+import static com.stats.restverticle.RestAPIVerticle.ADD_TRANSACTION_END_POINT;
+import static com.stats.restverticle.RestAPIVerticle.GET_STATS_END_POINT;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.stats.restservice.external.services.IStatisticsService;
+import com.stats.restservice.internal.services.StatisticsOptions;
+import com.stats.restservice.internal.services.StatisticsServiceImpl;
+import com.stats.restservice.internal.services.TransactionServiceImpl;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+/**
+ * Test class to ascertain that several RestAPIVerticle instances serve the same port and share the services
+ */
+@RunWith(VertxUnitRunner.class)
+public class TestRestVerticleDeployer {
+
+	private static final int INSTANCES = 4;
+	private static final int TRANSACTIONS = 200;
+	private Vertx vertx;
+	private int port;
+
+	@Before
+	public void setUp(TestContext context) throws IOException {
+		vertx = Vertx.vertx();
+
+		// Pick an available and random
+		ServerSocket socket = new ServerSocket(0);
+		port = socket.getLocalPort();
+		socket.close();
+
+		IStatisticsService statisticsService = new StatisticsServiceImpl(new StatisticsOptions().setIngestStripes(INSTANCES));
+		RestVerticleDeployer.deployRestVerticles(vertx, INSTANCES,
+				new RestVerticleOptions(new TransactionServiceImpl(statisticsService), statisticsService), new DeploymentOptions().setConfig(new JsonObject().put("HTTP_PORT", port)), context.asyncAssertSuccess());
+	}
+
+	@After
+	public void tearDown(TestContext context) {
+		vertx.close(context.asyncAssertSuccess());
+	}
+
+	/**
+	 * Given the configuration with / without HTTP_INSTANCES
+	 * When the number of instances is resolved
+	 * Then Assert configured value wins and the default is the number of cores
+	 */
+	@Test
+	public void checkInstancesFromConfig() {
+		Assert.assertEquals(3, RestVerticleDeployer.getInstances(new JsonObject().put(RestVerticleDeployer.HTTP_INSTANCES, 3)));
+		Assert.assertEquals(Runtime.getRuntime().availableProcessors(), RestVerticleDeployer.getInstances(new JsonObject()));
+	}
+
+	/**
+	 * Given several RestAPIVerticle instances on the same port
+	 * When many transactions are posted over several connections
+	 * Then Assert every transaction is accepted and counted once in the shared statistics
+	 * @param context
+	 */
+	@Test
+	public void checkThatAllInstancesShareStatistics(TestContext context) {
+		Async async = context.async();
+		HttpClient client = vertx.createHttpClient(new HttpClientOptions().setMaxPoolSize(INSTANCES * 2));
+		AtomicInteger pending = new AtomicInteger(TRANSACTIONS);
+		for (int i = 0; i < TRANSACTIONS; i++) {
+			String json = new JsonObject().put("amount", 1.5).put("timestamp", System.currentTimeMillis()).encode();
+			client.post(port, "localhost", ADD_TRANSACTION_END_POINT)
+				.putHeader("Content-Type", "application/json")
+				.handler(response -> {
+					context.assertEquals(response.statusCode(), 201);
+					if (pending.decrementAndGet() == 0) {
+						client.getNow(port, "localhost", GET_STATS_END_POINT, stats -> stats.bodyHandler(body -> {
+							context.assertEquals(body.toJsonObject().getLong("count"), (long) TRANSACTIONS);
+							async.complete();
+						}));
+					}
+				})
+				.end(json);
+		}
+	}
+}
@@ -0,0 +1,163 @@
+package com.stats.restverticle;
+
+import static com.stats.restverticle.RestAPIVerticle.ADD_TRANSACTION_END_POINT;
+import static com.stats.restverticle.RestAPIVerticle.GET_STATS_END_POINT;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import com.stats.restservice.internal.services.StatisticsOptions;
+import com.stats.restservice.internal.services.StatisticsServiceImpl;
+import com.stats.restservice.transaction.TransactionFactory;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+/**
+ * Test class to ascertain that the bootstrap deploys the whole application into one Vert.x instance from one configuration
+ */
+@RunWith(VertxUnitRunner.class)
+public class TestStatisticsApplication {
+
+	@Rule
+	public TemporaryFolder mFolder = new TemporaryFolder();
+
+	private Vertx vertx;
+	private int port;
+
+	@Before
+	public void setUp() throws IOException {
+		vertx = Vertx.vertx();
+
+		// Pick an available and random
+		ServerSocket socket = new ServerSocket(0);
+		port = socket.getLocalPort();
+		socket.close();
+	}
+
+	@After
+	public void tearDown(TestContext context) {
+		vertx.close(context.asyncAssertSuccess());
+	}
+
+	/**
+	 * Given system properties of the application
+	 * When the configuration is resolved with a given configuration
+	 * Then Assert the properties are typed , the given configuration wins and other properties are left out
+	 */
+	@Test
+	public void checkThatConfigIsResolvedFromSystemProperties() {
+		System.setProperty(RestVerticleDeployer.HTTP_INSTANCES, "3");
+		System.setProperty(StatisticsOptions.STATS_QUANTILE_ACCURACY, "0.02");
+		System.setProperty(StatisticsOptions.STATS_WINDOWS, "10s,1d");
+		System.setProperty(StatisticsOptions.STATS_QUANTILES, "true");
+		try {
+			JsonObject config = StatisticsApplication.resolveConfig(new JsonObject().put(StatisticsOptions.STATS_WINDOWS, "5m"));
+			Assert.assertEquals(3, RestVerticleDeployer.getInstances(config));
+			Assert.assertEquals(0.02, config.getDouble(StatisticsOptions.STATS_QUANTILE_ACCURACY), 0);
+			Assert.assertEquals("5m", config.getString(StatisticsOptions.STATS_WINDOWS));
+			Assert.assertTrue(config.getBoolean(StatisticsOptions.STATS_QUANTILES));
+			Assert.assertFalse(config.containsKey("java.version"));
+			Assert.assertEquals("10s,1d", StatisticsApplication.parseValue("10s,1d"));
+		} finally {
+			System.clearProperty(RestVerticleDeployer.HTTP_INSTANCES);
+			System.clearProperty(StatisticsOptions.STATS_QUANTILE_ACCURACY);
+			System.clearProperty(StatisticsOptions.STATS_WINDOWS);
+			System.clearProperty(StatisticsOptions.STATS_QUANTILES);
+		}
+	}
+
+	/**
+	 * Given a configuration with port , instances , windows and cleaner interval
+	 * When the application is deployed and a transaction is posted
+	 * Then Assert all verticles run in the given Vert.x instance and the configured window serves the transaction
+	 * @param context
+	 */
+	@Test
+	public void checkThatApplicationIsDeployedFromOneConfig(TestContext context) {
+		JsonObject config = new JsonObject()
+				.put("HTTP_PORT", port)
+				.put(RestVerticleDeployer.HTTP_INSTANCES, 2)
+				.put(StatisticsOptions.STATS_WINDOWS, "10s,60s")
+				.put(PeriodicCleanerVerticle.STATS_CLEANER_INTERVAL_MS, 100);
+		Async ready = context.async();
+		StatisticsApplication.deploy(vertx, config, context.asyncAssertSuccess(v -> ready.complete()));
+		ready.awaitSuccess(10000);
+		// 2 RestAPIVerticle instances and the cleaner
+		context.assertEquals(3, vertx.deploymentIDs().size());
+
+		Async async = context.async();
+		HttpClient client = vertx.createHttpClient();
+		client.post(port, "localhost", ADD_TRANSACTION_END_POINT, posted -> {
+			context.assertEquals(posted.statusCode(), 201);
+			client.getNow(port, "localhost", GET_STATS_END_POINT + "?window=10s", response -> {
+				context.assertEquals(response.statusCode(), 200);
+				response.bodyHandler(body -> {
+					context.assertEquals(body.toJsonObject().getInteger("count"), 1);
+					async.complete();
+				});
+			});
+		}).end(Json.encode(TransactionFactory.getTransaction(10.5, System.currentTimeMillis())));
+	}
+
+	/**
+	 * Given the application deployed by RestVerticleApplicationStarter with a state file
+	 * When a transaction is posted and the starter is undeployed
+	 * Then Assert the state is saved after the verticles stopped ingesting and a new service restores the transaction
+	 * @param context
+	 */
+	@Test
+	public void checkThatStateIsSavedOnceUndeployed(TestContext context) throws IOException {
+		File stateFile = new File(mFolder.newFolder(), "state.bin");
+		JsonObject config = new JsonObject()
+				.put("HTTP_PORT", port)
+				.put(RestVerticleDeployer.HTTP_INSTANCES, 2)
+				.put(StatisticsOptions.STATS_STATE_FILE, stateFile.getPath());
+		Async deployed = context.async();
+		String[] deploymentId = new String[1];
+		vertx.deployVerticle(new RestVerticleApplicationStarter(), new DeploymentOptions().setConfig(config),
+				context.asyncAssertSuccess(id -> {
+					deploymentId[0] = id;
+					deployed.complete();
+				}));
+		deployed.awaitSuccess(10000);
+
+		Async async = context.async();
+		vertx.createHttpClient().post(port, "localhost", ADD_TRANSACTION_END_POINT, posted -> {
+			context.assertEquals(posted.statusCode(), 201);
+			vertx.undeploy(deploymentId[0], context.asyncAssertSuccess(v -> {
+				context.assertTrue(stateFile.exists());
+				StatisticsServiceImpl restored = new StatisticsServiceImpl(new StatisticsOptions().setStateFile(stateFile.getPath()));
+				context.assertEquals(1l, restored.getStatistics().get("count").longValue());
+				async.complete();
+			}));
+		}).end(Json.encode(TransactionFactory.getTransaction(10.5, System.currentTimeMillis())));
+	}
+
+	/**
+	 * Given a configuration that enables the cluster
+	 * When the application is deployed into a Vert.x instance that is not clustered
+	 * Then Assert the deployment fails instead of creating a second Vert.x instance
+	 * @param context
+	 */
+	@Test
+	public void checkThatClusterNeedsClusteredVertx(TestContext context) {
+		StatisticsApplication.deploy(vertx, new JsonObject().put(StatisticsOptions.STATS_CLUSTER, true),
+				context.asyncAssertFailure(cause -> context.assertEquals(0, vertx.deploymentIDs().size())));
+	}
+}
@@ -0,0 +1,132 @@
+package com.stats.restverticle;
+
+import static com.stats.restverticle.RestAPIVerticle.GET_STATS_END_POINT;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+
+import com.stats.restservice.internal.metrics.ServiceMetrics;
+import com.stats.restservice.internal.services.StatisticsServiceImpl;
+import com.stats.restservice.internal.services.TransactionServiceImpl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+/**
+ * Test class to ascertain that concurrent GET /statistics share one computation of their window
+ */
+@RunWith(VertxUnitRunner.class)
+public class TestStatisticsCoalescer {
+
+	private static final long WINDOW = 60000;
+	private static final int REQUESTS = 20;
+	private Vertx vertx;
+	private int port;
+
+	@Before
+	public void setUp() throws IOException {
+		vertx = Vertx.vertx();
+
+		// Pick an available and random
+		ServerSocket socket = new ServerSocket(0);
+		port = socket.getLocalPort();
+		socket.close();
+	}
+
+	@After
+	public void tearDown(TestContext context) {
+		vertx.close(context.asyncAssertSuccess());
+	}
+
+	/**
+	 * Given - a computation of a window in progress
+	 * When  - more requests of the window and one of another window join
+	 * Then  - Assert only the first request of every window computes and all of the window get its result
+	 */
+	@Test
+	public void whenComputationRunning_assertWaitersShareResult(TestContext context) {
+		StatisticsCoalescer coalescer = new StatisticsCoalescer(0);
+		List<String> results = new ArrayList<>();
+		context.assertTrue(coalescer.join(WINDOW, result -> results.add(result.result())));
+		context.assertFalse(coalescer.join(WINDOW, result -> results.add(result.result())));
+		context.assertTrue(coalescer.join(10000, result -> results.add(result.result())));
+
+		coalescer.complete(WINDOW, Future.succeededFuture("{\"count\":1}"));
+		context.assertEquals(2, results.size());
+		context.assertEquals("{\"count\":1}", results.get(1));
+		// done and no freshness bound , the next request computes again
+		context.assertTrue(coalescer.join(WINDOW, result -> results.add(result.result())));
+	}
+
+	/**
+	 * Given - a freshness bound of a minute
+	 * When  - a request arrives after the computation completed
+	 * Then  - Assert it is answered right away with the computed result , a failed computation is not reused
+	 */
+	@Test
+	public void whenResultFresh_assertServedWithoutComputation(TestContext context) {
+		StatisticsCoalescer coalescer = new StatisticsCoalescer(60000);
+		context.assertTrue(coalescer.join(WINDOW, result -> { }));
+		coalescer.complete(WINDOW, Future.succeededFuture("{\"count\":2}"));
+
+		List<AsyncResult<String>> results = new ArrayList<>();
+		context.assertFalse(coalescer.join(WINDOW, results::add));
+		context.assertEquals("{\"count\":2}", results.get(0).result());
+
+		coalescer.complete(WINDOW, Future.failedFuture("failed"));
+		context.assertTrue(coalescer.join(WINDOW, results::add));
+	}
+
+	/**
+	 * Given RestAPIVerticle with a statistics service that takes 300 ms to compute
+	 * When 20 requests of the statistics arrive at once
+	 * Then Assert all are answered and the statistics were computed at most twice
+	 * @param context
+	 */
+	@Test
+	public void checkThatConcurrentRequestsShareComputation(TestContext context) {
+		StatisticsServiceImpl statisticsService = Mockito.spy(new StatisticsServiceImpl());
+		Mockito.doAnswer(invocation -> {
+			Thread.sleep(300);
+			return invocation.callRealMethod();
+		}).when(statisticsService).getStatistics(Mockito.anyLong());
+		ServiceMetrics metrics = new ServiceMetrics();
+		Async deployed = context.async();
+		vertx.deployVerticle(new RestAPIVerticle(new RestVerticleOptions(new TransactionServiceImpl(statisticsService, metrics),
+				statisticsService).setMetrics(metrics)), new DeploymentOptions().setConfig(new JsonObject().put("HTTP_PORT", port)),
+				context.asyncAssertSuccess(id -> deployed.complete()));
+		deployed.awaitSuccess(10000);
+
+		Async async = context.async(REQUESTS);
+		// one connection per request , otherwise the pool queues them behind each other
+		HttpClient client = vertx.createHttpClient(new HttpClientOptions().setMaxPoolSize(REQUESTS));
+		for (int i = 0; i < REQUESTS; i++) {
+			client.getNow(port, "localhost", GET_STATS_END_POINT, response -> {
+				context.assertEquals(response.statusCode(), 200);
+				response.bodyHandler(body -> {
+					context.assertTrue(body.toString().contains("\"count\""));
+					async.countDown();
+				});
+			});
+		}
+		async.awaitSuccess(10000);
+		Mockito.verify(statisticsService, Mockito.atMost(2)).getStatistics(Mockito.anyLong());
+		context.assertEquals(REQUESTS, (int) (metrics.getComputed() + metrics.getCoalesced()));
+	}
+}
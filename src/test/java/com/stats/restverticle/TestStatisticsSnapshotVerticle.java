@@ -0,0 +1,93 @@
+package com.stats.restverticle;
+
+import static com.stats.restverticle.RestAPIVerticle.APPLICATION_JSON_CHARSET_UTF_8;
+import static com.stats.restverticle.RestAPIVerticle.GET_STATS_END_POINT;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+
+import com.stats.restservice.external.services.IStatisticsService;
+import com.stats.restservice.external.services.ITransactionService;
+import com.stats.restservice.internal.services.StatisticsServiceImpl;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+/**
+ * Test class to ascertain that GET /statistics is served from the periodically refreshed snapshot
+ */
+@RunWith(VertxUnitRunner.class)
+public class TestStatisticsSnapshotVerticle {
+
+	private static final int INTERVAL = 100;
+	private Vertx vertx;
+	private int port;
+	private IStatisticsService mStatisticsService;
+	private StatisticsSnapshotVerticle mSnapshotVerticle;
+
+	@Before
+	public void setUp(TestContext context) throws IOException {
+		vertx = Vertx.vertx();
+
+		// Pick an available and random
+		ServerSocket socket = new ServerSocket(0);
+		port = socket.getLocalPort();
+		socket.close();
+
+		mStatisticsService = Mockito.spy(new StatisticsServiceImpl());
+		StatisticsSnapshot snapshot = new StatisticsSnapshot(mStatisticsService);
+		mSnapshotVerticle = new StatisticsSnapshotVerticle(snapshot, INTERVAL);
+		vertx.deployVerticle(mSnapshotVerticle, context.asyncAssertSuccess());
+		vertx.deployVerticle(new RestAPIVerticle(new RestVerticleOptions(Mockito.mock(ITransactionService.class), mStatisticsService)
+				.setSnapshot(snapshot)),
+				new DeploymentOptions().setConfig(new JsonObject().put("HTTP_PORT", port)), context.asyncAssertSuccess());
+	}
+
+	@After
+	public void tearDown(TestContext context) {
+		vertx.close(context.asyncAssertSuccess());
+	}
+
+	/**
+	 * Given RestAPIVerticle in snapshot mode and a transaction added after the snapshot was taken
+	 * When GET /statistics is requested repeatedly after the next refresh tick
+	 * Then Assert every response carries the refreshed snapshot and no request triggered a computation
+	 * @param context
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void checkThatStatisticsAreServedFromSnapshot(TestContext context) throws InterruptedException {
+		Async async = context.async(5);
+		mStatisticsService.computeTransaction(12.5, System.currentTimeMillis());
+		Thread.sleep(INTERVAL * 3);
+		vertx.cancelTimer(mSnapshotVerticle.getPeriodicVerticleId());
+		Mockito.reset(mStatisticsService);
+
+		HttpClient client = vertx.createHttpClient();
+		for (int i = 0; i < 5; i++) {
+			client.getNow(port, "localhost", GET_STATS_END_POINT, response -> {
+				context.assertEquals(response.statusCode(), 200);
+				context.assertEquals(response.headers().get("content-type"), APPLICATION_JSON_CHARSET_UTF_8);
+				response.bodyHandler(body -> {
+					JsonObject stats = body.toJsonObject();
+					context.assertEquals(stats.getLong("count"), 1l);
+					context.assertEquals(stats.getDouble("sum"), 12.5);
+					async.countDown();
+				});
+			});
+		}
+		async.await(5000);
+		Mockito.verify(mStatisticsService, Mockito.never()).getStatistics(Mockito.anyLong());
+	}
+}
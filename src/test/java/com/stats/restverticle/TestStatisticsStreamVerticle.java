@@ -0,0 +1,114 @@
+package com.stats.restverticle;
+
+import static com.stats.restverticle.RestAPIVerticle.GET_STATS_STREAM_END_POINT;
+import static com.stats.restverticle.RestAPIVerticle.TEXT_EVENT_STREAM;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+
+import com.stats.restservice.external.services.IStatisticsService;
+import com.stats.restservice.external.services.ITransactionService;
+import com.stats.restservice.internal.services.StatisticsServiceImpl;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+
+/**
+ * Test class to ascertain that GET /statistics/stream pushes the statistics computed once per tick to every subscriber
+ */
+@RunWith(VertxUnitRunner.class)
+public class TestStatisticsStreamVerticle {
+
+	private static final int INTERVAL = 100;
+	private static final int SUBSCRIBERS = 3;
+	private Vertx vertx;
+	private int port;
+	private IStatisticsService mStatisticsService;
+	private final AtomicInteger mTicks = new AtomicInteger();
+
+	@Before
+	public void setUp(TestContext context) throws IOException {
+		vertx = Vertx.vertx();
+
+		// Pick an available and random
+		ServerSocket socket = new ServerSocket(0);
+		port = socket.getLocalPort();
+		socket.close();
+
+		mStatisticsService = Mockito.spy(new StatisticsServiceImpl());
+		StatisticsStream stream = new StatisticsStream(mStatisticsService);
+		vertx.eventBus().localConsumer(StatisticsStream.TICK_ADDRESS, message -> mTicks.incrementAndGet());
+		vertx.deployVerticle(new StatisticsStreamVerticle(stream, INTERVAL), context.asyncAssertSuccess());
+		vertx.deployVerticle(new RestAPIVerticle(new RestVerticleOptions(Mockito.mock(ITransactionService.class), mStatisticsService)
+				.setStream(stream)),
+				new DeploymentOptions().setConfig(new JsonObject().put("HTTP_PORT", port)), context.asyncAssertSuccess());
+	}
+
+	@After
+	public void tearDown(TestContext context) {
+		vertx.close(context.asyncAssertSuccess());
+	}
+
+	/**
+	 * Given RestAPIVerticle with a statistics stream and several subscribers
+	 * When a transaction is computed while they are subscribed
+	 * Then Assert every subscriber receives a frame with the transaction and the statistics were computed once per tick
+	 * @param context
+	 * @throws InterruptedException
+	 */
+	@Test
+	public void checkThatStatisticsArePushedToEverySubscriber(TestContext context) throws InterruptedException {
+		Async async = context.async(SUBSCRIBERS);
+		HttpClient client = vertx.createHttpClient();
+		for (int i = 0; i < SUBSCRIBERS; i++) {
+			client.getNow(port, "localhost", GET_STATS_STREAM_END_POINT, response -> {
+				context.assertEquals(response.statusCode(), 200);
+				context.assertEquals(response.headers().get("content-type"), TEXT_EVENT_STREAM);
+				Buffer received = Buffer.buffer();
+				boolean[] done = new boolean[1];
+				response.handler(chunk -> {
+					received.appendBuffer(chunk);
+					if (!done[0] && received.toString().contains("\"count\":1")) {
+						done[0] = true;
+						async.countDown();
+					}
+				});
+			});
+		}
+		Thread.sleep(INTERVAL * 2);
+		Mockito.reset(mStatisticsService);
+		mTicks.set(0);
+		mStatisticsService.computeTransaction(12.5, System.currentTimeMillis());
+		async.await(5000);
+		// computed once per configured window and tick (plus a tick in flight) , not per subscriber
+		Mockito.verify(mStatisticsService, Mockito.atMost(mTicks.get() + 1)).getStatistics(Mockito.anyLong());
+	}
+
+	/**
+	 * Given RestAPIVerticle with a statistics stream
+	 * When a window that is not configured is subscribed to
+	 * Then Assert the response is 400
+	 * @param context
+	 */
+	@Test
+	public void checkThatUnknownStreamWindowIsRejected(TestContext context) {
+		Async async = context.async();
+		vertx.createHttpClient().getNow(port, "localhost", GET_STATS_STREAM_END_POINT + "?window=7s", response -> {
+			context.assertEquals(response.statusCode(), 400);
+			async.complete();
+		});
+	}
+}